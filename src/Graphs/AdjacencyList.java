@@ -0,0 +1,137 @@
+package Graphs;
+
+import java.util.Arrays;
+import java.util.function.DoubleFunction;
+
+/**
+ * This is a growable list of the edges going out of (or coming into) one node. The id of the node on the other end
+ * and the weight of each edge are kept in primitive arrays, so scanning a node's edges doesn't touch any other
+ * objects. The list can also keep the original weight object of each edge, for graphs that have to hand back the
+ * exact weight they were given and can't rebuild it from the double.
+ *
+ * Edges aren't kept in any particular order. Removing an edge moves the last edge into its place.
+ */
+class AdjacencyList {
+
+    int[] ids;
+    double[] weights;
+    /** The original weight objects, or null if this list doesn't keep them */
+    Object[] values;
+    int size;
+
+    /**
+     * Creates a new empty list
+     * @param capacity how many edges the list can hold before it has to grow
+     * @param keepValues whether we also keep the weight object of each edge
+     */
+    AdjacencyList(int capacity, boolean keepValues){
+        ids = new int[capacity];
+        weights = new double[capacity];
+        if (keepValues){
+            values = new Object[capacity];
+        }
+    }
+
+    /**
+     * Finds the position of the edge to or from the node with the given id. This is a linear scan, which for the
+     * small degrees of most graphs is faster than hashing
+     * @param id the id of the node on the other end of the edge
+     * @return the position of the edge, or -1 if we don't have it
+     */
+    int indexOf(int id){
+        for (int i = 0; i < size; i++){
+            if (ids[i] == id){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a new edge to the end of the list
+     * @param id the id of the node on the other end of the edge
+     * @param weight the weight of the edge
+     * @param value the weight object of the edge, ignored if we don't keep them
+     */
+    void add(int id, double weight, Object value){
+        if (size == ids.length){
+            int newCapacity = Math.max(4, size * 2);
+            ids = Arrays.copyOf(ids, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+            if (values != null){
+                values = Arrays.copyOf(values, newCapacity);
+            }
+        }
+        ids[size] = id;
+        set(size++, weight, value);
+    }
+
+    /**
+     * Changes the weight of the edge at a position
+     */
+    void set(int index, double weight, Object value){
+        weights[index] = weight;
+        if (values != null){
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Starts keeping the weight object of each edge, making the objects for the edges we already have
+     * @param boxer rebuilds the weight objects of the edges we already have from their weights, or null to leave
+     *        them null
+     */
+    void keepValues(DoubleFunction<Number> boxer){
+        if (values != null){
+            return;
+        }
+        values = new Object[ids.length];
+        if (boxer != null){
+            for (int i = 0; i < size; i++){
+                values[i] = boxer.apply(weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes the edge at a position by moving the last edge into its place
+     */
+    void removeAt(int index){
+        size--;
+        ids[index] = ids[size];
+        weights[index] = weights[size];
+        if (values != null){
+            values[index] = values[size];
+            values[size] = null;
+        }
+    }
+
+    /**
+     * Removes every edge whose other end is marked, keeping the rest in order. This is one pass however many edges
+     * go, where removing them one at a time would search the list for each of them
+     * @param marks a mark for every id
+     * @param mark the mark of the ids whose edges should go
+     * @return how many edges were removed
+     */
+    int removeMarked(int[] marks, int mark){
+        int kept = 0;
+        for (int i = 0; i < size; i++){
+            if (marks[ids[i]] == mark){
+                continue;
+            }
+            ids[kept] = ids[i];
+            weights[kept] = weights[i];
+            if (values != null){
+                values[kept] = values[i];
+            }
+            kept++;
+        }
+        if (values != null){
+            Arrays.fill(values, kept, size, null);
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+}
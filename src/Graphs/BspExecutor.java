@@ -0,0 +1,419 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This runs vertex programs over a PartitionedGraph in bulk synchronous supersteps, with one worker thread per shard.
+ *
+ * Every superstep has two phases, and all the shards finish a phase before any of them starts the next one. In the
+ * compute phase, each shard runs the program on its active nodes. A message to a node in the same shard is combined
+ * straight into that node's inbox for the next superstep, and a message to a ghost is put in an outbox for the shard
+ * that owns it. In the exchange phase, each shard empties the outboxes addressed to it into its inboxes. The shards
+ * never touch each other's nodes, only the outboxes between the phases, which is what would go over the wire if the
+ * shards lived in separate processes.
+ *
+ * The graph shouldn't be changed while a program is running.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class BspExecutor<NodeType> {
+
+    /**
+     * The state of one shard while a program runs. Everything is indexed by the ids of the shard's own graph
+     */
+    private class ShardState implements VertexProgram.Context{
+        int index;
+        Graph<NodeType, ?> graph;
+        boolean[] owned;
+        /** The shard that owns each ghost, and the ghost's id there */
+        int[] remoteShard;
+        int[] remoteId;
+
+        double[] values;
+        boolean[] halted;
+        double[] inbox;
+        boolean[] hasMessage;
+        double[] nextInbox;
+        boolean[] nextHasMessage;
+
+        /** The messages for each other shard, as ids in that shard and the messages for them */
+        int[][] outIds;
+        double[][] outMessages;
+        int[] outSizes;
+
+        /** The node the program is running on right now, and what the last superstep aggregated */
+        int current;
+        int superstep;
+        double aggregate;
+        double lastAggregate;
+        boolean currentHalted;
+
+        /**
+         * Runs the program on every active node this shard owns
+         * @return whether any node is still active
+         */
+        boolean compute(){
+            aggregate = 0.0;
+            boolean active = false;
+            for (int id = 0; id < owned.length; id++){
+                if (!owned[id] || (halted[id] && !hasMessage[id])){
+                    continue;
+                }
+                current = id;
+                currentHalted = false;
+                values[id] = program.compute(graph.dataOf(id), values[id], inbox[id], hasMessage[id], this);
+                halted[id] = currentHalted;
+                active |= !currentHalted;
+            }
+            return active;
+        }
+
+        /**
+         * Takes in the messages the other shards have for us, and moves on to the next superstep's inboxes
+         * @return whether any messages are waiting for the next superstep
+         */
+        boolean exchange(){
+            for (ShardState sender : states){
+                if (sender == this){
+                    continue;
+                }
+                int[] ids = sender.outIds[index];
+                double[] messages = sender.outMessages[index];
+                for (int i = 0; i < sender.outSizes[index]; i++){
+                    deliver(ids[i], messages[i]);
+                }
+                sender.outSizes[index] = 0;
+            }
+
+            double[] swap = inbox;
+            inbox = nextInbox;
+            nextInbox = swap;
+            boolean[] swapHas = hasMessage;
+            hasMessage = nextHasMessage;
+            nextHasMessage = swapHas;
+            Arrays.fill(nextHasMessage, false);
+
+            for (int id = 0; id < owned.length; id++){
+                if (hasMessage[id]){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Combines a message into one of our nodes' inboxes for the next superstep
+         */
+        void deliver(int id, double message){
+            if (nextHasMessage[id]){
+                nextInbox[id] = program.combine(nextInbox[id], message);
+            }else{
+                nextInbox[id] = message;
+                nextHasMessage[id] = true;
+            }
+        }
+
+        @Override
+        public int getSuperstep(){
+            return superstep;
+        }
+
+        @Override
+        public int getNodeCount(){
+            return nodeCount;
+        }
+
+        @Override
+        public int getOutDegree(){
+            return graph.outDegree(current);
+        }
+
+        @Override
+        public void sendToNeighbors(double message){
+            int degree = graph.outDegree(current);
+            for (int k = 0; k < degree; k++){
+                int target = graph.outTarget(current, k);
+                if (owned[target]){
+                    deliver(target, message);
+                    continue;
+                }
+                int shard = remoteShard[target];
+                int size = outSizes[shard];
+                if (size == outIds[shard].length){
+                    outIds[shard] = Arrays.copyOf(outIds[shard], Math.max(16, size * 2));
+                    outMessages[shard] = Arrays.copyOf(outMessages[shard], Math.max(16, size * 2));
+                }
+                outIds[shard][size] = remoteId[target];
+                outMessages[shard][size] = message;
+                outSizes[shard]++;
+            }
+        }
+
+        @Override
+        public void aggregate(double value){
+            aggregate += value;
+        }
+
+        @Override
+        public double getAggregate(){
+            return lastAggregate;
+        }
+
+        @Override
+        public void voteToHalt(){
+            currentHalted = true;
+        }
+    }
+
+    private PartitionedGraph<NodeType, ?> graph;
+    private int threadCount;
+
+    /** The program that's running, and the state of every shard for it */
+    private VertexProgram<NodeType> program;
+    private List<ShardState> states;
+    private int nodeCount;
+    private int superstepCount;
+
+    /**
+     * Creates an executor that runs every shard on a thread of its own
+     * @param graph the graph to run programs over
+     */
+    public BspExecutor(PartitionedGraph<NodeType, ?> graph){
+        this(graph, graph.getShardCount());
+    }
+
+    /**
+     * Creates an executor
+     * @param graph the graph to run programs over
+     * @param threadCount how many threads to run the shards on
+     * @throws IllegalArgumentException if threadCount isn't positive
+     */
+    public BspExecutor(PartitionedGraph<NodeType, ?> graph, int threadCount){
+        if (threadCount < 1){
+            throw new IllegalArgumentException("We need at least one thread");
+        }
+        this.graph = graph;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Runs a vertex program until every node has halted with no messages on their way, or it's used up its
+     * supersteps
+     *
+     * @param program the program to run
+     * @param maxSupersteps the most supersteps to run
+     * @return the final value of every node
+     */
+    public synchronized Map<NodeType, Double> run(VertexProgram<NodeType> program, int maxSupersteps){
+        this.program = program;
+        setUp();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try{
+            List<Callable<Boolean>> computeTasks = new ArrayList<>();
+            List<Callable<Boolean>> exchangeTasks = new ArrayList<>();
+            for (ShardState state : states){
+                computeTasks.add(state::compute);
+                exchangeTasks.add(state::exchange);
+            }
+
+            superstepCount = 0;
+            double aggregate = 0.0;
+            while (superstepCount < maxSupersteps){
+                for (ShardState state : states){
+                    state.superstep = superstepCount;
+                    state.lastAggregate = aggregate;
+                }
+                boolean active = anyOf(pool.invokeAll(computeTasks));
+                aggregate = 0.0;
+                for (ShardState state : states){
+                    aggregate += state.aggregate;
+                }
+                boolean messages = anyOf(pool.invokeAll(exchangeTasks));
+                superstepCount++;
+                if (!active && !messages){
+                    break;
+                }
+            }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The program was interrupted", e);
+        }finally{
+            pool.shutdown();
+        }
+
+        Map<NodeType, Double> values = new HashMap<>();
+        for (ShardState state : states){
+            for (int id = 0; id < state.owned.length; id++){
+                if (state.owned[id]){
+                    values.put(state.graph.dataOf(id), state.values[id]);
+                }
+            }
+        }
+        states = null;
+        return values;
+    }
+
+    /**
+     * Returns how many supersteps the last run took
+     */
+    public int getSuperstepCount(){
+        return superstepCount;
+    }
+
+    private static boolean anyOf(List<Future<Boolean>> results) throws InterruptedException{
+        boolean any = false;
+        for (Future<Boolean> result : results){
+            try{
+                any |= result.get();
+            }catch (ExecutionException e){
+                if (e.getCause() instanceof RuntimeException){
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Works out which nodes each shard owns and where its ghosts live, and gives every node its initial value
+     */
+    private void setUp(){
+        int shardCount = graph.getShardCount();
+        states = new ArrayList<>();
+        nodeCount = graph.getNodeCount();
+        for (int s = 0; s < shardCount; s++){
+            ShardState state = new ShardState();
+            state.index = s;
+            state.graph = graph.getShard(s);
+            int idBound = state.graph.getIdBound();
+            state.owned = new boolean[idBound];
+            state.remoteShard = new int[idBound];
+            state.remoteId = new int[idBound];
+            state.values = new double[idBound];
+            state.halted = new boolean[idBound];
+            state.inbox = new double[idBound];
+            state.hasMessage = new boolean[idBound];
+            state.nextInbox = new double[idBound];
+            state.nextHasMessage = new boolean[idBound];
+            state.outIds = new int[shardCount][0];
+            state.outMessages = new double[shardCount][0];
+            state.outSizes = new int[shardCount];
+
+            for (int id = 0; id < idBound; id++){
+                if (!state.graph.containsId(id)){
+                    continue;
+                }
+                NodeType data = state.graph.dataOf(id);
+                int owner = graph.shardOf(data);
+                if (owner == s){
+                    state.owned[id] = true;
+                    state.values[id] = program.initialValue(data);
+                }else{
+                    state.remoteShard[id] = owner;
+                    state.remoteId[id] = graph.getShard(owner).idOf(data);
+                }
+            }
+            states.add(state);
+        }
+    }
+
+    /**
+     * Finds how many edges the shortest path from the start to every node it can reach has, by sending the level
+     * of each newly reached node to its neighbors
+     *
+     * @param start the data item of the node to start from
+     * @return the level of every node the start can reach
+     * @throws java.util.NoSuchElementException if the start node isn't in the graph
+     */
+    public Map<NodeType, Integer> breadthFirstLevels(NodeType start){
+        graph.shardOf(start); // throws if the start isn't in the graph
+        Map<NodeType, Double> values = run(new VertexProgram<NodeType>(){
+            @Override
+            public double initialValue(NodeType node){
+                return node.equals(start) ? 0.0 : Double.POSITIVE_INFINITY;
+            }
+
+            @Override
+            public double combine(double first, double second){
+                return Math.min(first, second);
+            }
+
+            @Override
+            public double compute(NodeType node, double value, double message, boolean hasMessage,
+                    Context context){
+                if (context.getSuperstep() == 0 && value == 0.0){
+                    context.sendToNeighbors(1.0);
+                }else if (hasMessage && message < value){
+                    value = message;
+                    context.sendToNeighbors(value + 1.0);
+                }
+                context.voteToHalt();
+                return value;
+            }
+        }, Integer.MAX_VALUE);
+
+        Map<NodeType, Integer> levels = new HashMap<>();
+        for (Map.Entry<NodeType, Double> entry : values.entrySet()){
+            if (entry.getValue() != Double.POSITIVE_INFINITY){
+                levels.put(entry.getKey(), entry.getValue().intValue());
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Runs PageRank for a fixed number of iterations. Every node sends its rank split evenly along its edges, and
+     * nodes without edges aggregate their rank so it can be spread over every node instead of leaking away
+     *
+     * @param damping the chance of following an edge, between 0 and 1
+     * @param iterations how many iterations to run
+     * @return the rank of every node, adding up to 1
+     * @throws IllegalArgumentException if the damping isn't between 0 and 1
+     */
+    public Map<NodeType, Double> pageRank(double damping, int iterations){
+        if (!(damping >= 0.0 && damping <= 1.0)){
+            throw new IllegalArgumentException("The damping has to be between 0 and 1");
+        }
+        return run(new VertexProgram<NodeType>(){
+            @Override
+            public double initialValue(NodeType node){
+                return 1.0 / graph.getNodeCount();
+            }
+
+            @Override
+            public double combine(double first, double second){
+                return first + second;
+            }
+
+            @Override
+            public double compute(NodeType node, double value, double message, boolean hasMessage,
+                    Context context){
+                int n = context.getNodeCount();
+                if (context.getSuperstep() > 0){
+                    double incoming = hasMessage ? message : 0.0;
+                    value = (1.0 - damping) / n + damping * (incoming + context.getAggregate() / n);
+                }
+                if (context.getSuperstep() == iterations){
+                    context.voteToHalt();
+                }else if (context.getOutDegree() == 0){
+                    context.aggregate(value);
+                }else{
+                    context.sendToNeighbors(value / context.getOutDegree());
+                }
+                return value;
+            }
+        }, iterations + 1);
+    }
+
+}
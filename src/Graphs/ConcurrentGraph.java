@@ -0,0 +1,513 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a thread safe adjacency list graph, for when several threads add and remove nodes and edges at once.
+ *
+ * Every node keeps its outgoing and incoming edges in an edge array that is never changed once other threads can see
+ * it, except for filling in slots past its size. Reads just grab a node's current edge array and go through it, so
+ * they never take a lock and never see an edge half added. Adding an edge writes it into the next free slot and then
+ * publishes a new edge array with one more edge. Removing or reweighting an edge copies the array.
+ *
+ * Writes lock the nodes they change through a fixed set of striped locks. An edge changes two nodes (the outgoing
+ * list of one and the incoming list of the other), so both stripes are locked, always in increasing stripe order so
+ * two writers can never deadlock. Removing a node locks the node and all of its neighbors the same way.
+ *
+ * Reads that look at more than one node, like getAllNodes and freeze, see each node as it was when they got to it,
+ * so they can mix states from before and after a concurrent write. The shortest path searches run through PathSearch
+ * on a CSR snapshot from freeze, which is reused until the next write.
+ */
+public class ConcurrentGraph<NodeType, EdgeType extends Number> implements GraphADT<NodeType, EdgeType>{
+
+    /**
+     * This holds the edges on one side of a node. The slots below size never change, so a reader can use an edge
+     * array without any locking
+     */
+    protected static class EdgeArray{
+        final Object[] nodes;
+        final double[] weights;
+        /** The weight objects, which are only kept for outgoing edges */
+        final Object[] values;
+        final int size;
+
+        EdgeArray(Object[] nodes, double[] weights, Object[] values, int size){
+            this.nodes = nodes;
+            this.weights = weights;
+            this.values = values;
+            this.size = size;
+        }
+
+        /**
+         * Finds the position of the edge to or from a node
+         * @return the index of the edge, or -1 if we don't have it
+         */
+        int indexOf(Object node){
+            for (int i = 0; i < size; i++){
+                if (nodes[i] == node){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns an edge array with the edge added. If our arrays have room, the new edge goes in the next slot and
+         * the arrays are shared, otherwise they're copied into bigger ones
+         */
+        EdgeArray with(Object node, double weight, Object value){
+            Object[] newNodes = nodes;
+            double[] newWeights = weights;
+            Object[] newValues = values;
+            if (size == nodes.length){
+                int capacity = Math.max(4, size * 2);
+                newNodes = Arrays.copyOf(nodes, capacity);
+                newWeights = Arrays.copyOf(weights, capacity);
+                newValues = (values == null) ? null : Arrays.copyOf(values, capacity);
+            }
+            newNodes[size] = node;
+            newWeights[size] = weight;
+            if (newValues != null){
+                newValues[size] = value;
+            }
+            return new EdgeArray(newNodes, newWeights, newValues, size + 1);
+        }
+
+        /**
+         * Returns a copy of this edge array with the weight of one edge changed
+         */
+        EdgeArray withWeight(int index, double weight, Object value){
+            EdgeArray copy = new EdgeArray(nodes.clone(), weights.clone(), (values == null) ? null : values.clone(), size);
+            copy.weights[index] = weight;
+            if (copy.values != null){
+                copy.values[index] = value;
+            }
+            return copy;
+        }
+
+        /**
+         * Returns a copy of this edge array without one edge. The last edge is moved into its place
+         */
+        EdgeArray without(int index){
+            EdgeArray copy = new EdgeArray(nodes.clone(), weights.clone(), (values == null) ? null : values.clone(), size - 1);
+            copy.nodes[index] = nodes[size - 1];
+            copy.weights[index] = weights[size - 1];
+            copy.nodes[size - 1] = null;
+            if (copy.values != null){
+                copy.values[index] = values[size - 1];
+                copy.values[size - 1] = null;
+            }
+            return copy;
+        }
+    }
+
+    private static final EdgeArray NO_OUTGOING_EDGES = new EdgeArray(new Object[0], new double[0], new Object[0], 0);
+    private static final EdgeArray NO_INCOMING_EDGES = new EdgeArray(new Object[0], new double[0], null, 0);
+
+    /**
+     * Node class to represent nodes in this graph
+     */
+    protected class Node{
+        final NodeType data;
+        /** Which of our locks guards this node */
+        final int stripe;
+        volatile EdgeArray outgoing = NO_OUTGOING_EDGES;
+        volatile EdgeArray incoming = NO_INCOMING_EDGES;
+        /** Set once the node has been taken out of the graph, so no more edges can be added to it */
+        volatile boolean removed;
+
+        /**
+         * Creates a new node
+         */
+        public Node(NodeType data, int stripe){
+            this.data = data;
+            this.stripe = stripe;
+        }
+    }
+
+    /**
+     * A CSR snapshot along with the modCount it was taken at
+     */
+    private static class Snapshot<NodeType>{
+        final CsrGraph<NodeType> graph;
+        final int modCount;
+
+        Snapshot(CsrGraph<NodeType> graph, int modCount){
+            this.graph = graph;
+            this.modCount = modCount;
+        }
+    }
+
+    private ConcurrentHashMap<NodeType, Node> nodeMapper = new ConcurrentHashMap<>();
+    private ReentrantLock[] locks;
+    private AtomicInteger nextStripe = new AtomicInteger();
+    private LongAdder edgeCount = new LongAdder();
+
+    /** Bumped after every change, so we know when our snapshot is out of date */
+    private AtomicInteger modCount = new AtomicInteger();
+    private volatile Snapshot<NodeType> snapshot;
+
+    /**
+     * Creates a new concurrent graph with four lock stripes for every processor
+     */
+    public ConcurrentGraph(){
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new concurrent graph
+     * @param stripes how many locks to spread the nodes over, which is rounded up to a power of two. More stripes
+     *        means writers to different nodes are less likely to wait for each other
+     */
+    public ConcurrentGraph(int stripes){
+        if (stripes < 1){
+            throw new IllegalArgumentException("We need at least one lock stripe");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes){
+            size *= 2;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++){
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the node with the given data, adding it to the graph if it isn't there
+     */
+    private Node getOrCreate(NodeType data){
+        if (data == null){
+            throw new NullPointerException("We can't have null nodes");
+        }
+        return nodeMapper.computeIfAbsent(data, key -> new Node(key, nextStripe.getAndIncrement() & (locks.length - 1)));
+    }
+
+    /**
+     * Returns the node at a position of an edge array
+     */
+    @SuppressWarnings("unchecked") // edge arrays are static so they can be shared, but they only ever hold our Nodes
+    private Node nodeAt(EdgeArray edges, int index){
+        return (Node)edges.nodes[index];
+    }
+
+    /**
+     * Locks the stripes of two nodes in increasing order, locking only once if they share a stripe
+     */
+    private void lockBoth(Node first, Node second){
+        int low = Math.min(first.stripe, second.stripe);
+        int high = Math.max(first.stripe, second.stripe);
+        locks[low].lock();
+        if (high != low){
+            locks[high].lock();
+        }
+    }
+
+    private void unlockBoth(Node first, Node second){
+        locks[first.stripe].unlock();
+        if (second.stripe != first.stripe){
+            locks[second.stripe].unlock();
+        }
+    }
+
+    @Override
+    public boolean insertNode(NodeType data) {
+        if (data == null){
+            throw new NullPointerException("We can't have null nodes");
+        }
+        if (nodeMapper.containsKey(data)){
+            return false;
+        }
+        boolean[] created = new boolean[1];
+        nodeMapper.computeIfAbsent(data, key -> {
+            created[0] = true;
+            return new Node(key, nextStripe.getAndIncrement() & (locks.length - 1));
+        });
+        if (created[0]){
+            modCount.incrementAndGet();
+        }
+        return created[0];
+    }
+
+    /**
+     * Removes a node and all of its edges. The node is taken out of the map first, so edges can't be added to it
+     * while we lock its neighbors
+     */
+    @Override
+    public boolean removeNode(NodeType data) {
+
+        Node node = (data == null) ? null : nodeMapper.get(data);
+        if (node == null){
+            return false;
+        }
+
+        locks[node.stripe].lock();
+        try{
+            if (node.removed){ // another thread got here first
+                return false;
+            }
+            node.removed = true;
+            nodeMapper.remove(data, node);
+        }finally{
+            locks[node.stripe].unlock();
+        }
+
+        // no edges can be added to the node anymore, so its edge arrays can only shrink from here on
+        boolean[] stripes = new boolean[locks.length];
+        stripes[node.stripe] = true;
+        EdgeArray outgoing = node.outgoing;
+        EdgeArray incoming = node.incoming;
+        for (int i = 0; i < outgoing.size; i++){
+            stripes[nodeAt(outgoing, i).stripe] = true;
+        }
+        for (int i = 0; i < incoming.size; i++){
+            stripes[nodeAt(incoming, i).stripe] = true;
+        }
+
+        for (int s = 0; s < stripes.length; s++){
+            if (stripes[s]){
+                locks[s].lock();
+            }
+        }
+        try{
+            outgoing = node.outgoing;
+            for (int i = 0; i < outgoing.size; i++){
+                Node target = nodeAt(outgoing, i);
+                if (target != node){
+                    target.incoming = target.incoming.without(target.incoming.indexOf(node));
+                }
+            }
+            incoming = node.incoming;
+            for (int i = 0; i < incoming.size; i++){
+                Node source = nodeAt(incoming, i);
+                if (source != node){
+                    source.outgoing = source.outgoing.without(source.outgoing.indexOf(node));
+                }
+            }
+
+            // a self loop is in both lists, but it's only one edge
+            int selfLoops = (outgoing.indexOf(node) != -1) ? 1 : 0;
+            edgeCount.add(-(outgoing.size + incoming.size - selfLoops));
+            node.outgoing = NO_OUTGOING_EDGES;
+            node.incoming = NO_INCOMING_EDGES;
+            modCount.incrementAndGet();
+        }finally{
+            for (int s = stripes.length - 1; s >= 0; s--){
+                if (stripes[s]){
+                    locks[s].unlock();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsNode(NodeType data) {
+        return data != null && nodeMapper.containsKey(data);
+    }
+
+    /**
+     * Returns a list of the data of all the nodes in the graph. Nodes added or removed while this runs may or may not
+     * be in it
+     */
+    @Override
+    public List<NodeType> getAllNodes() {
+        return new ArrayList<>(nodeMapper.keySet());
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeMapper.size();
+    }
+
+    /**
+     * Inserts a new edge, creating either node if it isn't in the graph yet. If the edge already exists, its weight is
+     * replaced
+     * @return true if the edge could be inserted or updated, or false if the weight is negative (or NaN)
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+
+        if (weight == null){
+            throw new NullPointerException("We can't have null weights");
+        }
+        if (!(weight.doubleValue() >= 0.0)){ // the shortest path searches only work with non negative weights
+            return false;
+        }
+
+        while (true){
+            Node predNode = getOrCreate(pred);
+            Node succNode = getOrCreate(succ);
+
+            lockBoth(predNode, succNode);
+            try{
+                if (predNode.removed || succNode.removed){ // we lost a race with removeNode, so we try again
+                    continue;
+                }
+
+                double doubleWeight = weight.doubleValue();
+                int index = predNode.outgoing.indexOf(succNode);
+                if (index != -1){
+                    predNode.outgoing = predNode.outgoing.withWeight(index, doubleWeight, weight);
+                    succNode.incoming = succNode.incoming.withWeight(succNode.incoming.indexOf(predNode), doubleWeight, null);
+                    modCount.incrementAndGet();
+                    return true;
+                }
+
+                predNode.outgoing = predNode.outgoing.with(succNode, doubleWeight, weight);
+                succNode.incoming = succNode.incoming.with(predNode, doubleWeight, null);
+                edgeCount.increment();
+                modCount.incrementAndGet();
+                return true;
+            }finally{
+                unlockBoth(predNode, succNode);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+
+        Node predNode = (pred == null) ? null : nodeMapper.get(pred);
+        Node succNode = (succ == null) ? null : nodeMapper.get(succ);
+        if (predNode == null || succNode == null){
+            return false;
+        }
+
+        lockBoth(predNode, succNode);
+        try{
+            int index = predNode.outgoing.indexOf(succNode);
+            if (index == -1){
+                return false;
+            }
+            predNode.outgoing = predNode.outgoing.without(index);
+            succNode.incoming = succNode.incoming.without(succNode.incoming.indexOf(predNode));
+            edgeCount.decrement();
+            modCount.incrementAndGet();
+            return true;
+        }finally{
+            unlockBoth(predNode, succNode);
+        }
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ) {
+        Node predNode = (pred == null) ? null : nodeMapper.get(pred);
+        Node succNode = (succ == null) ? null : nodeMapper.get(succ);
+        return predNode != null && succNode != null && predNode.outgoing.indexOf(succNode) != -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public EdgeType getEdge(NodeType pred, NodeType succ) throws NoSuchElementException{
+        Node predNode = (pred == null) ? null : nodeMapper.get(pred);
+        Node succNode = (succ == null) ? null : nodeMapper.get(succ);
+        if (predNode != null && succNode != null){
+            EdgeArray outgoing = predNode.outgoing;
+            int index = outgoing.indexOf(succNode);
+            if (index != -1){
+                return (EdgeType)outgoing.values[index];
+            }
+        }
+        throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return (int)edgeCount.sum();
+    }
+
+    /**
+     * Finds the shortest path on a CSR snapshot of the graph, so the search sees one consistent state of the graph
+     */
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        return freeze().shortestPathData(start, end);
+    }
+
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end) {
+        return freeze().shortestPathCost(start, end);
+    }
+
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic) {
+        return freeze().shortestPath(start, end, heuristic);
+    }
+
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end) {
+        return freeze().bidirectionalShortestPath(start, end);
+    }
+
+    /**
+     * Finds the shortest path costs on a CSR snapshot of the graph, so the parallel searches don't have to deal with
+     * concurrent writes
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+        return freeze().shortestPathCosts(sources, targets);
+    }
+
+    /**
+     * Makes an immutable CSR snapshot of the graph, so the id based algorithms can run on it. Each node's edges are
+     * taken as they are when we get to it. The snapshot is kept and handed out again until the graph changes
+     * @return a CSR snapshot of the graph
+     */
+    public CsrGraph<NodeType> freeze(){
+
+        // we read the modCount first, so a write that lands while we copy makes the snapshot out of date right away
+        int currentModCount = modCount.get();
+        Snapshot<NodeType> cached = snapshot;
+        if (cached != null && cached.modCount == currentModCount){
+            return cached.graph;
+        }
+
+        ArrayList<Node> nodes = new ArrayList<>(nodeMapper.values());
+        HashMap<Node, Integer> ids = new HashMap<>();
+        ArrayList<NodeType> values = new ArrayList<>(nodes.size());
+        for (Node node : nodes){
+            ids.put(node, values.size());
+            values.add(node.data);
+        }
+
+        ArrayList<EdgeArray> edgeArrays = new ArrayList<>(nodes.size());
+        int total = 0;
+        for (Node node : nodes){
+            EdgeArray outgoing = node.outgoing;
+            edgeArrays.add(outgoing);
+            total += outgoing.size;
+        }
+
+        int[] sources = new int[total];
+        int[] targets = new int[total];
+        double[] weights = new double[total];
+        int e = 0;
+        for (int v = 0; v < nodes.size(); v++){
+            EdgeArray outgoing = edgeArrays.get(v);
+            for (int i = 0; i < outgoing.size; i++){
+                Integer target = ids.get(outgoing.nodes[i]);
+                if (target == null){ // it was added after we listed the nodes
+                    continue;
+                }
+                sources[e] = v;
+                targets[e] = target;
+                weights[e++] = outgoing.weights[i];
+            }
+        }
+
+        CsrGraph<NodeType> graph = new CsrGraph<>(values, Arrays.copyOf(sources, e), Arrays.copyOf(targets, e),
+                                                  Arrays.copyOf(weights, e));
+        snapshot = new Snapshot<>(graph, currentModCount);
+        return graph;
+    }
+
+}
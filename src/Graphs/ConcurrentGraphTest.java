@@ -0,0 +1,167 @@
+package Graphs;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ConcurrentGraph, including searches that run while other threads keep changing the graph
+ */
+public class ConcurrentGraphTest{
+
+    /**
+     * This tests inserting, updating and removing edges and nodes on one thread
+     */
+    @Test
+    public void test1(){
+
+        ConcurrentGraph<String, Double> graph = new ConcurrentGraph<>(4);
+
+        // TEST 1: inserting and then updating an edge both return true, and the weight is replaced
+        Assertions.assertTrue(graph.insertEdge("a", "b", 1.0));
+        Assertions.assertTrue(graph.insertEdge("a", "b", 2.0));
+        Assertions.assertEquals(2.0, graph.getEdge("a", "b"));
+        Assertions.assertEquals(1, graph.getEdgeCount());
+        Assertions.assertEquals(2, graph.getNodeCount());
+        Assertions.assertTrue(!graph.insertNode("a"));
+
+        // TEST 2: removing a node takes its edges in both directions with it, counting a self loop once
+        graph.insertEdge("b", "c", 1.0);
+        graph.insertEdge("c", "a", 1.0);
+        graph.insertEdge("b", "b", 1.0);
+        Assertions.assertEquals(4, graph.getEdgeCount());
+        Assertions.assertTrue(graph.removeNode("b"));
+        Assertions.assertTrue(!graph.removeNode("b"));
+        Assertions.assertEquals(1, graph.getEdgeCount());
+        Assertions.assertTrue(!graph.containsEdge("a", "b") && graph.containsEdge("c", "a"));
+
+        // TEST 3: removing edges
+        Assertions.assertTrue(graph.removeEdge("c", "a"));
+        Assertions.assertTrue(!graph.removeEdge("c", "a"));
+        Assertions.assertEquals(0, graph.getEdgeCount());
+        try{
+            graph.getEdge("c", "a");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+
+    }
+
+    /**
+     * This tests the shortest path searches, and that the snapshot they run on is only reused until the graph changes
+     */
+    @Test
+    public void test2(){
+
+        ConcurrentGraph<String, Double> graph = new ConcurrentGraph<>(4);
+        graph.insertEdge("a", "b", 1.0);
+        graph.insertEdge("b", "c", 1.0);
+        graph.insertEdge("a", "c", 5.0);
+
+        // TEST 1: every search finds the same path
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), graph.shortestPathData("a", "c"));
+        Assertions.assertEquals(2.0, graph.shortestPathCost("a", "c"), 0.0);
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), graph.shortestPath("a", "c", (from, to) -> 0.0).getNodes());
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), graph.bidirectionalShortestPath("a", "c").getNodes());
+
+        // TEST 2: the snapshot is handed out again until a write, and the searches see the write
+        CsrGraph<String> snapshot = graph.freeze();
+        Assertions.assertTrue(snapshot == graph.freeze());
+        graph.insertEdge("a", "c", 1.0);
+        Assertions.assertTrue(snapshot != graph.freeze());
+        Assertions.assertEquals(Arrays.asList("a", "c"), graph.shortestPathData("a", "c"));
+
+        // TEST 3: missing nodes and unreachable nodes throw
+        graph.insertNode("d");
+        try{
+            graph.shortestPathData("a", "d");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        try{
+            graph.shortestPathData("a", "e");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+
+    }
+
+    /**
+     * This tests that several threads adding and removing edges at once leave the graph with the right edges
+     */
+    @Test
+    public void test3() throws InterruptedException{
+
+        ConcurrentGraph<Integer, Integer> graph = new ConcurrentGraph<>(8);
+        int threadCount = 4;
+        int nodeCount = 50;
+
+        // every thread adds a complete graph's edges of its own residue class, then removes half of them
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++){
+            int residue = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < nodeCount; i++){
+                    for (int j = 0; j < nodeCount; j++){
+                        if ((i + j) % threadCount == residue){
+                            graph.insertEdge(i, j, i + j);
+                        }
+                    }
+                }
+                for (int i = 0; i < nodeCount; i += 2){
+                    for (int j = 0; j < nodeCount; j++){
+                        if ((i + j) % threadCount == residue){
+                            graph.removeEdge(i, j);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads){
+            thread.join();
+        }
+
+        // TEST 1: the odd rows are all there with their weights and the even rows are gone
+        Assertions.assertEquals(nodeCount * nodeCount / 2, graph.getEdgeCount());
+        for (int i = 0; i < nodeCount; i++){
+            for (int j = 0; j < nodeCount; j++){
+                Assertions.assertEquals(i % 2 == 1, graph.containsEdge(i, j));
+                if (i % 2 == 1){
+                    Assertions.assertEquals(i + j, (int)graph.getEdge(i, j));
+                }
+            }
+        }
+
+        // TEST 2: removing nodes while other threads add edges to them never leaves a dangling edge
+        Thread remover = new Thread(() -> {
+            for (int i = 0; i < nodeCount; i++){
+                graph.removeNode(i);
+            }
+        });
+        Thread adder = new Thread(() -> {
+            for (int i = 0; i < nodeCount; i++){
+                graph.insertEdge(i, (i + 1) % nodeCount, 1);
+            }
+        });
+        remover.start();
+        adder.start();
+        remover.join();
+        adder.join();
+
+        int edges = 0;
+        for (Integer node : graph.getAllNodes()){
+            for (Integer other : graph.getAllNodes()){
+                if (graph.containsEdge(node, other)){
+                    edges++;
+                }
+            }
+        }
+        Assertions.assertEquals(edges, graph.getEdgeCount());
+        Assertions.assertEquals(edges, graph.freeze().getEdgeCount());
+
+    }
+
+}
@@ -0,0 +1,323 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This is an immutable snapshot of a graph in compressed sparse row (CSR) form. Every node gets an int id from 0 to
+ * n-1, and all the edges live in a few flat arrays: the outgoing edges of node v are at indices outOffsets[v] up to
+ * outOffsets[v+1] of outTargets and outWeights, and its incoming edges are stored the same way in the in arrays.
+ * Within a node's range, the edges are sorted by the id of the node on the other end, so edge lookups are a binary
+ * search.
+ *
+ * Going through a node's neighbors is then a sequential scan over primitive arrays instead of chasing one object
+ * per edge, which is much friendlier to the cache and takes a lot less memory. Weights are stored as doubles, so
+ * this graph hands them back as Doubles no matter what edge type the graph it was made from used.
+ *
+ * Since the graph is immutable, all the methods that would change it throw an UnsupportedOperationException.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class CsrGraph<NodeType> implements GraphADT<NodeType, Double>, IndexedGraph<NodeType>{
+
+    private HashMap<NodeType, Integer> ids;
+    private Object[] values;
+
+    int[] outOffsets;
+    int[] outTargets;
+    double[] outWeights;
+    int[] inOffsets;
+    int[] inSources;
+    double[] inWeights;
+
+    PathSearch<NodeType> pathSearch = new PathSearch<>(this);
+
+    /**
+     * Builds a CSR graph from a list of edges. Edge e goes from node sources[e] to node targets[e] with weight
+     * weights[e], where the nodes are given by their index in values. There shouldn't be two edges between the same
+     * pair of nodes in the same direction.
+     *
+     * @param values the data of each node, in id order
+     * @param sources the id of the node each edge comes from
+     * @param targets the id of the node each edge goes to
+     * @param weights the weight of each edge
+     */
+    CsrGraph(List<NodeType> values, int[] sources, int[] targets, double[] weights){
+
+        int n = values.size();
+        this.values = values.toArray();
+        this.ids = new HashMap<>();
+        for (int i = 0; i < n; i++){
+            ids.put(values.get(i), i);
+        }
+
+        int[] edges = new int[sources.length];
+        for (int e = 0; e < edges.length; e++){
+            edges[e] = e;
+        }
+
+        // sorting by target and then stably by source leaves every node's outgoing edges sorted by target
+        int[] bySource = countingSort(sources, countingSort(targets, edges, n), n);
+        outOffsets = offsets(sources, n);
+        outTargets = new int[edges.length];
+        outWeights = new double[edges.length];
+        for (int e = 0; e < edges.length; e++){
+            outTargets[e] = targets[bySource[e]];
+            outWeights[e] = weights[bySource[e]];
+        }
+
+        // and the other way round for the incoming edges
+        int[] byTarget = countingSort(targets, countingSort(sources, edges, n), n);
+        inOffsets = offsets(targets, n);
+        inSources = new int[edges.length];
+        inWeights = new double[edges.length];
+        for (int e = 0; e < edges.length; e++){
+            inSources[e] = sources[byTarget[e]];
+            inWeights[e] = weights[byTarget[e]];
+        }
+
+    }
+
+    /**
+     * Stably sorts a list of edges by the node ids in keys, in O(n + E)
+     * @param keys the node id to sort each edge by
+     * @param edges the edges to sort
+     * @param n the number of nodes
+     * @return the sorted edges
+     */
+    private static int[] countingSort(int[] keys, int[] edges, int n){
+        int[] starts = offsets(keys, n);
+        int[] sorted = new int[edges.length];
+        for (int edge : edges){
+            sorted[starts[keys[edge]]++] = edge;
+        }
+        return sorted;
+    }
+
+    /**
+     * Counts how many edges each node id has in keys, and turns that into the offsets of each node's range
+     * @return an array of n+1 offsets, where node v's range goes from offsets[v] up to offsets[v+1]
+     */
+    private static int[] offsets(int[] keys, int n){
+        int[] offsets = new int[n + 1];
+        for (int key : keys){
+            offsets[key + 1]++;
+        }
+        for (int v = 0; v < n; v++){
+            offsets[v + 1] += offsets[v];
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the number of nodes, since the ids of a CSR graph have no gaps
+     */
+    @Override
+    public int getIdBound(){
+        return values.length;
+    }
+
+    @Override
+    public boolean containsId(int id){
+        return id >= 0 && id < values.length;
+    }
+
+    @Override
+    public int idOf(NodeType data){
+        Integer id = ids.get(data);
+        return (id == null) ? -1 : id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public NodeType dataOf(int id){
+        if (!containsId(id)){
+            throw new NoSuchElementException("No node has id " + id);
+        }
+        return (NodeType)values[id];
+    }
+
+    @Override
+    public int outDegree(int id){
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    @Override
+    public int outTarget(int id, int k){
+        return outTargets[outOffsets[id] + k];
+    }
+
+    @Override
+    public double outWeight(int id, int k){
+        return outWeights[outOffsets[id] + k];
+    }
+
+    @Override
+    public int inDegree(int id){
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    @Override
+    public int inSource(int id, int k){
+        return inSources[inOffsets[id] + k];
+    }
+
+    @Override
+    public double inWeight(int id, int k){
+        return inWeights[inOffsets[id] + k];
+    }
+
+    /**
+     * Finds the index of the edge from pred to succ in the outgoing edge arrays with a binary search over pred's
+     * range, which is sorted by target
+     * @return the index of the edge, or -1 if there's no such edge
+     */
+    private int edgeIndex(int pred, int succ){
+        int low = outOffsets[pred];
+        int high = outOffsets[pred + 1] - 1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            if (outTargets[mid] < succ){
+                low = mid + 1;
+            }else if (outTargets[mid] > succ){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This graph is immutable, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertNode(NodeType data) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    /**
+     * This graph is immutable, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeNode(NodeType data) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean containsNode(NodeType data) {
+        return ids.containsKey(data);
+    }
+
+    /**
+     * Returns a list of the data of all the nodes in the graph, in id order
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<NodeType> getAllNodes() {
+        ArrayList<NodeType> nodes = new ArrayList<>(values.length);
+        for (Object value : values){
+            nodes.add((NodeType)value);
+        }
+        return nodes;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return values.length;
+    }
+
+    /**
+     * This graph is immutable, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    /**
+     * This graph is immutable, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ) {
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        return predId != -1 && succId != -1 && edgeIndex(predId, succId) != -1;
+    }
+
+    @Override
+    public Double getEdge(NodeType pred, NodeType succ) {
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        int edge = (predId == -1 || succId == -1) ? -1 : edgeIndex(predId, succId);
+        if (edge == -1){
+            throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+        }
+        return outWeights[edge];
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        return pathSearch.search(requireId(start), requireId(end), null, true).getNodes();
+    }
+
+    /**
+     * Returns the cost of the shortest path from start to end. This doesn't build the path itself
+     */
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end) {
+        return pathSearch.search(requireId(start), requireId(end), null, false).getCost();
+    }
+
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic) {
+        int startId = requireId(start);
+        int endId = requireId(end);
+        if (heuristic == null){
+            return pathSearch.search(startId, endId, null, true);
+        }
+        return pathSearch.search(startId, endId, id -> heuristic.estimate(dataOf(id), end), true);
+    }
+
+    /**
+     * Finds the shortest path with bidirectional Dijkstra. The forward search scans the outgoing edge arrays and
+     * the backward search scans the incoming edge arrays.
+     */
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end) {
+        return pathSearch.bidirectional(requireId(start), requireId(end));
+    }
+
+    /**
+     * Finds the shortest path costs with a parallel Dijkstra from each source over the CSR arrays
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+        int[] sourceIds = new int[sources.size()];
+        for (int i = 0; i < sourceIds.length; i++){
+            sourceIds[i] = requireId(sources.get(i));
+        }
+        int[] targetIds = new int[targets.size()];
+        for (int j = 0; j < targetIds.length; j++){
+            targetIds[j] = requireId(targets.get(j));
+        }
+        return pathSearch.distanceMatrix(sourceIds, targetIds);
+    }
+
+}
@@ -0,0 +1,466 @@
+package Graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * This reads graphs from DOT files, like the ones Graph.toDotFile writes. The file is streamed through a fixed size
+ * buffer from an NIO channel and parsed a token at a time, with every edge inserted into the graph as soon as it's
+ * read. So the file is never held in memory, and big files load at close to the speed they can be read.
+ *
+ * It reads the parts of the DOT language graphs are made of: the digraph or graph header, node statements like
+ * "a"; and edge statements like "a" -> "b" [length=6]; including chains like a -> b -> c. Edges in an undirected
+ * graph (a -- b) are inserted in both directions. The weight of an edge is taken from a configurable attribute, and
+ * edges without it get a default weight, which an edge [...] statement can change. Other attributes and graph
+ * attribute statements are skipped. Subgraphs and HTML labels aren't supported.
+ */
+public class DotReader {
+
+    /** The token types the tokenizer hands out */
+    private static final int EOF = -1;
+    private static final int ID = 0;
+    private static final int DIRECTED_EDGE = 1;
+    private static final int UNDIRECTED_EDGE = 2;
+    private static final int SYMBOL = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private String weightAttribute;
+    private double defaultWeight;
+
+    // the state of the file we're reading
+    private ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private int peekedByte;
+    private int line;
+
+    // the last token we read, and the one we've put back if any
+    private int tokenType;
+    private char symbol;
+    private byte[] tokenBytes = new byte[64];
+    private int tokenLength;
+    private boolean tokenQuoted;
+    private boolean tokenPutBack;
+
+    /**
+     * Creates a reader that takes edge weights from the length attribute, like Graph.toDotFile writes them, and gives
+     * edges without one a weight of 1
+     */
+    public DotReader(){
+        this("length", 1.0);
+    }
+
+    /**
+     * Creates a reader that takes edge weights from the given attribute
+     * @param weightAttribute the name of the edge attribute that holds the weight, like length or seconds
+     * @param defaultWeight the weight of edges that don't have the attribute
+     * @throws IllegalArgumentException if the default weight is negative
+     */
+    public DotReader(String weightAttribute, double defaultWeight){
+        if (!(defaultWeight >= 0.0)){
+            throw new IllegalArgumentException("Edge weights can't be negative");
+        }
+        this.weightAttribute = weightAttribute;
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Reads a DOT file into a new graph
+     * @param filename the path of the file
+     * @return a graph with the nodes and edges of the file
+     * @throws IOException if the file can't be read or isn't a graph we can parse
+     */
+    public Graph<String, Double> read(String filename) throws IOException{
+        Graph<String, Double> graph = new Graph<>();
+        readInto(Paths.get(filename), graph);
+        return graph;
+    }
+
+    /**
+     * Reads a DOT file, adding its nodes and edges to a graph
+     * @param file the path of the file
+     * @param graph the graph to add to. Edges it already has get the weight from the file
+     * @throws IOException if the file can't be read or isn't a graph we can parse
+     */
+    public void readInto(Path file, Graph<String, Double> graph) throws IOException{
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)){
+            readInto(fileChannel, graph);
+        }
+    }
+
+    /**
+     * Reads a DOT graph from a channel, adding its nodes and edges to a graph. The channel isn't closed
+     * @param channel the channel to read from
+     * @param graph the graph to add to. Edges it already has get the weight from the file
+     * @throws IOException if the channel can't be read or doesn't hold a graph we can parse
+     */
+    public synchronized void readInto(ReadableByteChannel channel, Graph<String, Double> graph) throws IOException{
+
+        this.channel = channel;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip(); // so it starts out empty
+        peekedByte = -2;
+        line = 1;
+        tokenPutBack = false;
+
+        try{
+            boolean directed = readHeader();
+            double edgeWeight = defaultWeight;
+            ArrayList<String> chain = new ArrayList<>();
+
+            while (true){
+
+                int type = nextToken();
+                if (type == EOF){
+                    throw error("The graph is missing its closing }");
+                }
+                if (type == SYMBOL && symbol == '}'){
+                    break;
+                }
+                if (type == SYMBOL && (symbol == ';' || symbol == ',')){
+                    continue;
+                }
+                if (type != ID){
+                    throw error("Expected a node but found " + describeToken());
+                }
+
+                String first = tokenString();
+                boolean keyword = !tokenQuoted && (first.equals("graph") || first.equals("node") || first.equals("edge"));
+                type = nextToken();
+
+                if (type == SYMBOL && symbol == '='){ // a graph attribute like rankdir=LR
+                    expectId();
+                    continue;
+                }
+
+                if (type == SYMBOL && symbol == '[' && keyword){
+                    double weight = readAttributes(Double.NaN);
+                    if (first.equals("edge") && !Double.isNaN(weight)){ // this changes the weight of the edges after it
+                        edgeWeight = weight;
+                    }
+                    continue;
+                }
+
+                chain.clear();
+                chain.add(first);
+                while (type == DIRECTED_EDGE || type == UNDIRECTED_EDGE){
+                    if ((type == DIRECTED_EDGE) != directed){
+                        throw error(directed ? "A digraph can't have -- edges" : "A graph can't have -> edges");
+                    }
+                    chain.add(expectId());
+                    type = nextToken();
+                }
+
+                double weight = edgeWeight;
+                if (type == SYMBOL && symbol == '['){
+                    weight = readAttributes(edgeWeight);
+                    if (!(weight >= 0.0)){
+                        throw error("Edge weights can't be negative");
+                    }
+                }else{
+                    tokenPutBack = true;
+                }
+
+                if (chain.size() == 1){
+                    graph.insertNode(first);
+                }
+                for (int i = 0; i + 1 < chain.size(); i++){
+                    graph.insertEdge(chain.get(i), chain.get(i + 1), weight);
+                    if (!directed){
+                        graph.insertEdge(chain.get(i + 1), chain.get(i), weight);
+                    }
+                }
+            }
+        }finally{
+            this.channel = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Reads the graph header up to and including its {
+     * @return true if it's a digraph, false if it's an undirected graph
+     */
+    private boolean readHeader() throws IOException{
+
+        String kind = expectId();
+        if (kind.equalsIgnoreCase("strict")){
+            kind = expectId();
+        }
+
+        boolean directed;
+        if (kind.equalsIgnoreCase("digraph")){
+            directed = true;
+        }else if (kind.equalsIgnoreCase("graph")){
+            directed = false;
+        }else{
+            throw error("Expected digraph or graph but found " + kind);
+        }
+
+        int type = nextToken();
+        if (type == ID){ // the graph's name
+            type = nextToken();
+        }
+        if (type != SYMBOL || symbol != '{'){
+            throw error("Expected { but found " + describeToken());
+        }
+        return directed;
+    }
+
+    /**
+     * Reads an attribute list after its [, up to and including the ]
+     * @param weight the weight to return if the weight attribute isn't in the list
+     * @return the value of the weight attribute
+     */
+    private double readAttributes(double weight) throws IOException{
+        while (true){
+            int type = nextToken();
+            if (type == SYMBOL && symbol == ']'){
+                return weight;
+            }
+            if (type == SYMBOL && (symbol == ',' || symbol == ';')){
+                continue;
+            }
+            if (type != ID){
+                throw error("Expected an attribute but found " + describeToken());
+            }
+
+            boolean isWeight = tokenEquals(weightAttribute);
+            type = nextToken();
+            if (type != SYMBOL || symbol != '='){
+                tokenPutBack = true; // an attribute without a value
+                continue;
+            }
+
+            String value = expectId();
+            if (isWeight){
+                try{
+                    weight = Double.parseDouble(value);
+                }catch(NumberFormatException e){
+                    throw error("The " + weightAttribute + " attribute isn't a number: " + value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the next token, which has to be an ID
+     * @return the text of the ID
+     */
+    private String expectId() throws IOException{
+        if (nextToken() != ID){
+            throw error("Expected a name but found " + describeToken());
+        }
+        return tokenString();
+    }
+
+    /**
+     * Reads the next token, skipping whitespace and comments
+     * @return the type of the token
+     */
+    private int nextToken() throws IOException{
+
+        if (tokenPutBack){
+            tokenPutBack = false;
+            return tokenType;
+        }
+
+        int b = skipWhitespaceAndComments();
+        tokenLength = 0;
+        tokenQuoted = b == '"';
+
+        if (b == -1){
+            return tokenType = EOF;
+        }
+
+        if (b == '"'){ // a quoted ID, which can have \" and \\ escapes, and backslash newline continuations
+            while (true){
+                b = nextByte();
+                if (b == -1){
+                    throw error("A quoted name is missing its closing quote");
+                }
+                if (b == '"'){
+                    break;
+                }
+                if (b == '\\'){
+                    int escaped = peekByte();
+                    if (escaped == '"' || escaped == '\\'){
+                        b = nextByte();
+                    }else if (escaped == '\n' || escaped == '\r'){ // the line can end in \n, \r\n or just \r
+                        nextByte();
+                        if (escaped == '\r' && peekByte() == '\n'){
+                            nextByte();
+                        }
+                        continue;
+                    }
+                }
+                appendTokenByte(b);
+            }
+            return tokenType = ID;
+        }
+
+        if (b == '-' && (peekByte() == '>' || peekByte() == '-')){
+            return tokenType = (nextByte() == '>') ? DIRECTED_EDGE : UNDIRECTED_EDGE;
+        }
+
+        if (isIdByte(b) || b == '-'){ // a bare ID or number, which is the only place a - can start
+            appendTokenByte(b);
+            boolean number = b == '-' || b == '.' || (b >= '0' && b <= '9');
+            while (true){
+                int next = peekByte();
+                int last = tokenBytes[tokenLength - 1];
+                if (!isIdByte(next) && !(number && next == '-' && (last == 'e' || last == 'E'))){ // like 1.5E-4
+                    break;
+                }
+                appendTokenByte(nextByte());
+            }
+            return tokenType = ID;
+        }
+
+        if (b == '<'){
+            throw error("HTML names aren't supported");
+        }
+        if ("{}[];,=".indexOf(b) == -1){
+            throw error("Unexpected character " + (char)b);
+        }
+        symbol = (char)b;
+        return tokenType = SYMBOL;
+    }
+
+    /**
+     * Skips over whitespace and //, /* and # comments
+     * @return the first byte after them, or -1 at the end of the file
+     */
+    private int skipWhitespaceAndComments() throws IOException{
+        while (true){
+            int b = nextByte();
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n'){
+                continue;
+            }
+            if (b == '#' || (b == '/' && peekByte() == '/')){
+                while (b != '\n' && b != -1){
+                    b = nextByte();
+                }
+                continue;
+            }
+            if (b == '/' && peekByte() == '*'){
+                nextByte();
+                int previous = 0;
+                while (!(previous == '*' && b == '/')){
+                    previous = b;
+                    b = nextByte();
+                    if (b == -1){
+                        throw error("A comment is missing its closing */");
+                    }
+                }
+                continue;
+            }
+            return b;
+        }
+    }
+
+    /**
+     * Checks whether a byte can be part of a bare ID, which is letters, digits, underscores, the parts of a number,
+     * and any non ASCII byte
+     */
+    private static boolean isIdByte(int b){
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '.'
+               || b >= 0x80;
+    }
+
+    /**
+     * Returns the next byte of the file, refilling the buffer from the channel when it runs out
+     * @return the byte from 0 to 255, or -1 at the end of the file
+     */
+    private int nextByte() throws IOException{
+        int b;
+        if (peekedByte != -2){
+            b = peekedByte;
+            peekedByte = -2;
+        }else{
+            b = readByte();
+        }
+        if (b == '\n'){
+            line++;
+        }
+        return b;
+    }
+
+    /**
+     * Returns the next byte of the file without moving past it
+     */
+    private int peekByte() throws IOException{
+        if (peekedByte == -2){
+            peekedByte = readByte();
+        }
+        return peekedByte;
+    }
+
+    private int readByte() throws IOException{
+        if (!buffer.hasRemaining()){
+            buffer.clear();
+            int read = 0;
+            while (read == 0){
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+            if (read == -1){
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private void appendTokenByte(int b){
+        if (tokenLength == tokenBytes.length){
+            byte[] bigger = new byte[tokenLength * 2];
+            System.arraycopy(tokenBytes, 0, bigger, 0, tokenLength);
+            tokenBytes = bigger;
+        }
+        tokenBytes[tokenLength++] = (byte)b;
+    }
+
+    /**
+     * Returns the text of the last ID token
+     */
+    private String tokenString(){
+        return new String(tokenBytes, 0, tokenLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether the last ID token is the given ASCII text, without making a string out of it
+     */
+    private boolean tokenEquals(String text){
+        if (tokenLength != text.length()){
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++){
+            if (tokenBytes[i] != text.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String describeToken(){
+        switch (tokenType){
+            case EOF: return "the end of the file";
+            case ID: return "\"" + tokenString() + "\"";
+            case DIRECTED_EDGE: return "->";
+            case UNDIRECTED_EDGE: return "--";
+            default: return String.valueOf(symbol);
+        }
+    }
+
+    private IOException error(String message){
+        return new IOException("Line " + line + ": " + message);
+    }
+
+}
@@ -0,0 +1,287 @@
+package Graphs;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import Graphs.PathSearch.SearchEntry;
+import Trees.PriorityQueue;
+
+/**
+ * This keeps the shortest path tree from one source node of a graph up to date while the graph changes. It listens
+ * to the graph, and repairs only the part of the tree that a change affects, in the style of Ramalingam and Reps:
+ *
+ * When an edge gets cheaper (or is inserted), the only nodes whose cost can go down are the ones we can reach more
+ * cheaply through it, so we run Dijkstra's algorithm starting from just the edge's successor.
+ *
+ * When an edge gets more expensive (or is removed), it only matters if it's in the tree. Then the affected nodes are
+ * exactly the subtree hanging off it. We forget their costs, give each of them the best cost it can get straight from
+ * an unaffected predecessor, and run Dijkstra's algorithm over just the affected nodes from there.
+ *
+ * So an update costs about as much as the number of nodes whose path actually changes, rather than a whole new
+ * search. The edge weights have to be non negative.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class DynamicShortestPaths<NodeType> implements GraphListener{
+
+    private Graph<NodeType, ?> graph;
+    /** The id of the source node, or -1 if it has been removed from the graph */
+    private int source;
+
+    /** The entry of every id, whose cost is the node's distance from the source and previous is its tree parent */
+    private SearchEntry[] entries = new SearchEntry[0];
+    private boolean[] queued = new boolean[0];
+    /** Used to mark the nodes affected by an update, holding the number of the update that marked them */
+    private int[] marks = new int[0];
+    private int update;
+    private int[] affected = new int[0];
+
+    private PriorityQueue<SearchEntry> queue = new PriorityQueue<>(16, true, true);
+    private int lastUpdateSize;
+
+    /**
+     * Builds the shortest path tree from the source, and starts listening to the graph to keep it up to date
+     *
+     * @param graph the graph to find shortest paths in
+     * @param source the data item of the node the paths start from
+     * @throws NoSuchElementException if the source node isn't in the graph
+     */
+    public DynamicShortestPaths(Graph<NodeType, ?> graph, NodeType source){
+
+        this.graph = graph;
+        this.source = graph.requireId(source);
+
+        ensureCapacity();
+        SearchEntry start = entry(this.source);
+        start.cost = 0.0;
+        enqueue(start);
+        propagate();
+
+        graph.addListener(this);
+    }
+
+    /**
+     * Stops listening to the graph. The distances are then no longer kept up to date
+     */
+    public void close(){
+        graph.removeListener(this);
+    }
+
+    /**
+     * Makes room for every id the graph currently has
+     */
+    private void ensureCapacity(){
+        int idBound = graph.getIdBound();
+        if (entries.length < idBound){
+            int capacity = Math.max(idBound, entries.length * 2);
+            entries = Arrays.copyOf(entries, capacity);
+            queued = Arrays.copyOf(queued, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+        }
+    }
+
+    /**
+     * Returns the entry of an id, creating it as unreachable if it doesn't exist yet
+     */
+    private SearchEntry entry(int id){
+        SearchEntry entry = entries[id];
+        if (entry == null){
+            entry = new SearchEntry(id);
+            entry.cost = Double.POSITIVE_INFINITY;
+            entry.previous = -1;
+            entries[id] = entry;
+        }
+        return entry;
+    }
+
+    private void enqueue(SearchEntry entry){
+        if (queued[entry.id]){
+            queue.decreaseKey(entry);
+        }else{
+            queued[entry.id] = true;
+            queue.enqueue(entry);
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from whatever is in the queue, lowering the cost of every node it finds a cheaper
+     * path to. Nodes whose cost is already right are never queued, so this only goes as far as the change does
+     */
+    private void propagate(){
+        while (!queue.isEmpty()){
+
+            SearchEntry current = queue.poll();
+            queued[current.id] = false;
+            lastUpdateSize++;
+
+            int degree = graph.outDegree(current.id);
+            for (int k = 0; k < degree; k++){
+                SearchEntry entry = entry(graph.outTarget(current.id, k));
+                double newCost = current.cost + graph.outWeight(current.id, k);
+                if (newCost < entry.cost){
+                    entry.cost = newCost;
+                    entry.previous = current.id;
+                    enqueue(entry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void edgeChanged(int pred, int succ, double oldWeight, double newWeight){
+
+        if (source == -1){
+            return;
+        }
+        ensureCapacity();
+        lastUpdateSize = 0;
+
+        if (newWeight < oldWeight){ // the edge got cheaper, so paths through it might too
+            SearchEntry from = entry(pred);
+            SearchEntry to = entry(succ);
+            if (from.cost + newWeight < to.cost){
+                to.cost = from.cost + newWeight;
+                to.previous = pred;
+                enqueue(to);
+                propagate();
+            }
+
+        }else if (newWeight > oldWeight && succ != source && entry(succ).previous == pred){ // a tree edge got worse
+            repairSubtree(succ);
+        }
+    }
+
+    /**
+     * Recomputes the costs of the subtree of the shortest path tree hanging off a node
+     */
+    private void repairSubtree(int root){
+
+        // we find the subtree by following the tree edges down from its root
+        update++;
+        int count = 0;
+        marks[root] = update;
+        affected = (affected.length < entries.length) ? new int[entries.length] : affected;
+        affected[count++] = root;
+        for (int a = 0; a < count; a++){
+            int id = affected[a];
+            int degree = graph.outDegree(id);
+            for (int k = 0; k < degree; k++){
+                int child = graph.outTarget(id, k);
+                if (marks[child] != update && entry(child).previous == id){
+                    marks[child] = update;
+                    affected[count++] = child;
+                }
+            }
+        }
+
+        for (int a = 0; a < count; a++){
+            SearchEntry entry = entries[affected[a]];
+            entry.cost = Double.POSITIVE_INFINITY;
+            entry.previous = -1;
+        }
+
+        // every affected node starts from its best way in from outside the subtree
+        for (int a = 0; a < count; a++){
+            int id = affected[a];
+            SearchEntry entry = entries[id];
+            int degree = graph.inDegree(id);
+            for (int k = 0; k < degree; k++){
+                int pred = graph.inSource(id, k);
+                if (marks[pred] == update){
+                    continue;
+                }
+                double newCost = entry(pred).cost + graph.inWeight(id, k);
+                if (newCost < entry.cost){
+                    entry.cost = newCost;
+                    entry.previous = pred;
+                }
+            }
+            if (entry.cost != Double.POSITIVE_INFINITY){
+                enqueue(entry);
+            }
+        }
+
+        propagate();
+    }
+
+    @Override
+    public void nodeInserted(int id){
+        ensureCapacity();
+        SearchEntry entry = entry(id); // the id might have belonged to a removed node
+        entry.cost = Double.POSITIVE_INFINITY;
+        entry.previous = -1;
+    }
+
+    @Override
+    public void nodeRemoved(int id){
+        if (id == source){ // nothing is reachable anymore
+            source = -1;
+            for (SearchEntry entry : entries){
+                if (entry != null){
+                    entry.cost = Double.POSITIVE_INFINITY;
+                    entry.previous = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Throws an exception if the source has been removed, since there's nothing left to answer then
+     */
+    private void checkSource(){
+        if (source == -1){
+            throw new IllegalStateException("The source node has been removed from the graph");
+        }
+    }
+
+    /**
+     * Returns the data of the source node
+     * @throws IllegalStateException if the source node has been removed from the graph
+     */
+    public NodeType getSource(){
+        checkSource();
+        return graph.dataOf(source);
+    }
+
+    /**
+     * Returns the cost of the shortest path from the source to a node
+     * @param node the data item of the node
+     * @return the cost of the shortest path, or infinity if the node can't be reached
+     * @throws NoSuchElementException if the node isn't in the graph
+     * @throws IllegalStateException if the source node has been removed from the graph
+     */
+    public double distanceTo(NodeType node){
+        checkSource();
+        return entry(graph.requireId(node)).cost;
+    }
+
+    /**
+     * Returns the data of the nodes along the shortest path from the source to a node
+     * @param node the data item of the node the path ends at
+     * @return the data of the nodes along the path, from the source through the given node
+     * @throws NoSuchElementException if the node isn't in the graph or can't be reached
+     * @throws IllegalStateException if the source node has been removed from the graph
+     */
+    public List<NodeType> pathTo(NodeType node){
+        checkSource();
+        int id = graph.requireId(node);
+        if (entry(id).cost == Double.POSITIVE_INFINITY){
+            throw new NoSuchElementException("No path exists between the start and end nodes");
+        }
+        LinkedList<NodeType> path = new LinkedList<>();
+        for (int v = id; v != -1; v = entries[v].previous){
+            path.addFirst(graph.dataOf(v));
+        }
+        return path;
+    }
+
+    /**
+     * Returns how many nodes the last update had to look at again, which shows how local the repair was
+     */
+    public int getLastUpdateSize(){
+        return lastUpdateSize;
+    }
+
+}
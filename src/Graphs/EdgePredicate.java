@@ -0,0 +1,20 @@
+package Graphs;
+
+/**
+ * An edge predicate picks out edges of a graph, like the ones Graph.removeEdges should remove. It's given the weight
+ * as a double, so testing every edge of a big graph doesn't have to box anything.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface EdgePredicate<NodeType> {
+
+    /**
+     * Tests an edge
+     * @param pred the data item of the edge's predecessor node
+     * @param succ the data item of the edge's successor node
+     * @param weight the weight of the edge
+     * @return true if the edge is one we're looking for
+     */
+    public boolean test(NodeType pred, NodeType succ, double weight);
+
+}
@@ -1,84 +1,146 @@
 package Graphs;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import Maps.HashtableMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 
 /**
- * This is an adjacency list representation of a graph. Although we use a hashtable map with chained collision
- * handling to store the adjacent nodes for efficiency
+ * This is an adjacency list representation of a graph. Every node gets a dense int id when it's inserted, and each
+ * node keeps the ids and weights of its outgoing and incoming edges in primitive arrays. So once we've found a node
+ * through our hashtable map, following its edges never has to hash anything again. The id based methods skip the
+ * hashtable map altogether.
+ *
+ * When a node is removed, its id is freed up and given to the next node that gets inserted. The id based methods
+ * have their own names (insertEdgeById and so on), so they can't be mixed up with the data based ones when the
+ * node data is itself a number.
  */
-public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeType, EdgeType>{
+public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeType, EdgeType>, IndexedGraph<NodeType>{
 
     /**
      * Node class to represent nodes in this graph
      */
     protected class Node{
         NodeType data;
+        int id;
 
-
-        /** Stores an edge going out of this node and the node it's going to */
-        HashtableMap<Node, Edge> edgesOutgoing;
-        /** Stores an edge coming into this node and the node it's coming from */
-        HashtableMap<Node, Edge> edgesIncoming;
+        /** Stores the edges going out of this node, by the id of the node they go to. This also keeps the weight objects
+         *  if we can't rebuild them from the doubles */
+        AdjacencyList outgoing;
+        /** Stores the edges coming into this node, by the id of the node they come from */
+        AdjacencyList incoming;
 
         /**
          * Creates a new node
          * @param data
+         * @param id
          */
-        public Node(NodeType data){
+        public Node(NodeType data, int id){
             this.data = data;
-            edgesOutgoing = new HashtableMap<>(5);
-            edgesIncoming = new HashtableMap<>(5);
+            this.id = id;
+            outgoing = new AdjacencyList(4, keepWeightObjects);
+            incoming = new AdjacencyList(4, false);
         }
 
         /**
          * Added a new edge to the edge list. Making sure that the node we're going to also know's we're an incoming node
          * 
-         * @param newAdjacent
+         * @param goingTo
+         * @param weight
+         * @return true if this is a new edge, or false if we already had it and just updated its weight
          */
-        public void addEdge(Node goingTo, EdgeType weight){
-
-            try{ // we see if our edge list already contains this node, and if it does
-                 // we just update the weight with the new weight
-                Edge edge = edgesOutgoing.get(goingTo);
-                edge.weight = weight;
-            }catch(NoSuchElementException e){ // if we don't have this edge, we create this edge and add it to our outgoing edge list
-            // and our goingTo's node ingoing edge list
-                Edge outgoingEdge = new Edge(weight, goingTo);
-                Edge incomingEdge = new Edge(weight, this);
+        public boolean addEdge(Node goingTo, EdgeType weight){
 
-                edgesOutgoing.put(goingTo, outgoingEdge);
-                goingTo.edgesIncoming.put(this, incomingEdge);
+            int index = outgoing.indexOf(goingTo.id);
+            if (index != -1){ // if we already have this edge, we just update the weight with the new weight
+                outgoing.set(index, weight.doubleValue(), weight);
+                goingTo.incoming.set(goingTo.incoming.indexOf(id), weight.doubleValue(), null); // the incoming copy has to stay in line
+                return false;
             }
-        }
 
-    }
+            outgoing.add(goingTo.id, weight.doubleValue(), weight);
+            goingTo.incoming.add(id, weight.doubleValue(), null);
+            return true;
+        }
 
-    /**
-     * This edge class maintains edges for this graph
-     * Whether or not an edge is incoming our outgoing depends on which list it's being stored in
-     */
-    protected class Edge{
-        EdgeType weight;
-        Node connection;
+        /**
+         * Removes the edge going to the given node, along with its incoming copy
+         * @return true if we had the edge
+         */
+        public boolean removeEdge(Node goingTo){
+            int index = outgoing.indexOf(goingTo.id);
+            if (index == -1){
+                return false;
+            }
+            removeEdgeAt(index, goingTo);
+            return true;
+        }
 
         /**
-         * Creates a new edge
-         * @param weight the weight of the edge
-         * @param goingTo the node we're going to
+         * Removes the outgoing edge at a position, which goes to the given node, along with its incoming copy
          */
-        public Edge(EdgeType weight, Node connection){
-            this.weight = weight;
-            this.connection = connection;
+        void removeEdgeAt(int index, Node goingTo){
+            outgoing.removeAt(index);
+            goingTo.incoming.removeAt(goingTo.incoming.indexOf(id));
         }
+
     }
 
+    /** The size of the buffer dot files are written through */
+    private static final int BUFFER_SIZE = 1 << 16;
+
     HashtableMap<NodeType, Node> nodeMapper = new HashtableMap<>();
+    /** Our nodes by id. Ids that have been freed up hold null */
+    ArrayList<Node> nodes = new ArrayList<>();
+    /** A stack of the ids that have been freed up by removing nodes */
+    private int[] freeIds = new int[4];
+    private int freeCount;
+    private int edgeCount;
+
+    /** Rebuilds our weight objects from their doubles, as long as we don't keep the objects themselves */
+    private DoubleFunction<Number> weightBoxer;
+    /** The type of every weight we've been given so far, if they can all be rebuilt by our weight boxer */
+    private Class<?> weightClass;
+    /** Whether the outgoing edge lists keep the weight objects, because we've been given one we can't rebuild */
+    private boolean keepWeightObjects;
+
+    /** This counts the changes made to the graph, so preprocessed indices can tell when they're out of date */
+    int modCount;
+
+    private PathSearch<NodeType> pathSearch = new PathSearch<>(this);
+
+    /** The listeners that hear about every change to the graph */
+    private ArrayList<GraphListener> listeners = new ArrayList<>();
+
+    private LandmarkIndex<NodeType> landmarkIndex;
+    private int landmarkCount;
+    /** The modCount when our landmark index was built */
+    private int landmarkModCount;
 
     /**
      * Inserts a new node into our graph with the given data data
@@ -93,7 +155,20 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
             return false;
         }
 
-        nodeMapper.put(data, new Node(data));
+        Node node;
+        if (freeCount > 0){ // we reuse a freed up id so our ids stay dense
+            node = new Node(data, freeIds[--freeCount]);
+            nodes.set(node.id, node);
+        }else{
+            node = new Node(data, nodes.size());
+            nodes.add(node);
+        }
+
+        nodeMapper.put(data, node);
+        modCount++;
+        for (GraphListener listener : listeners){
+            listener.nodeInserted(node.id);
+        }
         return true;
 
     }
@@ -112,24 +187,203 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
             return false;
         }
 
+        if (!listeners.isEmpty()){ // we take the edges off one at a time, so every removal gets reported
+            AdjacencyList outgoing = nodeToRemove.outgoing;
+            while (outgoing.size > 0){
+                removeEdgeById(nodeToRemove.id, outgoing.ids[outgoing.size - 1]);
+            }
+            AdjacencyList incoming = nodeToRemove.incoming;
+            while (incoming.size > 0){
+                removeEdgeById(incoming.ids[incoming.size - 1], nodeToRemove.id);
+            }
+        }
+
+        int selfLoops = (nodeToRemove.outgoing.indexOf(nodeToRemove.id) == -1) ? 0 : 1; // so we don't count a self loop twice
+        edgeCount -= nodeToRemove.outgoing.size + nodeToRemove.incoming.size - selfLoops;
+
         // First, we remove all the incoming edges of us in the nodes that we're going to
-        
-        List<Node> outgoingConnections = nodeToRemove.edgesOutgoing.getKeys();
-        for (Node node : outgoingConnections){
-            node.edgesIncoming.remove(nodeToRemove);
+        AdjacencyList outgoing = nodeToRemove.outgoing;
+        for (int i = 0; i < outgoing.size; i++){
+            AdjacencyList incoming = nodes.get(outgoing.ids[i]).incoming;
+            incoming.removeAt(incoming.indexOf(nodeToRemove.id));
         }
 
         // And then we remove the outgoing edges of us from nodes that are incoming to us
-        List<Node> incomingConnections = nodeToRemove.edgesIncoming.getKeys();
-        for (Node node : incomingConnections){
-            node.edgesOutgoing.remove(nodeToRemove);
+        AdjacencyList incoming = nodeToRemove.incoming;
+        for (int i = 0; i < incoming.size; i++){
+            Node node = nodes.get(incoming.ids[i]);
+            if (node != nodeToRemove){
+                node.outgoing.removeAt(node.outgoing.indexOf(nodeToRemove.id));
+            }
         }
 
-        nodeMapper.remove(data);
+        freeNode(nodeToRemove);
         return true;
 
     }
 
+    /**
+     * Takes a node whose edges are all gone out of the graph, freeing up its id
+     */
+    private void freeNode(Node node){
+        nodeMapper.remove(node.data);
+        nodes.set(node.id, null);
+        if (freeCount == freeIds.length){
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = node.id;
+        modCount++;
+        for (GraphListener listener : listeners){
+            listener.nodeRemoved(node.id);
+        }
+    }
+
+    /**
+     * Removes a whole batch of nodes and all their edges. Removing nodes one at a time means every neighbor's edge
+     * list gets searched once per removed node it was connected to, which adds up when a big part of the graph goes.
+     * Here we mark the nodes that are going, and then every neighbor that stays drops all its edges to them in a
+     * single pass over its edge lists.
+     * 
+     * @param data the data of the nodes to remove. Data that isn't in the graph is skipped
+     * @return how many nodes were removed
+     */
+    public int removeNodes(Collection<? extends NodeType> data){
+        if (!listeners.isEmpty()){ // every edge removal has to be reported, so we just go one at a time
+            int removed = 0;
+            for (NodeType item : data){
+                if (removeNode(item)){
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        final int removing = 1;
+        final int dirty = 2; // a node that stays, but has edges to or from a node that's going
+        int[] marks = new int[nodes.size()];
+        ArrayList<Node> removed = new ArrayList<>();
+        for (NodeType item : data){
+            int id = idOf(item);
+            if (id != -1 && marks[id] != removing){
+                marks[id] = removing;
+                removed.add(nodes.get(id));
+            }
+        }
+
+        ArrayList<Node> neighbors = new ArrayList<>();
+        for (Node node : removed){
+            // edges between two removed nodes (self loops too) are counted here, through the outgoing side only
+            AdjacencyList outgoing = node.outgoing;
+            edgeCount -= outgoing.size;
+            for (int i = 0; i < outgoing.size; i++){
+                int target = outgoing.ids[i];
+                if (marks[target] == 0){
+                    marks[target] = dirty;
+                    neighbors.add(nodes.get(target));
+                }
+            }
+            AdjacencyList incoming = node.incoming;
+            for (int i = 0; i < incoming.size; i++){
+                int source = incoming.ids[i];
+                if (marks[source] != removing){
+                    edgeCount--;
+                    if (marks[source] == 0){
+                        marks[source] = dirty;
+                        neighbors.add(nodes.get(source));
+                    }
+                }
+            }
+        }
+
+        for (Node node : neighbors){
+            node.outgoing.removeMarked(marks, removing);
+            node.incoming.removeMarked(marks, removing);
+        }
+        for (Node node : removed){
+            freeNode(node);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Removes every edge the predicate picks out, in one pass over the graph. Each node's outgoing list is filtered
+     * in place, and then the removed edges are grouped by successor so each successor's incoming list is filtered
+     * once too, instead of being searched once per removed edge.
+     * 
+     * @param predicate picks out the edges to remove
+     * @return how many edges were removed
+     */
+    public int removeEdges(EdgePredicate<? super NodeType> predicate){
+        int idBound = nodes.size();
+        int[] preds = new int[16];
+        int[] succs = new int[16];
+        int count = 0;
+        int[] marks = new int[idBound];
+
+        for (Node node : nodes){
+            if (node == null){
+                continue;
+            }
+            AdjacencyList outgoing = node.outgoing;
+            int first = count;
+            for (int i = 0; i < outgoing.size; i++){
+                int target = outgoing.ids[i];
+                if (predicate.test(node.data, nodes.get(target).data, outgoing.weights[i])){
+                    if (count == preds.length){
+                        preds = Arrays.copyOf(preds, count * 2);
+                        succs = Arrays.copyOf(succs, count * 2);
+                    }
+                    preds[count] = node.id;
+                    succs[count++] = target;
+                }
+            }
+            if (count > first && listeners.isEmpty()){
+                for (int e = first; e < count; e++){
+                    marks[succs[e]] = node.id + 1;
+                }
+                outgoing.removeMarked(marks, node.id + 1);
+            }
+        }
+
+        if (!listeners.isEmpty()){ // every removal has to be reported, so we go one at a time
+            for (int e = 0; e < count; e++){
+                removeEdgeById(preds[e], succs[e]);
+            }
+            return count;
+        }
+
+        // group the removed edges by successor with a counting sort
+        int[] start = new int[idBound + 1];
+        for (int e = 0; e < count; e++){
+            start[succs[e] + 1]++;
+        }
+        for (int id = 0; id < idBound; id++){
+            start[id + 1] += start[id];
+        }
+        int[] bySucc = new int[count];
+        int[] next = Arrays.copyOf(start, idBound);
+        for (int e = 0; e < count; e++){
+            bySucc[next[succs[e]]++] = preds[e];
+        }
+
+        for (int id = 0; id < idBound; id++){
+            if (start[id] == start[id + 1]){
+                continue;
+            }
+            int mark = idBound + 1 + id; // bigger than any mark the first pass used
+            for (int e = start[id]; e < start[id + 1]; e++){
+                marks[bySucc[e]] = mark;
+            }
+            nodes.get(id).incoming.removeMarked(marks, mark);
+        }
+
+        edgeCount -= count;
+        if (count > 0){
+            modCount++;
+        }
+        return count;
+    }
+
     /**
      * Checks if our graph contains a node with the given data i.e. a node that contains data
      * that .equals() returns true when compared with this data
@@ -142,11 +396,17 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
     }
 
     /**
-     * Returns a list of the data of all the nodes in the graph
+     * Returns a list of the data of all the nodes in the graph, in id order
      */
     @Override
     public List<NodeType> getAllNodes() {
-        return nodeMapper.getKeys();
+        ArrayList<NodeType> values = new ArrayList<>(getNodeCount());
+        for (Node node : nodes){
+            if (node != null){
+                values.add(node.data);
+            }
+        }
+        return values;
     }
 
     /**
@@ -164,10 +424,15 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
      * @param pred
      * @param succ
      * @param weight
-     * @return
+     * @return true if the edge could be inserted or updated, or false if the weight is negative (or NaN), since our
+     *         shortest path searches only work with non negative weights
      */
     @Override
     public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+        if (!(weight.doubleValue() >= 0.0)){
+            return false;
+        }
+
         Node predNode;
         Node succNode;
 
@@ -182,34 +447,125 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
             succNode = nodeMapper.get(succ);
         }
 
-        predNode.addEdge(succNode, weight);
+        addEdge(predNode, succNode, weight);
+        return true;
+    }
 
+    /**
+     * Inserts a new edge between the nodes with the given ids, or updates its weight if it already exists. This
+     * doesn't touch the hashtable map at all
+     * 
+     * @param pred the id of the edge's predecessor node
+     * @param succ the id of the edge's successor node
+     * @param weight the weight of the edge
+     * @return true if the edge could be inserted or updated, or false if either id doesn't belong to a node or the
+     *         weight is negative
+     */
+    public boolean insertEdgeById(int pred, int succ, EdgeType weight) {
+        if (!containsId(pred) || !containsId(succ) || !(weight.doubleValue() >= 0.0)){
+            return false;
+        }
+        addEdge(nodes.get(pred), nodes.get(succ), weight);
         return true;
     }
 
+    /**
+     * Adds or updates the edge between two nodes, keeping our edge count up to date
+     */
+    private void addEdge(Node predNode, Node succNode, EdgeType weight){
+        checkWeightType(weight);
+
+        double oldWeight = Double.POSITIVE_INFINITY;
+        if (!listeners.isEmpty()){
+            int index = predNode.outgoing.indexOf(succNode.id);
+            if (index != -1){
+                oldWeight = predNode.outgoing.weights[index];
+            }
+        }
+
+        if (predNode.addEdge(succNode, weight)){
+            edgeCount++;
+        }
+        modCount++;
+        for (GraphListener listener : listeners){
+            listener.edgeChanged(predNode.id, succNode.id, oldWeight, weight.doubleValue());
+        }
+    }
+
+    /**
+     * Makes sure we'll be able to hand back a weight exactly as we were given it. Weights are only kept as doubles
+     * while they're all of one of the standard boxed number types, since those can be rebuilt from the double. The
+     * first time we get a weight that can't be (like a BigDecimal, a mix of types, or a long too big for a double),
+     * every outgoing edge list starts keeping its weight objects
+     */
+    private void checkWeightType(EdgeType weight){
+        if (keepWeightObjects){
+            return;
+        }
+
+        if (weightClass == null){ // this is our first weight
+            weightBoxer = WeightBoxing.boxerFor(weight);
+            weightClass = (weightBoxer == null) ? null : weight.getClass();
+        }
+        boolean exact = weight.getClass() == weightClass
+                        && !(weight instanceof Long && (long)weight.doubleValue() != weight.longValue());
+        if (exact){
+            return;
+        }
+
+        keepWeightObjects = true;
+        for (Node node : nodes){
+            if (node != null){
+                node.outgoing.keepValues(weightBoxer);
+            }
+        }
+        weightBoxer = null;
+        weightClass = null;
+    }
+
+    /**
+     * Returns the weight object of an outgoing edge, rebuilding it from the double if we don't keep the objects
+     */
+    @SuppressWarnings("unchecked")
+    private EdgeType weightAt(AdjacencyList outgoing, int index){
+        if (keepWeightObjects){
+            return (EdgeType)outgoing.values[index];
+        }
+        return (EdgeType)weightBoxer.apply(outgoing.weights[index]);
+    }
+
     @Override
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        Node predNode;
-        Node succNode;
-        
-        // we get our predecessor and successor nodes
-        try{
-            predNode = nodeMapper.get(pred);
-            succNode = nodeMapper.get(succ);
-        }catch(NoSuchElementException e){
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        return predId != -1 && succId != -1 && removeEdgeById(predId, succId);
+    }
+
+    /**
+     * Removes the edge between the nodes with the given ids
+     * 
+     * @param pred the id of the edge's predecessor node
+     * @param succ the id of the edge's successor node
+     * @return true if the edge could be removed, or false if there's no such edge
+     */
+    public boolean removeEdgeById(int pred, int succ) {
+        if (!containsId(pred) || !containsId(succ)){
             return false;
         }
-
-        try{
-            predNode.edgesOutgoing.remove(succNode);
-        }catch(NoSuchElementException e){ // if our predecessor doesn't contain the successor as an outgoing edge, we can't remove it
+        AdjacencyList outgoing = nodes.get(pred).outgoing;
+        int index = outgoing.indexOf(succ);
+        if (index == -1){
             return false;
         }
+        double oldWeight = outgoing.weights[index];
 
-        // if we do have the edge, we don't forget to remove the incoming edge from the successor node
-        succNode.edgesIncoming.remove(predNode);
+        nodes.get(pred).removeEdgeAt(index, nodes.get(succ));
+        edgeCount--;
+        modCount++;
+        for (GraphListener listener : listeners){
+            listener.edgeChanged(pred, succ, oldWeight, Double.POSITIVE_INFINITY);
+        }
         return true;
-
     }
 
     /**
@@ -217,22 +573,16 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
      */
     @Override
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        try{
-            Node predNode = nodeMapper.get(pred);
-            Node succNode = nodeMapper.get(succ);
-
-            for (Node node : predNode.edgesOutgoing.getKeys()){
-                if (node.equals(succNode)){
-                    return true;
-                }
-            }
-
-            return false;
-
-        }catch(NoSuchElementException e){
-            return false;
-        }
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        return predId != -1 && succId != -1 && containsEdgeById(predId, succId);
+    }
 
+    /**
+     * Checks if the graph contains an edge between the nodes with the given ids
+     */
+    public boolean containsEdgeById(int pred, int succ) {
+        return containsId(pred) && containsId(succ) && nodes.get(pred).outgoing.indexOf(succ) != -1;
     }
 
 
@@ -249,81 +599,423 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
         Node predNode = nodeMapper.get(pred); // if the nodes aren't in our graph, then this method naturally throws a NoSuchElementException
         Node succNode = nodeMapper.get(succ);
 
-        for (Node node : predNode.edgesOutgoing.getKeys()){
-            if (node.equals(succNode)){
-                return predNode.edgesOutgoing.get(succNode).weight;
-            }
+        int index = predNode.outgoing.indexOf(succNode.id);
+        if (index == -1){
+            throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
         }
+        return weightAt(predNode.outgoing, index);
+    }
 
-        throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+    /**
+     * Gets the weight of the edge between the nodes with the given ids as a double
+     * 
+     * @return the weight of the edge between the given nodes if it exists
+     * @throws NoSuchElementException if the ids don't belong to nodes or no edge exists between them
+     */
+    public double getEdgeWeightById(int pred, int succ) throws NoSuchElementException{
+        int index = containsId(pred) && containsId(succ) ? nodes.get(pred).outgoing.indexOf(succ) : -1;
+        if (index == -1){
+            throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+        }
+        return nodes.get(pred).outgoing.weights[index];
     }
 
     /**
-     * This gets the total number of edges in the graph
-     * Because of my implementation, this has complexity O(N), where N is the number of nodes
+     * This gets the total number of edges in the graph. We keep count as edges are added and removed
      */
     @Override
     public int getEdgeCount() {
-        int count = 0;
+        return edgeCount;
+    }
+
+    @Override
+    public int getIdBound() {
+        return nodes.size();
+    }
 
-        for (NodeType nodeVal : nodeMapper.getKeys()){
-            Node node = nodeMapper.get(nodeVal);
-            count += node.edgesOutgoing.getSize();
+    @Override
+    public boolean containsId(int id) {
+        return id >= 0 && id < nodes.size() && nodes.get(id) != null;
+    }
+
+    /**
+     * Returns the id of the node with the given data
+     * @return the id of the node, or -1 if it isn't in the graph
+     */
+    @Override
+    public int idOf(NodeType data) {
+        try{
+            return nodeMapper.get(data).id;
+        }catch(NoSuchElementException e){
+            return -1;
         }
+    }
 
-        return count;
+    @Override
+    public NodeType dataOf(int id) {
+        if (!containsId(id)){
+            throw new NoSuchElementException("No node has id " + id);
+        }
+        return nodes.get(id).data;
     }
 
+    @Override
+    public int outDegree(int id) {
+        return nodes.get(id).outgoing.size;
+    }
 
+    @Override
+    public int outTarget(int id, int k) {
+        return nodes.get(id).outgoing.ids[k];
+    }
 
+    @Override
+    public double outWeight(int id, int k) {
+        return nodes.get(id).outgoing.weights[k];
+    }
+
+    @Override
+    public int inDegree(int id) {
+        return nodes.get(id).incoming.size;
+    }
+
+    @Override
+    public int inSource(int id, int k) {
+        return nodes.get(id).incoming.ids[k];
+    }
+
+    @Override
+    public double inWeight(int id, int k) {
+        return nodes.get(id).incoming.weights[k];
+    }
+
+    /**
+     * Returns the data of the nodes along the shortest path from start to end, using Dijkstra's algorithm
+     * 
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
     @Override
     public List<NodeType> shortestPathData(NodeType start, NodeType end) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'shortestPathData'");
+        return pathSearch.search(requireId(start), requireId(end), null, true).getNodes();
     }
 
+    /**
+     * Returns the cost of the shortest path from start to end, using Dijkstra's algorithm. This doesn't keep track
+     * of the path itself, so it's a bit cheaper than shortestPathData
+     * 
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
     @Override
     public double shortestPathCost(NodeType start, NodeType end) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'shortestPathCost'");
+        return pathSearch.search(requireId(start), requireId(end), null, false).getCost();
+    }
+
+    /**
+     * Finds the shortest path from start to end using A* search with the given heuristic
+     * 
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic) {
+        int startId = requireId(start);
+        int endId = requireId(end);
+        if (heuristic == null){
+            return pathSearch.search(startId, endId, null, true);
+        }
+        return pathSearch.search(startId, endId, id -> heuristic.estimate(nodes.get(id).data, end), true);
+    }
+
+    /**
+     * Finds the shortest path from start to end using bidirectional Dijkstra, with the forward search following our
+     * outgoing edges and the backward search following our incoming edges
+     * 
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end) {
+        return pathSearch.bidirectional(requireId(start), requireId(end));
+    }
+
+    /**
+     * Finds the shortest path costs with a parallel Dijkstra from each source over our primitive adjacency arrays
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+        int[] sourceIds = new int[sources.size()];
+        for (int i = 0; i < sourceIds.length; i++){
+            sourceIds[i] = requireId(sources.get(i));
+        }
+        int[] targetIds = new int[targets.size()];
+        for (int j = 0; j < targetIds.length; j++){
+            targetIds[j] = requireId(targets.get(j));
+        }
+        return pathSearch.distanceMatrix(sourceIds, targetIds);
+    }
+
+    /**
+     * Builds a landmark index over the graph for answering lots of shortest path queries quickly. Once this has
+     * been called, landmarkShortestPath answers queries with the index. If the graph changes afterwards, the index
+     * is rebuilt from scratch the next time we query it.
+     * 
+     * @param landmarkCount how many landmarks to use. A handful (8 to 16) is usually enough
+     * @throws IllegalArgumentException if landmarkCount isn't positive
+     */
+    public void preprocessLandmarks(int landmarkCount){
+        if (landmarkCount < 1){
+            throw new IllegalArgumentException("We need at least one landmark");
+        }
+        this.landmarkCount = landmarkCount;
+        buildLandmarkIndex();
+    }
+
+    /**
+     * Finds the shortest path from start to end with the landmark index built by preprocessLandmarks. If the graph
+     * has changed since the index was built, it gets rebuilt first.
+     * 
+     * @return the nodes along the shortest path, its cost, and the number of nodes settled to find it
+     * @throws IllegalStateException if preprocessLandmarks hasn't been called
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
+    public ShortestPath<NodeType> landmarkShortestPath(NodeType start, NodeType end){
+        return getLandmarkIndex().shortestPath(start, end);
+    }
+
+    /**
+     * Returns the landmark index built by preprocessLandmarks, rebuilding it first if the graph has changed
+     * 
+     * @return an up to date landmark index for this graph
+     * @throws IllegalStateException if preprocessLandmarks hasn't been called
+     */
+    public LandmarkIndex<NodeType> getLandmarkIndex(){
+        if (landmarkIndex == null){
+            throw new IllegalStateException("Landmarks haven't been preprocessed");
+        }
+        if (landmarkModCount != modCount){
+            buildLandmarkIndex();
+        }
+        return landmarkIndex;
+    }
+
+    /**
+     * Builds our landmark index over a CSR snapshot of the graph
+     */
+    private void buildLandmarkIndex(){
+        landmarkIndex = new LandmarkIndex<>(freeze(), landmarkCount);
+        landmarkModCount = modCount;
+    }
+
+    /**
+     * Makes an immutable compressed sparse row (CSR) snapshot of the graph. The snapshot stores the nodes by int id
+     * and the edges in flat primitive arrays, so it's a lot smaller and much faster to traverse than this graph.
+     * If ids have been freed up by removing nodes, the snapshot closes the gaps, so its ids can differ from ours.
+     * Changes made to this graph afterwards don't show up in the snapshot.
+     * 
+     * @return a CSR snapshot of the graph
+     */
+    public CsrGraph<NodeType> freeze(){
+
+        ArrayList<NodeType> values = new ArrayList<>(getNodeCount());
+        int[] snapshotIds = new int[nodes.size()];
+        for (Node node : nodes){
+            if (node != null){
+                snapshotIds[node.id] = values.size();
+                values.add(node.data);
+            }
+        }
+
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        int e = 0;
+        for (Node node : nodes){
+            if (node == null){
+                continue;
+            }
+            AdjacencyList outgoing = node.outgoing;
+            for (int i = 0; i < outgoing.size; i++){
+                sources[e] = snapshotIds[node.id];
+                targets[e] = snapshotIds[outgoing.ids[i]];
+                weights[e++] = outgoing.weights[i];
+            }
+        }
+
+        return new CsrGraph<>(values, sources, targets, weights);
+    }
+
+    /**
+     * Finds a minimum spanning forest of the graph with Kruskal's algorithm, ignoring the direction of the edges.
+     * GraphStructure also has Prim's algorithm, and gives the forest as plain id pairs.
+     *
+     * @return a graph with all our nodes and just the edges of the forest
+     */
+    public Graph<NodeType, Double> minimumSpanningForest(){
+        GraphStructure<NodeType> structure = new GraphStructure<>(this);
+        return structure.toGraph(structure.kruskalById());
+    }
+
+    /**
+     * Returns the data of the nodes in a topological order
+     *
+     * @return the data of all the nodes, where every edge goes from an earlier node to a later one
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public List<NodeType> topologicalOrder(){
+        return new GraphStructure<>(this).topologicalOrder();
+    }
+
+    /**
+     * Finds the most expensive path from start to end, which the graph has to be acyclic for
+     *
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public ShortestPath<NodeType> longestPath(NodeType start, NodeType end){
+        return new GraphStructure<>(this).longestPath(start, end);
+    }
+
+    /**
+     * Registers a listener that will hear about every change made to the graph from now on
+     * @param listener the listener to add
+     */
+    public void addListener(GraphListener listener){
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from hearing about changes to the graph
+     * @param listener the listener to remove
+     * @return true if it was registered
+     */
+    public boolean removeListener(GraphListener listener){
+        return listeners.remove(listener);
     }
 
     /**
      * Creates a dot file in the current working directory of the current state of the graph
      */
     public void toDotFile(String filename) throws IOException{
+        toDotFile(filename, false);
+    }
+
+    /**
+     * Creates a dot file in the current working directory of the current state of the graph, streaming it out through
+     * a buffer so the file is never built up in memory
+     * @param filename the name of the file, without the .dot extension, which is also used as the graph's name
+     * @param gzip if true, the file is gzip compressed and gets a .dot.gz extension
+     */
+    public void toDotFile(String filename, boolean gzip) throws IOException{
+        try (OutputStream out = gzip ? new GZIPOutputStream(new FileOutputStream(filename + ".dot.gz"), BUFFER_SIZE)
+                                     : new FileOutputStream(filename + ".dot")){
+            writeDot(out, filename);
+        }
+    }
+
+    /**
+     * Writes the current state of the graph in the dot format to an output stream, as UTF-8. The stream is flushed
+     * but not closed
+     * @param out the stream to write to
+     * @param graphName the name the graph gets in the file
+     */
+    public void writeDot(OutputStream out, String graphName) throws IOException{
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writeDot(writer, graphName);
+    }
+
+    /**
+     * Writes the current state of the graph in the dot format to a writer. Every node with edges going out of it gets
+     * one line per edge, with the weight in a length attribute, and nodes without any edges get a line of their own.
+     * We go straight through our node and adjacency arrays, so this is O(V+E). The writer is flushed but not closed
+     * @param writer the writer to write to
+     * @param graphName the name the graph gets in the file
+     */
+    public void writeDot(Writer writer, String graphName) throws IOException{
+
+        BufferedWriter out = (writer instanceof BufferedWriter) ? (BufferedWriter)writer
+                                                                : new BufferedWriter(writer, BUFFER_SIZE);
+
+        out.write("digraph ");
+        writeDotId(out, graphName);
+        out.write(" {\n");
 
-        String fileString = "digraph " + filename + " {\n";
-        for (NodeType nodeVal : nodeMapper.getKeys()){
-            
-            Node node = nodeMapper.get(nodeVal);
-            List<Node> edgeNodes = node.edgesOutgoing.getKeys();
+        for (Node node : nodes){
 
-            if (edgeNodes.isEmpty()){
-                if (node.edgesIncoming.getSize() == 0){ // so if the node has no outgoing or incoming edges, it has to just be stated
-                                                        // as an isolated node in the graph file
-                    fileString += String.format("   \"%s\";\n", node.data);
+            if (node == null){
+                continue;
+            }
+
+            if (node.outgoing.size == 0){
+                if (node.incoming.size == 0){ // so if the node has no outgoing or incoming edges, it has to just be stated
+                                              // as an isolated node in the graph file
+                    out.write("   ");
+                    writeDotId(out, node.data);
+                    out.write(";\n");
                 }
             }else{
-                for (Node edgeNode : edgeNodes){
-                    Edge edge = node.edgesOutgoing.get(edgeNode);
-                    fileString += String.format("   \"%s\" -> \"%s\" [length=%.3f];\n", node.data, edgeNode.data, edge.weight.doubleValue());
+                for (int i = 0; i < node.outgoing.size; i++){
+                    out.write("   ");
+                    writeDotId(out, node.data);
+                    out.write(" -> ");
+                    writeDotId(out, nodes.get(node.outgoing.ids[i]).data);
+                    out.write(" [length=");
+                    writeDotWeight(out, weightAt(node.outgoing, i));
+                    out.write("];\n");
                 }
             }
 
         }
 
-        fileString += "}";
-
+        out.write("}\n");
+        out.flush();
+    }
 
+    /**
+     * Writes a weight as a dot numeral, with all the digits it was given to us with. Numerals can't have exponents, so
+     * something like 1.0E-5 is written out in full as 0.000010, and infinity, which has no numeral, is quoted
+     */
+    private static void writeDotWeight(Writer out, Number weight) throws IOException{
+        double value = weight.doubleValue();
+        if (!Double.isFinite(value)){
+            writeDotId(out, weight);
+            return;
+        }
+        BigDecimal decimal;
         try{
-            PrintWriter pw = new PrintWriter(filename+".dot");
-            pw.println(fileString);
-            pw.close();
-        }catch(IOException e){
-            throw new IOException("File already exists");
+            decimal = new BigDecimal(weight.toString());
+        }catch(NumberFormatException e){ // a Number type that doesn't print itself as a plain number
+            decimal = BigDecimal.valueOf(value);
+        }
+        out.write(decimal.toPlainString());
+    }
+
+    /**
+     * Writes something as a quoted dot ID, escaping any quotes and backslashes in it
+     */
+    private static void writeDotId(Writer out, Object data) throws IOException{
+        String id = String.valueOf(data);
+        out.write('"');
+        if (id.indexOf('"') == -1 && id.indexOf('\\') == -1){
+            out.write(id);
+        }else{
+            for (int c = 0; c < id.length(); c++){
+                char character = id.charAt(c);
+                if (character == '"' || character == '\\'){
+                    out.write('\\');
+                }
+                out.write(character);
+            }
         }
+        out.write('"');
+    }
 
+    /**
+     * Reads a graph from a dot file, taking the edge weights from the given attribute
+     * @param filename the path of the dot file
+     * @param weightAttribute the edge attribute that holds the weights, like length or seconds
+     * @return a new graph with the nodes and edges of the file
+     * @throws IOException if the file can't be read or parsed
+     */
+    public static Graph<String, Double> fromDotFile(String filename, String weightAttribute) throws IOException{
+        return new DotReader(weightAttribute, 1.0).read(filename);
     }
 
     public static void main(String[] args) {
@@ -376,6 +1068,302 @@ public class Graph<NodeType, EdgeType extends Number> implements GraphADT<NodeTy
 
     }
 
+    /**
+     * This tests that a graph written out as a dot file reads back in with the same nodes, edges and weights
+     */
+    @Test
+    public void test1() throws IOException{
+
+        Graph<String, Double> graph = new Graph<>();
+        graph.insertEdge("a", "b", 1.5);
+        graph.insertEdge("b", "a", 2.0);
+        graph.insertEdge("say \"hi\"", "back\\slash", 0.25);
+        graph.insertEdge("b", "b", 3.0);
+        graph.insertEdge("b", "tiny", 1e-5);
+        graph.insertEdge("tiny", "huge", 1.5e7);
+        graph.insertEdge("huge", "far", Double.POSITIVE_INFINITY);
+        graph.insertNode("alone");
+
+        // TEST 1: writing to a stream and reading it back
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        graph.writeDot(out, "test");
+        String text = out.toString("UTF-8");
+        Assertions.assertTrue(text.contains("[length=0.000010]") && text.contains("[length=15000000]"));
+        Assertions.assertTrue(text.contains("[length=\"Infinity\"]") && !text.contains("E7") && !text.contains("E-5"));
+        Graph<String, Double> copy = new Graph<>();
+        new DotReader().readInto(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), copy);
+        assertSameGraph(graph, copy);
+
+        // TEST 2: the gzipped file reads back the same way
+        File file = File.createTempFile("graph", "");
+        File gzipped = new File(file.getPath() + ".dot.gz");
+        try{
+            graph.toDotFile(file.getPath(), true);
+            copy = new Graph<>();
+            try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(gzipped))){
+                new DotReader().readInto(Channels.newChannel(in), copy);
+            }
+            assertSameGraph(graph, copy);
+        }finally{
+            file.delete();
+            gzipped.delete();
+        }
+
+    }
+
+    /**
+     * This tests that a graph written to a binary graph file maps back in with the same nodes, edges and paths, and
+     * that files with a broken header are turned down
+     */
+    @Test
+    public void test2() throws IOException{
+
+        Graph<String, Double> graph = new Graph<>();
+        Random rand = new Random(7);
+        for (int i = 0; i < 200; i++){
+            graph.insertEdge("node " + rand.nextInt(60), "n\u00f6de " + rand.nextInt(60), (double)rand.nextInt(20));
+        }
+        graph.insertNode("alone");
+
+        File file = File.createTempFile("graph", ".bin");
+        try{
+            MappedGraph.write(graph.freeze(), file.getPath());
+            MappedGraph mapped = MappedGraph.open(file.getPath());
+
+            // TEST 1: the same nodes, edges and weights, and nothing extra
+            Assertions.assertEquals(graph.getNodeCount(), mapped.getNodeCount());
+            Assertions.assertEquals(graph.getEdgeCount(), mapped.getEdgeCount());
+            Assertions.assertTrue(!mapped.containsNode("missing"));
+            for (String pred : graph.getAllNodes()){
+                Assertions.assertTrue(mapped.containsNode(pred), "Missing node " + pred);
+                for (String succ : graph.getAllNodes()){
+                    Assertions.assertEquals(graph.containsEdge(pred, succ), mapped.containsEdge(pred, succ));
+                    if (graph.containsEdge(pred, succ)){
+                        Assertions.assertEquals(graph.getEdge(pred, succ), mapped.getEdge(pred, succ));
+                    }
+                }
+            }
+
+            // TEST 2: the shortest paths cost the same
+            List<String> nodes = graph.getAllNodes();
+            double[][] expected = graph.shortestPathCosts(nodes, nodes);
+            double[][] actual = mapped.shortestPathCosts(nodes, nodes);
+            for (int i = 0; i < nodes.size(); i++){
+                Assertions.assertTrue(Arrays.equals(expected[i], actual[i]));
+            }
+
+            // TEST 3: negative counts and bad hash table sizes are IOExceptions
+            byte[] original = Files.readAllBytes(file.toPath());
+            int[][] corruptions = {{8, -1}, {12, -1}, {16, -1}, {20, 0}, {20, 3}, {20, 1 << 20}};
+            for (int[] corruption : corruptions){
+                byte[] bytes = original.clone();
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(corruption[0], corruption[1]);
+                Files.write(file.toPath(), bytes);
+                try{
+                    MappedGraph.open(file.getPath());
+                    Assertions.fail("Opened a file with " + corruption[1] + " at byte " + corruption[0]);
+                }catch(IOException e){
+                }
+            }
+        }finally{
+            file.delete();
+        }
+
+    }
+
+    /**
+     * This tests that DynamicShortestPaths keeps its distances the same as a fresh search would find them, while
+     * edges are inserted, reweighted and removed and nodes come and go
+     */
+    @Test
+    public void test3(){
+
+        Graph<Integer, Double> graph = new Graph<>();
+        Random rand = new Random(11);
+        int nodeCount = 40;
+        for (int i = 0; i < 120; i++){
+            graph.insertEdge(rand.nextInt(nodeCount), rand.nextInt(nodeCount), (double)rand.nextInt(10));
+        }
+        graph.insertNode(0);
+        DynamicShortestPaths<Integer> paths = new DynamicShortestPaths<>(graph, 0);
+
+        // TEST 1: after every random change, every distance and path matches a fresh search
+        for (int step = 0; step < 300; step++){
+            int pred = rand.nextInt(nodeCount);
+            int succ = rand.nextInt(nodeCount);
+            int change = rand.nextInt(10);
+            if (change < 6){
+                graph.insertEdge(pred, succ, (double)rand.nextInt(10));
+            }else if (change < 9){
+                graph.removeEdge(pred, succ);
+            }else if (pred != 0){
+                graph.removeNode(pred);
+            }
+
+            for (Integer node : graph.getAllNodes()){
+                double expected;
+                try{
+                    expected = graph.shortestPathCost(0, node);
+                }catch(NoSuchElementException e){
+                    expected = Double.POSITIVE_INFINITY;
+                }
+                Assertions.assertEquals(expected, paths.distanceTo(node), 1e-9);
+                if (expected != Double.POSITIVE_INFINITY){
+                    List<Integer> path = paths.pathTo(node);
+                    double cost = 0.0;
+                    for (int i = 0; i + 1 < path.size(); i++){
+                        cost += graph.getEdge(path.get(i), path.get(i + 1));
+                    }
+                    Assertions.assertEquals(expected, cost, 1e-9);
+                }
+            }
+        }
+
+        // TEST 2: removing the source leaves nothing to ask about
+        graph.removeNode(0);
+        try{
+            paths.getSource();
+            Assertions.fail();
+        }catch(IllegalStateException e){
+        }
+        paths.close();
+
+    }
+
+    /**
+     * This tests that negative weights are turned down, since none of the shortest path searches work with them
+     */
+    @Test
+    public void test4(){
+
+        Graph<String, Double> graph = new Graph<>();
+        graph.insertEdge("a", "b", 1.0);
+
+        // TEST 1: a negative or NaN weight neither adds the edge nor its nodes, and doesn't change an edge we have
+        Assertions.assertTrue(!graph.insertEdge("a", "c", -1.0));
+        Assertions.assertTrue(!graph.insertEdge("a", "b", Double.NaN));
+        Assertions.assertTrue(!graph.insertEdgeById(graph.idOf("b"), graph.idOf("a"), -0.5));
+        Assertions.assertTrue(!graph.containsNode("c") && !graph.containsEdge("b", "a"));
+        Assertions.assertEquals(1.0, graph.getEdge("a", "b"));
+        Assertions.assertEquals(1, graph.getEdgeCount());
+
+        // TEST 2: zero weights are fine
+        Assertions.assertTrue(graph.insertEdge("b", "a", 0.0));
+        Assertions.assertEquals(0.0, graph.shortestPathCost("b", "a"), 0.0);
+
+    }
+
+    /**
+     * This tests that removing a batch of nodes or edges leaves the same graph as removing them one at a time, both
+     * down the batched path and down the one at a time path a registered listener forces
+     */
+    @Test
+    public void test5(){
+
+        Random rand = new Random(47);
+        for (int round = 0; round < 5; round++){
+            Graph<String, Double> batched = new Graph<>();
+            Graph<String, Double> listened = new Graph<>();
+            Graph<String, Double> single = new Graph<>();
+            List<Graph<String, Double>> graphs = Arrays.asList(batched, listened, single);
+            for (int e = 0; e < 600; e++){
+                String pred = "n" + rand.nextInt(80);
+                String succ = (rand.nextInt(10) == 0) ? pred : "n" + rand.nextInt(80);
+                double weight = rand.nextInt(6);
+                for (Graph<String, Double> graph : graphs){
+                    graph.insertEdge(pred, succ, weight);
+                }
+            }
+
+            // the listener counts every removal it hears about
+            int[] heard = new int[2];
+            listened.addListener(new GraphListener(){
+                @Override
+                public void edgeChanged(int pred, int succ, double oldWeight, double newWeight){
+                    if (newWeight == Double.POSITIVE_INFINITY){
+                        heard[0]++;
+                    }
+                }
+
+                @Override
+                public void nodeRemoved(int id){
+                    heard[1]++;
+                }
+            });
+
+            // TEST 1: removing a batch of nodes, with repeats and a node we don't have, matches removing them singly
+            List<String> doomed = new ArrayList<>();
+            for (int i = 0; i < 30; i++){
+                doomed.add("n" + rand.nextInt(80));
+            }
+            doomed.add("missing");
+            int edgesBefore = listened.getEdgeCount();
+            int removed = 0;
+            for (String node : doomed){
+                if (single.removeNode(node)){
+                    removed++;
+                }
+            }
+            Assertions.assertEquals(removed, batched.removeNodes(doomed));
+            Assertions.assertEquals(removed, listened.removeNodes(doomed));
+            Assertions.assertEquals(removed, heard[1]);
+            Assertions.assertEquals(edgesBefore - listened.getEdgeCount(), heard[0]);
+            assertSameGraph(single, batched);
+            assertSameGraph(single, listened);
+
+            // TEST 2: removing the edges a predicate picks out, self loops included, matches removing them singly
+            EdgePredicate<String> light = (pred, succ, weight) -> weight < 2.0 || pred.equals(succ);
+            heard[0] = 0;
+            removed = 0;
+            for (String pred : single.getAllNodes()){
+                for (String succ : single.getAllNodes()){
+                    if (single.containsEdge(pred, succ) && light.test(pred, succ, single.getEdge(pred, succ))
+                            && single.removeEdge(pred, succ)){
+                        removed++;
+                    }
+                }
+            }
+            Assertions.assertEquals(removed, batched.removeEdges(light));
+            Assertions.assertEquals(removed, listened.removeEdges(light));
+            Assertions.assertEquals(removed, heard[0]);
+            assertSameGraph(single, batched);
+            assertSameGraph(single, listened);
+
+            // TEST 3: the freed ids get used again without any stale edges showing up
+            for (int e = 0; e < 100; e++){
+                String pred = "m" + rand.nextInt(20);
+                String succ = "n" + rand.nextInt(80);
+                for (Graph<String, Double> graph : graphs){
+                    graph.insertEdge(pred, succ, 1.0);
+                    graph.insertEdge(succ, pred, 2.0);
+                }
+            }
+            assertSameGraph(single, batched);
+            assertSameGraph(single, listened);
+            Assertions.assertEquals(single.shortestPathCost("m0", "m1"), batched.shortestPathCost("m0", "m1"), 0.0);
+        }
+
+    }
+
+    /**
+     * Checks that two graphs have the same nodes, and the same edges with the same weights
+     */
+    private static void assertSameGraph(Graph<String, Double> expected, Graph<String, Double> actual){
+        Assertions.assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        Assertions.assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (String pred : expected.getAllNodes()){
+            Assertions.assertTrue(actual.containsNode(pred), "Missing node " + pred);
+            Assertions.assertEquals(expected.outDegree(expected.idOf(pred)), actual.outDegree(actual.idOf(pred)));
+            Assertions.assertEquals(expected.inDegree(expected.idOf(pred)), actual.inDegree(actual.idOf(pred)));
+            for (String succ : expected.getAllNodes()){
+                Assertions.assertEquals(expected.containsEdge(pred, succ), actual.containsEdge(pred, succ));
+                if (expected.containsEdge(pred, succ)){
+                    Assertions.assertEquals(expected.getEdge(pred, succ), actual.getEdge(pred, succ));
+                }
+            }
+        }
+    }
+
     
     
 }
@@ -139,5 +139,61 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    *         start node to the end node
    */
   public double shortestPathCost(NodeType start, NodeType end);
+
+  /**
+   * Finds the shortest path from the node with the start value to the node 
+   * with the end value using A* search. The heuristic is used to explore the 
+   * nodes that seem closest to the end first, so for point-to-point queries 
+   * this usually settles far fewer nodes than Dijkstra's algorithm. The 
+   * heuristic has to be admissible (never overestimate the remaining cost) 
+   * for the returned path to be the shortest one.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @param heuristic estimates the remaining cost from a node to the end 
+   *        node, or null to search without a heuristic (plain Dijkstra)
+   * @return the nodes along the shortest path, its cost, and the number of
+   *         nodes settled to find it
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   */
+  public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, 
+      Heuristic<NodeType> heuristic);
+
+  /**
+   * Finds the shortest path from the node with the start value to the node 
+   * with the end value using bidirectional Dijkstra. One search runs forward
+   * from the start node along outgoing edges, and another runs backward from
+   * the end node along incoming edges, until the two meet. This needs no 
+   * heuristic and typically settles far fewer nodes than a single search.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @return the nodes along the shortest path, its cost, and the number of
+   *         nodes settled to find it
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   */
+  public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, 
+      NodeType end);
+
+  /**
+   * Returns the cost of the shortest path from each of the source nodes to
+   * each of the target nodes, all in one batch. This is much faster than
+   * asking for each pair on its own, since each source is only searched from
+   * once, and the work is spread over all the processors.
+   *
+   * @param sources the data items of the nodes the paths start at
+   * @param targets the data items of the nodes the paths end at
+   * @return a matrix where [i][j] is the cost of the shortest path from 
+   *         sources.get(i) to targets.get(j), or infinity if there is no
+   *         directed path between them
+   * @throws NoSuchElementException if any of the source or target nodes 
+   *         cannot be found in the graph
+   */
+  public double[][] shortestPathCosts(List<NodeType> sources, 
+      List<NodeType> targets);
     
 }
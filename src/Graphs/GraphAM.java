@@ -1,43 +1,278 @@
 package Graphs;
 
 import java.lang.reflect.Array;
-import java.text.CollationElementIterator;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleFunction;
+import java.util.stream.IntStream;
+
+import Trees.PriorityQueue;
 
 /**
- * This is an adjacency matrix implemention of a weighted directed graph
+ * This is an adjacency matrix implemention of a weighted directed graph. Every node gets an index, and the weight of
+ * the edge from node i to node j is stored at i*capacity + j of one flat row-major array of doubles. Whether that
+ * edge exists is kept in a separate bitset, where every row of the matrix starts on a new 64 bit word. A hash map
+ * from node data to index means finding a node is O(1), so every edge operation is O(1).
+ *
+ * When the matrix fills up, its capacity is doubled. When a node is removed, the last node is moved into its index,
+ * so the indices always go from 0 to getNodeCount()-1.
+ *
+ * Because the edges are a bitset, some algorithms can work on 64 possible edges at a time with plain word operations:
+ * breadth first search, transitive closure and triangle counting. These split their rows across the common fork join
+ * pool, so large dense graphs use every core.
  */
 @SuppressWarnings("unchecked")
 public class GraphAM<NodeType, EdgeType extends Number> implements GraphADT<NodeType, EdgeType>{
 
-    private Map<Integer, NodeType> valueMap;
+    /**
+     * This is an entry in a shortest path search for a node at a given index of the matrix. Entries are compared
+     * by their cost plus the heuristic's estimate, so they can be stored in a priority queue
+     */
+    protected class PathEntry implements Comparable<PathEntry>{
+        int index;
+        double cost;
+        double estimate;
+        PathEntry previous;
+        boolean settled;
+
+        /**
+         * Creates a new path entry
+         * @param index the index of the node this entry is for
+         * @param cost the cost of the cheapest path to the node found so far
+         * @param previous the entry we came from
+         */
+        public PathEntry(int index, double cost, PathEntry previous){
+            this.index = index;
+            this.cost = cost;
+            this.previous = previous;
+        }
+
+        @Override
+        public int compareTo(PathEntry other){
+            return Double.compare(cost + estimate, other.cost + other.estimate);
+        }
+    }
+
+    /**
+     * This task ORs together the rows of the given nodes, which gives us every node they have an edge to
+     */
+    protected class RowUnion extends RecursiveTask<long[]>{
+        private static final long serialVersionUID = 1L;
+
+        int[] rows;
+        int from;
+        int to;
+
+        /**
+         * Creates a task that unions rows[from] up to rows[to]
+         */
+        public RowUnion(int[] rows, int from, int to){
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute(){
+            if (to - from > PARALLEL_THRESHOLD){ // we split our rows in two and union the halves
+                int mid = (from + to) >>> 1;
+                RowUnion left = new RowUnion(rows, from, mid);
+                left.fork();
+                long[] union = new RowUnion(rows, mid, to).compute();
+                long[] leftUnion = left.join();
+                for (int w = 0; w < wordsPerRow; w++){
+                    union[w] |= leftUnion[w];
+                }
+                return union;
+            }
+
+            long[] union = new long[wordsPerRow];
+            for (int r = from; r < to; r++){
+                int rowStart = rows[r] * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++){
+                    union[w] |= present[rowStart + w];
+                }
+            }
+            return union;
+        }
+    }
+
+    /**
+     * This task runs one step k of Warshall's algorithm over a range of rows of a reachability bitset: every row
+     * that can reach k can also reach everything k can reach
+     */
+    protected class ClosureStep extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        long[] reach;
+        int k;
+        int from;
+        int to;
+
+        /**
+         * Creates a task for step k over rows from up to to
+         */
+        public ClosureStep(long[] reach, int k, int from, int to){
+            this.reach = reach;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from > PARALLEL_THRESHOLD){
+                int mid = (from + to) >>> 1;
+                invokeAll(new ClosureStep(reach, k, from, mid), new ClosureStep(reach, k, mid, to));
+                return;
+            }
+
+            int kStart = k * wordsPerRow;
+            for (int i = from; i < to; i++){
+                int rowStart = i * wordsPerRow;
+                if (i == k || (reach[rowStart + (k >>> 6)] & (1L << k)) == 0){
+                    continue;
+                }
+                for (int w = 0; w < wordsPerRow; w++){
+                    reach[rowStart + w] |= reach[kStart + w];
+                }
+            }
+        }
+    }
+
+    /**
+     * This task counts the triangles whose smallest node is in a range of rows of an undirected (symmetric)
+     * adjacency bitset. For each edge (i, j) with i < j, the common neighbors of i and j that are bigger than j
+     * each close one triangle, so every triangle is counted exactly once.
+     */
+    protected class TriangleCount extends RecursiveTask<Long>{
+        private static final long serialVersionUID = 1L;
+
+        long[] undirected;
+        int from;
+        int to;
+
+        /**
+         * Creates a task for the rows from up to to
+         */
+        public TriangleCount(long[] undirected, int from, int to){
+            this.undirected = undirected;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute(){
+            if (to - from > PARALLEL_THRESHOLD){
+                int mid = (from + to) >>> 1;
+                TriangleCount left = new TriangleCount(undirected, from, mid);
+                left.fork();
+                long right = new TriangleCount(undirected, mid, to).compute();
+                return right + left.join();
+            }
+
+            long count = 0;
+            for (int i = from; i < to; i++){
+                int iStart = i * wordsPerRow;
+                for (int w = (i + 1) >>> 6; w < wordsPerRow; w++){
+
+                    long bits = undirected[iStart + w];
+                    if (w == (i + 1) >>> 6){
+                        bits &= -1L << ((i + 1) & 63); // only neighbors j > i
+                    }
+
+                    for (; bits != 0; bits &= bits - 1){
+                        int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        int jStart = j * wordsPerRow;
+                        int firstWord = (j + 1) >>> 6;
+                        if (firstWord < wordsPerRow){ // common neighbors k > j
+                            count += Long.bitCount(undirected[iStart + firstWord] & undirected[jStart + firstWord]
+                                                   & (-1L << ((j + 1) & 63)));
+                        }
+                        for (int x = firstWord + 1; x < wordsPerRow; x++){
+                            count += Long.bitCount(undirected[iStart + x] & undirected[jStart + x]);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    /** The side of the tiles our blocked Floyd-Warshall works on, so three tiles of doubles fit in the L1/L2 cache */
+    private static final int BLOCK_SIZE = 64;
+
+    /** How many rows a fork join task handles on its own before it splits its work in two */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /** The biggest capacity we can have before capacity*capacity doesn't fit in an int */
+    private static final int MAX_CAPACITY = 46340;
+
+    private HashMap<NodeType, Integer> indexMap;
+    private Object[] values;
     private int numNodes;
-    private Object[][] adjMatrix;
+    private int edgeCount;
+
+    /** How many nodes the matrix has room for */
+    int capacity;
+    /** How many 64 bit words each row of the presence bitset takes */
+    int wordsPerRow;
+    /** The weight of the edge from i to j is at i*capacity + j */
+    double[] weights;
+    /** Bit j of row i (word i*wordsPerRow + j/64) is set when there is an edge from i to j */
+    long[] present;
+
+    /** Rebuilds weight objects from our doubles, worked out from the first weight we're given */
+    private DoubleFunction<Number> weightBoxer;
+    /** The type of every weight we've been given so far, if they can all be rebuilt by our weight boxer */
+    private Class<?> weightClass;
+    /** The weight objects themselves, only kept when the weight type can't be rebuilt from a double */
+    private Object[] weightObjects;
 
     /**
      * Creates a new adjacency matrix graph
      */
     public GraphAM(){
+        this(10);
+    }
+
+    /**
+     * Creates a new adjacency matrix graph with room for the given number of nodes before it has to grow
+     * @param capacity
+     */
+    public GraphAM(int capacity){
+        if (capacity < 1 || capacity > MAX_CAPACITY){
+            throw new IllegalArgumentException("Capacity has to be between 1 and " + MAX_CAPACITY);
+        }
         numNodes = 0;
-        valueMap = new HashMap<>();
-        adjMatrix = new Object[10][10];
+        indexMap = new HashMap<>();
+        values = new Object[capacity];
+        this.capacity = capacity;
+        wordsPerRow = (capacity + 63) / 64;
+        weights = new double[capacity * capacity];
+        present = new long[capacity * wordsPerRow];
     }
 
     @Override
     public boolean insertNode(NodeType data) {
-        if (isFull()){
-            increaseAMSize();
+        if (data == null){
+            throw new NullPointerException("We can't have null nodes");
         }
-        if (valueMap.containsValue(data)){
+        if (indexMap.containsKey(data)){
             return false;
         }
+        if (isFull()){
+            increaseAMSize();
+        }
 
-        valueMap.put(numNodes++, data);
+        values[numNodes] = data;
+        indexMap.put(data, numNodes++);
         return true;
     }
 
@@ -46,52 +281,149 @@ public class GraphAM<NodeType, EdgeType extends Number> implements GraphADT<Node
      * @return
      */
     private boolean isFull(){
-        return (numNodes == adjMatrix.length); 
+        return (numNodes == capacity);
     }
 
     /**
-     * This method increases the adjacency matrix size, copying over its elements
+     * This method doubles the adjacency matrix size, copying over its rows. Since we only grow when we're full,
+     * inserting nodes is amortized O(n) for an n node graph, which is as cheap as clearing its row and column
      */
     private void increaseAMSize(){
 
-        int newSize = adjMatrix.length*2;
-        Object[][] newMatrix = new Object[newSize][newSize]; // creating the new matrix of double the size
+        if (capacity == MAX_CAPACITY){
+            throw new IllegalStateException("Adjacency matrix can't hold more than " + MAX_CAPACITY + " nodes");
+        }
+
+        int newCapacity = (int)Math.min((long)capacity * 2, MAX_CAPACITY);
+        int newWordsPerRow = (newCapacity + 63) / 64;
+        double[] newWeights = new double[newCapacity * newCapacity];
+        long[] newPresent = new long[newCapacity * newWordsPerRow];
+        Object[] newWeightObjects = (weightObjects == null) ? null : new Object[newCapacity * newCapacity];
+
+        for (int i = 0; i < numNodes; i++){ // copying over the rows from the previous matrix
+            System.arraycopy(weights, i * capacity, newWeights, i * newCapacity, numNodes);
+            System.arraycopy(present, i * wordsPerRow, newPresent, i * newWordsPerRow, wordsPerRow);
+            if (weightObjects != null){
+                System.arraycopy(weightObjects, i * capacity, newWeightObjects, i * newCapacity, numNodes);
+            }
+        }
+
+        Object[] newValues = new Object[newCapacity];
+        System.arraycopy(values, 0, newValues, 0, numNodes);
 
-        for (int i = 0; i < adjMatrix.length; i++){ // copying over the values from the previous matrixs
-            newMatrix[i] = Arrays.copyOf(adjMatrix[i], newSize);
+        values = newValues;
+        weights = newWeights;
+        present = newPresent;
+        weightObjects = newWeightObjects;
+        capacity = newCapacity;
+        wordsPerRow = newWordsPerRow;
+    }
+
+    /**
+     * Checks if there's an edge from the node at index i to the node at index j
+     */
+    boolean hasEdge(int i, int j){
+        return (present[i * wordsPerRow + (j >>> 6)] & (1L << j)) != 0;
+    }
+
+    /**
+     * Sets or clears the presence bit of the edge from i to j
+     */
+    private void setEdgeBit(int i, int j, boolean exists){
+        if (exists){
+            present[i * wordsPerRow + (j >>> 6)] |= (1L << j);
+        }else{
+            present[i * wordsPerRow + (j >>> 6)] &= ~(1L << j);
         }
+    }
 
-        adjMatrix = newMatrix;
+    /**
+     * Copies the edge from (fromRow, fromCol) into (toRow, toCol) of the matrix
+     */
+    private void copyCell(int fromRow, int fromCol, int toRow, int toCol){
+        setEdgeBit(toRow, toCol, hasEdge(fromRow, fromCol));
+        weights[toRow * capacity + toCol] = weights[fromRow * capacity + fromCol];
+        if (weightObjects != null){
+            weightObjects[toRow * capacity + toCol] = weightObjects[fromRow * capacity + fromCol];
+        }
     }
 
+    /**
+     * Removes a node and all its edges. To keep our indices dense, the last node is moved into the removed node's
+     * row and column, so this is O(n)
+     */
     @Override
     public boolean removeNode(NodeType data) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'removeNode'");
+        if (data == null){
+            throw new NullPointerException("We can't have null nodes");
+        }
+        Integer removed = indexMap.remove(data);
+        if (removed == null){
+            return false;
+        }
+
+        int index = removed;
+        int last = numNodes - 1;
+
+        edgeCount -= rowEdgeCount(index);
+        for (int i = 0; i < numNodes; i++){
+            if (i != index && hasEdge(i, index)){
+                edgeCount--;
+            }
+        }
+
+        if (index != last){
+            // we first move the last row up, and then the last column over. The cell (last, last) ends up at
+            // (index, index) because the row move puts it at (index, last) first
+            for (int j = 0; j < numNodes; j++){
+                copyCell(last, j, index, j);
+            }
+            for (int i = 0; i < numNodes; i++){
+                copyCell(i, last, i, index);
+            }
+            values[index] = values[last];
+            indexMap.put((NodeType)values[index], index);
+        }
+
+        // the last row and column are now free, so we clear them for the next node we insert
+        for (int w = 0; w < wordsPerRow; w++){
+            present[last * wordsPerRow + w] = 0L;
+        }
+        for (int i = 0; i < numNodes; i++){
+            setEdgeBit(i, last, false);
+            if (weightObjects != null){
+                weightObjects[i * capacity + last] = null;
+                weightObjects[last * capacity + i] = null;
+            }
+        }
+
+        values[last] = null;
+        numNodes--;
+        return true;
     }
 
-    @Override
-    public boolean containsNode(NodeType data) {
-        return valueMap.containsValue(data);
+    /**
+     * Counts the edges going out of the node at an index by counting the set bits in its row
+     */
+    int rowEdgeCount(int index){
+        return rowEdgeCount(present, index);
     }
 
     @Override
-    public List<NodeType> getAllNodes() {
-        return collectionToList(valueMap.values());
+    public boolean containsNode(NodeType data) {
+        return data != null && indexMap.containsKey(data);
     }
 
     /**
-     * This turns a collection over elements of type S into a list
-     * @param <S>
-     * @param collection
-     * @return a list of the elements in a collection
+     * Returns a list of the data of all the nodes in the graph, in index order
      */
-    private <S> List<S> collectionToList(Collection<S> collection){
-        ArrayList<S> coolArrayList = new ArrayList<>();
-        for (S element : collection){
-            coolArrayList.add(element);
+    @Override
+    public List<NodeType> getAllNodes() {
+        ArrayList<NodeType> nodes = new ArrayList<>(numNodes);
+        for (int i = 0; i < numNodes; i++){
+            nodes.add((NodeType)values[i]);
         }
-        return coolArrayList;
+        return nodes;
     }
 
     @Override
@@ -104,61 +436,511 @@ public class GraphAM<NodeType, EdgeType extends Number> implements GraphADT<Node
         if (weight.doubleValue() < 0.0){
             return false;
         }
-        int predIndex = indexOfValue(succ);
+        int predIndex = indexOfValue(pred);
+        int succIndex = indexOfValue(succ);
+        if (predIndex == -1 || succIndex == -1){
+            return false;
+        }
+
+        checkWeightType(weight);
+
+        if (!hasEdge(predIndex, succIndex)){
+            edgeCount++;
+            setEdgeBit(predIndex, succIndex, true);
+        }
+        weights[predIndex * capacity + succIndex] = weight.doubleValue();
+        if (weightObjects != null){
+            weightObjects[predIndex * capacity + succIndex] = weight;
+        }
         return true;
     }
 
-    private int indexOfValue(NodeType value){
-        Collection<Integer> keySet = valueMap.keySet();
-        for (Integer i : keySet){
-            if (valueMap.get(i).equals(value)){
-                return i;
+    /**
+     * Makes sure we'll be able to hand back a weight exactly as we were given it. Weights are only kept as doubles
+     * while they're all of one of the standard boxed number types. The first time we get one that can't be rebuilt
+     * from its double (a type like BigDecimal, a mix of types, or a long too big for a double), we start keeping the
+     * weight objects, boxing the weights of the edges we already have
+     */
+    private void checkWeightType(EdgeType weight){
+        if (weightObjects != null){
+            return;
+        }
+
+        if (weightClass == null){ // this is our first weight
+            weightBoxer = WeightBoxing.boxerFor(weight);
+            weightClass = (weightBoxer == null) ? null : weight.getClass();
+        }
+        boolean exact = weight.getClass() == weightClass
+                        && !(weight instanceof Long && (long)weight.doubleValue() != weight.longValue());
+        if (exact){
+            return;
+        }
+
+        weightObjects = new Object[capacity * capacity];
+        if (weightBoxer != null){
+            for (int i = 0; i < numNodes; i++){
+                for (int j = 0; j < numNodes; j++){
+                    if (hasEdge(i, j)){
+                        weightObjects[i * capacity + j] = weightBoxer.apply(weights[i * capacity + j]);
+                    }
+                }
             }
         }
-        return -1;
+        weightBoxer = null;
+        weightClass = null;
+    }
+
+    /**
+     * Returns the index of a node in the matrix
+     * @return the index of the node, or -1 if it isn't in the graph
+     */
+    private int indexOfValue(NodeType value){
+        Integer index = (value == null) ? null : indexMap.get(value);
+        return (index == null) ? -1 : index;
     }
 
     @Override
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'removeEdge'");
+        int predIndex = indexOfValue(pred);
+        int succIndex = indexOfValue(succ);
+        if (predIndex == -1 || succIndex == -1 || !hasEdge(predIndex, succIndex)){
+            return false;
+        }
+        setEdgeBit(predIndex, succIndex, false);
+        if (weightObjects != null){
+            weightObjects[predIndex * capacity + succIndex] = null;
+        }
+        edgeCount--;
+        return true;
     }
 
     @Override
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'containsEdge'");
+        int predIndex = indexOfValue(pred);
+        int succIndex = indexOfValue(succ);
+        return predIndex != -1 && succIndex != -1 && hasEdge(predIndex, succIndex);
     }
 
     @Override
     public EdgeType getEdge(NodeType pred, NodeType succ) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getEdge'");
+        int predIndex = indexOfValue(pred);
+        int succIndex = indexOfValue(succ);
+        if (predIndex == -1 || succIndex == -1 || !hasEdge(predIndex, succIndex)){
+            throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+        }
+        if (weightObjects != null){
+            return (EdgeType)weightObjects[predIndex * capacity + succIndex];
+        }
+        return (EdgeType)weightBoxer.apply(weights[predIndex * capacity + succIndex]);
     }
 
+    /**
+     * Returns the number of edges. We keep count as edges are added and removed, so this is O(1)
+     */
     @Override
     public int getEdgeCount() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getEdgeCount'");
+        return edgeCount;
+    }
+
+    /**
+     * Finds the index of a node, throwing an exception if it isn't in the graph
+     */
+    private int indexOfNode(NodeType value) throws NoSuchElementException{
+        int index = indexOfValue(value);
+        if (index == -1){
+            throw new NoSuchElementException("Node isn't in our graph");
+        }
+        return index;
+    }
+
+    /**
+     * Runs an A* search from the start node until the end node is settled. Without a heuristic this is just
+     * Dijkstra's algorithm. We find the neighbors of a node by going through the set bits of its row.
+     *
+     * @param heuristic estimates the remaining cost to the end node, or null for plain Dijkstra
+     * @return the shortest path
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     */
+    private ShortestPath<NodeType> search(NodeType start, NodeType end, Heuristic<NodeType> heuristic){
+
+        int startIndex = indexOfNode(start);
+        int endIndex = indexOfNode(end);
+
+        PathEntry[] entries = (PathEntry[])Array.newInstance(PathEntry.class, numNodes);
+        PriorityQueue<PathEntry> queue = new PriorityQueue<>(16, true, true);
+
+        entries[startIndex] = new PathEntry(startIndex, 0.0, null);
+        entries[startIndex].estimate = estimate(heuristic, startIndex, end);
+        queue.enqueue(entries[startIndex]);
+        int settledCount = 0;
+
+        while (!queue.isEmpty()){
+
+            PathEntry current = queue.poll();
+            current.settled = true;
+            settledCount++;
+            if (current.index == endIndex){
+                return new ShortestPath<>(pathTo(current, null), current.cost, settledCount);
+            }
+
+            int rowStart = current.index * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++){
+                for (long bits = present[rowStart + w]; bits != 0; bits &= bits - 1){
+
+                    int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    double newCost = current.cost + weights[current.index * capacity + i];
+                    PathEntry entry = entries[i];
+
+                    if (entry == null){
+                        entry = new PathEntry(i, newCost, current);
+                        entry.estimate = estimate(heuristic, i, end);
+                        entries[i] = entry;
+                        queue.enqueue(entry);
+                    }else if (newCost < entry.cost){
+                        entry.cost = newCost;
+                        entry.previous = current;
+                        if (entry.settled){ // only happens when the heuristic is admissible but not consistent
+                            entry.settled = false;
+                            queue.enqueue(entry);
+                        }else{
+                            queue.decreaseKey(entry);
+                        }
+                    }
+                }
+            }
+
+        }
+
+        throw new NoSuchElementException("No path exists between the start and end nodes");
+    }
+
+    /**
+     * Runs the heuristic for a node, treating a null heuristic as one that always estimates 0
+     */
+    private double estimate(Heuristic<NodeType> heuristic, int index, NodeType goal){
+        return (heuristic == null) ? 0.0 : heuristic.estimate((NodeType)values[index], goal);
+    }
+
+    /**
+     * Builds the list of node data along a path. The forward entry's chain leads back to the start of the path, and
+     * if we have a backward entry, its chain leads on to the end of the path
+     */
+    private List<NodeType> pathTo(PathEntry forward, PathEntry backward){
+        LinkedList<NodeType> path = new LinkedList<>();
+        for (PathEntry entry = forward; entry != null; entry = entry.previous){
+            path.addFirst((NodeType)values[entry.index]);
+        }
+        if (backward != null){
+            for (PathEntry entry = backward.previous; entry != null; entry = entry.previous){
+                path.addLast((NodeType)values[entry.index]);
+            }
+        }
+        return path;
     }
 
     @Override
     public List<NodeType> shortestPathData(NodeType start, NodeType end) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'shortestPathData'");
+        return search(start, end, null).getNodes();
     }
 
     @Override
     public double shortestPathCost(NodeType start, NodeType end) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'shortestPathCost'");
+        return search(start, end, null).getCost();
     }
 
-    public static String[] coolMethod() {
-        return (String[])(new Object[]{"cool","nice"});
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic) {
+        return search(start, end, heuristic);
     }
+
+    /**
+     * Finds the shortest path with bidirectional Dijkstra. The forward search scans rows of the matrix and the
+     * backward search scans columns.
+     */
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end) {
+
+        int startIndex = indexOfNode(start);
+        int endIndex = indexOfNode(end);
+
+        PathEntry[] forwardEntries = (PathEntry[])Array.newInstance(PathEntry.class, numNodes);
+        PathEntry[] backwardEntries = (PathEntry[])Array.newInstance(PathEntry.class, numNodes);
+        PriorityQueue<PathEntry> forwardQueue = new PriorityQueue<>(16, true, true);
+        PriorityQueue<PathEntry> backwardQueue = new PriorityQueue<>(16, true, true);
+
+        forwardEntries[startIndex] = new PathEntry(startIndex, 0.0, null);
+        backwardEntries[endIndex] = new PathEntry(endIndex, 0.0, null);
+        forwardQueue.enqueue(forwardEntries[startIndex]);
+        backwardQueue.enqueue(backwardEntries[endIndex]);
+
+        double bestCost = (startIndex == endIndex) ? 0.0 : Double.POSITIVE_INFINITY;
+        int meetingIndex = (startIndex == endIndex) ? startIndex : -1;
+        int settledCount = 0;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()){
+
+            if (forwardQueue.peek().cost + backwardQueue.peek().cost >= bestCost){
+                break;
+            }
+
+            boolean forward = forwardQueue.size() <= backwardQueue.size();
+            PriorityQueue<PathEntry> queue = forward ? forwardQueue : backwardQueue;
+            PathEntry[] entries = forward ? forwardEntries : backwardEntries;
+            PathEntry[] otherEntries = forward ? backwardEntries : forwardEntries;
+
+            PathEntry current = queue.poll();
+            current.settled = true;
+            settledCount++;
+
+            for (int i = 0; i < numNodes; i++){
+                if (forward ? !hasEdge(current.index, i) : !hasEdge(i, current.index)){
+                    continue;
+                }
+
+                double weight = forward ? weights[current.index * capacity + i] : weights[i * capacity + current.index];
+                double newCost = current.cost + weight;
+                PathEntry entry = entries[i];
+
+                if (entry == null){
+                    entry = new PathEntry(i, newCost, current);
+                    entries[i] = entry;
+                    queue.enqueue(entry);
+                }else if (!entry.settled && newCost < entry.cost){
+                    entry.cost = newCost;
+                    entry.previous = current;
+                    queue.decreaseKey(entry);
+                }
+
+                if (otherEntries[i] != null && entry.cost + otherEntries[i].cost < bestCost){
+                    bestCost = entry.cost + otherEntries[i].cost;
+                    meetingIndex = i;
+                }
+            }
+
+        }
+
+        if (meetingIndex == -1){
+            throw new NoSuchElementException("No path exists between the start and end nodes");
+        }
+
+        return new ShortestPath<>(pathTo(forwardEntries[meetingIndex], backwardEntries[meetingIndex]), bestCost, settledCount);
+    }
+
+    /**
+     * Finds the shortest path costs with Floyd-Warshall over the whole matrix, and then picks out the rows and columns
+     * we were asked for. This is O(n^3) no matter how many pairs we want, which for a dense graph is about what
+     * running Dijkstra from every source would cost anyway.
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+
+        int[] sourceIndices = new int[sources.size()];
+        for (int i = 0; i < sourceIndices.length; i++){
+            sourceIndices[i] = indexOfNode(sources.get(i));
+        }
+        int[] targetIndices = new int[targets.size()];
+        for (int j = 0; j < targetIndices.length; j++){
+            targetIndices[j] = indexOfNode(targets.get(j));
+        }
+
+        double[] distances = allPairsCosts();
+        double[][] costs = new double[sourceIndices.length][targetIndices.length];
+        for (int i = 0; i < sourceIndices.length; i++){
+            for (int j = 0; j < targetIndices.length; j++){
+                costs[i][j] = distances[sourceIndices[i] * numNodes + targetIndices[j]];
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Runs a blocked Floyd-Warshall over a copy of the matrix. The matrix is cut into BLOCK_SIZE by BLOCK_SIZE tiles
+     * that fit in the cache, and for each diagonal tile k we first finish tile (k, k), then the tiles in row k and
+     * column k, which only depend on it, and then every other tile, which only depends on those. The tiles of the
+     * last two phases don't depend on each other, so they're spread across the common fork join pool.
+     *
+     * @return the cost of the shortest path from node i to node j at i*getNodeCount() + j, infinite if there's no path
+     */
+    private double[] allPairsCosts(){
+
+        int n = numNodes;
+        double[] distances = new double[n * n];
+        for (int i = 0; i < n; i++){
+            for (int j = 0; j < n; j++){
+                distances[i * n + j] = hasEdge(i, j) ? weights[i * capacity + j] : Double.POSITIVE_INFINITY;
+            }
+            distances[i * n + i] = 0.0;
+        }
+
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (int k = 0; k < blocks; k++){
+            final int kBlock = k;
+            relaxBlock(distances, n, kBlock, kBlock, kBlock);
+
+            IntStream.range(0, blocks).parallel().forEach(b -> {
+                if (b != kBlock){
+                    relaxBlock(distances, n, kBlock, b, kBlock);
+                    relaxBlock(distances, n, b, kBlock, kBlock);
+                }
+            });
+
+            IntStream.range(0, blocks * blocks).parallel().forEach(tile -> {
+                int iBlock = tile / blocks;
+                int jBlock = tile % blocks;
+                if (iBlock != kBlock && jBlock != kBlock){
+                    relaxBlock(distances, n, iBlock, jBlock, kBlock);
+                }
+            });
+        }
+
+        return distances;
+    }
+
+    /**
+     * Relaxes the paths of one tile of the distance matrix through the nodes of block k
+     */
+    private static void relaxBlock(double[] distances, int n, int iBlock, int jBlock, int kBlock){
+        int iEnd = Math.min(n, (iBlock + 1) * BLOCK_SIZE);
+        int jStart = jBlock * BLOCK_SIZE;
+        int jEnd = Math.min(n, jStart + BLOCK_SIZE);
+        int kEnd = Math.min(n, (kBlock + 1) * BLOCK_SIZE);
+
+        for (int k = kBlock * BLOCK_SIZE; k < kEnd; k++){
+            int kRow = k * n;
+            for (int i = iBlock * BLOCK_SIZE; i < iEnd; i++){
+                int iRow = i * n;
+                double throughK = distances[iRow + k];
+                if (throughK == Double.POSITIVE_INFINITY){
+                    continue;
+                }
+                for (int j = jStart; j < jEnd; j++){
+                    double cost = throughK + distances[kRow + j];
+                    if (cost < distances[iRow + j]){
+                        distances[iRow + j] = cost;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a breadth first search from the start node, and returns the nodes grouped by how many edges away from the
+     * start they are. Each step ORs together the rows of the whole frontier a word at a time, and masks out the nodes
+     * we've already visited, so a step costs O(frontier * n/64) word operations.
+     *
+     * @param start the data item of the node to start from
+     * @return a list of levels, where level d holds the nodes whose shortest path from the start has d edges
+     * @throws NoSuchElementException if the start node isn't in the graph
+     */
+    public List<List<NodeType>> breadthFirstLevels(NodeType start){
+
+        int startIndex = indexOfNode(start);
+        List<List<NodeType>> levels = new ArrayList<>();
+
+        long[] visited = new long[wordsPerRow];
+        visited[startIndex >>> 6] |= 1L << startIndex;
+        int[] frontier = new int[]{startIndex};
+
+        while (frontier.length > 0){
+
+            ArrayList<NodeType> level = new ArrayList<>(frontier.length);
+            for (int index : frontier){
+                level.add((NodeType)values[index]);
+            }
+            levels.add(level);
+
+            long[] next = ForkJoinPool.commonPool().invoke(new RowUnion(frontier, 0, frontier.length));
+            int nextSize = 0;
+            for (int w = 0; w < wordsPerRow; w++){
+                next[w] &= ~visited[w];
+                visited[w] |= next[w];
+                nextSize += Long.bitCount(next[w]);
+            }
+
+            frontier = new int[nextSize];
+            int f = 0;
+            for (int w = 0; w < wordsPerRow; w++){
+                for (long bits = next[w]; bits != 0; bits &= bits - 1){
+                    frontier[f++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Computes the transitive closure of the graph with Warshall's algorithm on the presence bitset. For every node
+     * k, each row that can reach k gets k's row ORed into it, a word at a time, with the rows split across the fork
+     * join pool. This is O(n^3 / 64) word operations.
+     *
+     * @return a new graph with the same nodes, and an edge of weight 1 from i to j whenever there's a path of one or
+     *         more edges from i to j in this graph
+     */
+    public GraphAM<NodeType, Integer> transitiveClosure(){
+
+        GraphAM<NodeType, Integer> closure = new GraphAM<>(capacity);
+        for (int i = 0; i < numNodes; i++){
+            closure.insertNode((NodeType)values[i]);
+        }
+
+        long[] reach = closure.present;
+        System.arraycopy(present, 0, reach, 0, numNodes * wordsPerRow);
+        for (int k = 0; k < numNodes; k++){
+            ForkJoinPool.commonPool().invoke(new ClosureStep(reach, k, 0, numNodes));
+        }
+
+        closure.weightBoxer = WeightBoxing.boxerFor(1);
+        closure.weightClass = Integer.class;
+        for (int i = 0; i < numNodes; i++){
+            closure.edgeCount += rowEdgeCount(reach, i);
+            for (int w = 0; w < wordsPerRow; w++){
+                for (long bits = reach[i * wordsPerRow + w]; bits != 0; bits &= bits - 1){
+                    closure.weights[i * capacity + (w << 6) + Long.numberOfTrailingZeros(bits)] = 1.0;
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Counts the set bits in a row of a bitset laid out like ours
+     */
+    private int rowEdgeCount(long[] bitset, int index){
+        int count = 0;
+        for (int w = 0; w < wordsPerRow; w++){
+            count += Long.bitCount(bitset[index * wordsPerRow + w]);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the triangles in the graph, ignoring edge directions and self loops. A triangle is a set of three nodes
+     * that all have an edge between them in at least one direction, and each triangle is counted once. For each edge
+     * (i, j) we AND the two rows together and count the bits, split across the fork join pool by row, so this is
+     * O(E * n/64) word operations.
+     *
+     * @return the number of triangles in the graph
+     */
+    public long countTriangles(){
+
+        // we first make an undirected copy of our bitset, by adding every edge the other way round
+        long[] undirected = new long[numNodes * wordsPerRow];
+        System.arraycopy(present, 0, undirected, 0, numNodes * wordsPerRow);
+        for (int i = 0; i < numNodes; i++){
+            for (int w = 0; w < wordsPerRow; w++){
+                for (long bits = present[i * wordsPerRow + w]; bits != 0; bits &= bits - 1){
+                    int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    undirected[j * wordsPerRow + (i >>> 6)] |= 1L << i;
+                }
+            }
+        }
+
+        return ForkJoinPool.commonPool().invoke(new TriangleCount(undirected, 0, numNodes));
+    }
+
     public static void main(String[] args) {
         new GraphAM<String, Integer>();
     }
-    
+
 }
@@ -0,0 +1,221 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for GraphAM, the adjacency matrix graph
+ */
+public class GraphAMTest{
+
+    /**
+     * This tests that edges are inserted and updated, and that every weight comes back exactly as it was given, even
+     * once the weights stop being all of one type the matrix can rebuild from a double
+     */
+    @Test
+    public void test1(){
+
+        // TEST 1: inserting and updating an edge both return true, and the weight is replaced
+        GraphAM<String, Integer> graph = new GraphAM<>(2);
+        graph.insertNode("a");
+        graph.insertNode("b");
+        Assertions.assertTrue(graph.insertEdge("a", "b", 1));
+        Assertions.assertTrue(graph.insertEdge("a", "b", 2));
+        Assertions.assertEquals(2, (int)graph.getEdge("a", "b"));
+        Assertions.assertEquals(1, graph.getEdgeCount());
+
+        // TEST 2: a weight of another type switches to keeping the weight objects, including the ones we had, and
+        // they survive the matrix growing
+        GraphAM<String, Number> mixed = new GraphAM<>(2);
+        mixed.insertNode("a");
+        mixed.insertNode("b");
+        mixed.insertEdge("a", "b", 1);
+        mixed.insertEdge("b", "a", 2.5);
+        for (int i = 0; i < 10; i++){
+            mixed.insertNode("n" + i);
+        }
+        Assertions.assertEquals(Integer.valueOf(1), mixed.getEdge("a", "b"));
+        Assertions.assertEquals(Double.valueOf(2.5), mixed.getEdge("b", "a"));
+
+        // TEST 3: a long too big for a double comes back exactly
+        GraphAM<String, Long> longs = new GraphAM<>(2);
+        longs.insertNode("a");
+        longs.insertNode("b");
+        longs.insertEdge("a", "b", 1L);
+        longs.insertEdge("b", "a", (1L << 53) + 1);
+        Assertions.assertEquals(Long.valueOf(1L), longs.getEdge("a", "b"));
+        Assertions.assertEquals(Long.valueOf((1L << 53) + 1), longs.getEdge("b", "a"));
+
+    }
+
+    /**
+     * Fills a GraphAM and a Graph with the same random edges, then removes a few nodes from both so the matrix has to
+     * move its last nodes into the gaps. The matrix starts small so it also has to grow along the way
+     */
+    private static void fillRandom(GraphAM<Integer, Integer> matrix, Graph<Integer, Integer> list, int nodes,
+        double density, Random rand){
+
+        for (int i = 0; i < nodes; i++){
+            matrix.insertNode(i);
+            list.insertNode(i);
+        }
+        for (int i = 0; i < nodes; i++){
+            for (int j = 0; j < nodes; j++){
+                if (rand.nextDouble() < density){
+                    int weight = 1 + rand.nextInt(20);
+                    matrix.insertEdge(i, j, weight);
+                    list.insertEdge(i, j, weight);
+                }
+            }
+        }
+        for (int i = 0; i < nodes; i += 15){
+            matrix.removeNode(i);
+            list.removeNode(i);
+        }
+        Assertions.assertEquals(list.getEdgeCount(), matrix.getEdgeCount());
+    }
+
+    /**
+     * This tests the blocked Floyd-Warshall against Dijkstra from every source on the adjacency list graph, with
+     * enough nodes that the matrix is cut into several tiles, the last one only partly full
+     */
+    @Test
+    public void test2(){
+
+        Random rand = new Random(7);
+        for (double density : new double[]{0.01, 0.05, 0.3}){
+            GraphAM<Integer, Integer> matrix = new GraphAM<>(8);
+            Graph<Integer, Integer> list = new Graph<>();
+            fillRandom(matrix, list, 150, density, rand);
+
+            // TEST 1: every pair has the same cost, including the pairs with no path at all
+            List<Integer> nodes = list.getAllNodes();
+            double[][] expected = list.shortestPathCosts(nodes, nodes);
+            double[][] actual = matrix.shortestPathCosts(nodes, nodes);
+            for (int i = 0; i < nodes.size(); i++){
+                for (int j = 0; j < nodes.size(); j++){
+                    Assertions.assertEquals(expected[i][j], actual[i][j], 0.0);
+                }
+            }
+
+            // TEST 2: asking for a few rows and columns picks out the same costs
+            List<Integer> sources = nodes.subList(0, 3);
+            List<Integer> targets = nodes.subList(nodes.size() - 70, nodes.size());
+            double[][] picked = matrix.shortestPathCosts(sources, targets);
+            for (int i = 0; i < sources.size(); i++){
+                for (int j = 0; j < targets.size(); j++){
+                    Assertions.assertEquals(expected[i][nodes.size() - 70 + j], picked[i][j], 0.0);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * This tests the bitset breadth first search, transitive closure and triangle count against plain versions that
+     * look at one edge at a time, on graphs with rows more than one 64 bit word long
+     */
+    @Test
+    public void test3(){
+
+        Random rand = new Random(11);
+        for (double density : new double[]{0.005, 0.02, 0.1}){
+            GraphAM<Integer, Integer> matrix = new GraphAM<>(8);
+            Graph<Integer, Integer> list = new Graph<>();
+            fillRandom(matrix, list, 150, density, rand);
+            List<Integer> nodes = list.getAllNodes();
+            int n = nodes.size();
+
+            // TEST 1: each level holds the nodes the plain breadth first search finds at that depth
+            for (int s = 0; s < n; s += 20){
+                List<HashSet<Integer>> expected = new ArrayList<>();
+                HashSet<Integer> visited = new HashSet<>();
+                HashSet<Integer> level = new HashSet<>();
+                level.add(nodes.get(s));
+                visited.add(nodes.get(s));
+                while (!level.isEmpty()){
+                    expected.add(level);
+                    HashSet<Integer> next = new HashSet<>();
+                    for (int from : level){
+                        for (int to : nodes){
+                            if (!visited.contains(to) && list.containsEdge(from, to)){
+                                next.add(to);
+                            }
+                        }
+                    }
+                    visited.addAll(next);
+                    level = next;
+                }
+
+                List<List<Integer>> levels = matrix.breadthFirstLevels(nodes.get(s));
+                Assertions.assertEquals(expected.size(), levels.size());
+                for (int d = 0; d < levels.size(); d++){
+                    Assertions.assertEquals(expected.get(d).size(), levels.get(d).size());
+                    Assertions.assertEquals(expected.get(d), new HashSet<>(levels.get(d)));
+                }
+            }
+
+            // TEST 2: the closure has an edge from i to j exactly when a search from i's successors reaches j
+            GraphAM<Integer, Integer> closure = matrix.transitiveClosure();
+            int closureEdges = 0;
+            for (int i = 0; i < n; i++){
+                boolean[] reached = new boolean[n];
+                ArrayList<Integer> stack = new ArrayList<>();
+                for (int j = 0; j < n; j++){
+                    if (list.containsEdge(nodes.get(i), nodes.get(j))){
+                        reached[j] = true;
+                        stack.add(j);
+                    }
+                }
+                while (!stack.isEmpty()){
+                    int current = stack.remove(stack.size() - 1);
+                    for (int j = 0; j < n; j++){
+                        if (!reached[j] && list.containsEdge(nodes.get(current), nodes.get(j))){
+                            reached[j] = true;
+                            stack.add(j);
+                        }
+                    }
+                }
+                for (int j = 0; j < n; j++){
+                    Assertions.assertEquals(reached[j], closure.containsEdge(nodes.get(i), nodes.get(j)));
+                    if (reached[j]){
+                        Assertions.assertEquals(1, (int)closure.getEdge(nodes.get(i), nodes.get(j)));
+                        closureEdges++;
+                    }
+                }
+            }
+            Assertions.assertEquals(closureEdges, closure.getEdgeCount());
+
+            // TEST 3: the triangle count matches checking every set of three nodes, ignoring directions and self loops
+            boolean[][] adjacent = new boolean[n][n];
+            for (int i = 0; i < n; i++){
+                for (int j = 0; j < n; j++){
+                    if (i != j && list.containsEdge(nodes.get(i), nodes.get(j))){
+                        adjacent[i][j] = true;
+                        adjacent[j][i] = true;
+                    }
+                }
+            }
+            long triangles = 0;
+            for (int i = 0; i < n; i++){
+                for (int j = i + 1; j < n; j++){
+                    if (adjacent[i][j]){
+                        for (int k = j + 1; k < n; k++){
+                            if (adjacent[i][k] && adjacent[j][k]){
+                                triangles++;
+                            }
+                        }
+                    }
+                }
+            }
+            Assertions.assertEquals(triangles, matrix.countTriangles());
+        }
+
+    }
+
+}
@@ -0,0 +1,408 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * This works out how important the nodes of an indexed graph are: PageRank, personalized PageRank and betweenness
+ * centrality. Scores come back as arrays indexed by node id (ids without a node score 0), which topNodes can turn
+ * into a ranking. Everything runs over primitive arrays in parallel on the common fork join pool, so it works best
+ * over a frozen CsrGraph, but any indexed graph will do.
+ *
+ * The graph shouldn't be changed while an analysis is running.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class GraphAnalytics<NodeType> {
+
+    /** The chance that the random surfer follows an edge instead of jumping somewhere new */
+    public static final double DEFAULT_DAMPING = 0.85;
+    /** PageRank stops once the ranks move less than this in total over an iteration */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    /** How many betweenness sources a fork join task handles on its own before it splits its work in two */
+    private static final int SOURCES_PER_TASK = 4;
+
+    /**
+     * This task runs Brandes' algorithm from a range of the sampled sources. Each task that does work gets its own
+     * working arrays and scores, and the scores get added together on the way back up
+     */
+    protected class BetweennessTask extends RecursiveTask<double[]>{
+        private static final long serialVersionUID = 1L;
+
+        int[] sources;
+        int from;
+        int to;
+
+        /**
+         * Creates a task that runs from sources[from] up to sources[to]
+         */
+        public BetweennessTask(int[] sources, int from, int to){
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute(){
+            if (to - from > SOURCES_PER_TASK){
+                int mid = (from + to) >>> 1;
+                BetweennessTask left = new BetweennessTask(sources, from, mid);
+                left.fork();
+                double[] right = new BetweennessTask(sources, mid, to).compute();
+                double[] scores = left.join();
+                for (int id = 0; id < scores.length; id++){
+                    scores[id] += right[id];
+                }
+                return scores;
+            }
+
+            BrandesSpace space = new BrandesSpace(graph.getIdBound());
+            for (int s = from; s < to; s++){
+                space.accumulate(sources[s]);
+            }
+            return space.scores;
+        }
+    }
+
+    /**
+     * The working arrays for running Brandes' algorithm from one source at a time. Dijkstra's algorithm finds the
+     * number of shortest paths to every node in the order they're settled, and then we walk that order backwards
+     * pushing each node's dependency onto its predecessors on shortest paths. Instead of keeping lists of
+     * predecessors, we find them again by checking which incoming edges are tight
+     */
+    private class BrandesSpace{
+        double[] distance;
+        double[] pathCount;
+        double[] dependency;
+        int[] order;
+        double[] scores;
+
+        // a binary heap of ids keyed on distance, where an id can be in there more than once and we skip stale copies
+        int[] heapIds = new int[16];
+        double[] heapKeys = new double[16];
+        int heapSize;
+
+        BrandesSpace(int idBound){
+            distance = new double[idBound];
+            pathCount = new double[idBound];
+            dependency = new double[idBound];
+            order = new int[idBound];
+            scores = new double[idBound];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Adds the dependencies of every node on paths from the source to the scores
+         */
+        void accumulate(int source){
+            int settled = 0;
+            distance[source] = 0.0;
+            pathCount[source] = 1.0;
+            push(source, 0.0);
+
+            while (heapSize > 0){
+                double key = heapKeys[0];
+                int current = pop();
+                if (key > distance[current]){
+                    continue; // a stale copy
+                }
+                order[settled++] = current;
+
+                int degree = graph.outDegree(current);
+                for (int k = 0; k < degree; k++){
+                    int target = graph.outTarget(current, k);
+                    if (target == current){
+                        continue;
+                    }
+                    double newDistance = key + graph.outWeight(current, k);
+                    if (newDistance < distance[target]){
+                        distance[target] = newDistance;
+                        pathCount[target] = pathCount[current];
+                        push(target, newDistance);
+                    }else if (newDistance == distance[target]){
+                        pathCount[target] += pathCount[current];
+                    }
+                }
+            }
+
+            for (int i = settled - 1; i > 0; i--){
+                int id = order[i];
+                double share = (1.0 + dependency[id]) / pathCount[id];
+                int degree = graph.inDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int pred = graph.inSource(id, k);
+                    if (pred != id && distance[pred] + graph.inWeight(id, k) == distance[id]){
+                        dependency[pred] += pathCount[pred] * share;
+                    }
+                }
+                scores[id] += dependency[id];
+            }
+
+            // only the settled nodes were touched, so those are all we need to reset
+            for (int i = 0; i < settled; i++){
+                int id = order[i];
+                distance[id] = Double.POSITIVE_INFINITY;
+                pathCount[id] = 0.0;
+                dependency[id] = 0.0;
+            }
+        }
+
+        private void push(int id, double key){
+            if (heapSize == heapIds.length){
+                heapIds = Arrays.copyOf(heapIds, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0 && heapKeys[(i - 1) >>> 1] > key){
+                int parent = (i - 1) >>> 1;
+                heapIds[i] = heapIds[parent];
+                heapKeys[i] = heapKeys[parent];
+                i = parent;
+            }
+            heapIds[i] = id;
+            heapKeys[i] = key;
+        }
+
+        private int pop(){
+            int top = heapIds[0];
+            int lastId = heapIds[--heapSize];
+            double lastKey = heapKeys[heapSize];
+            int i = 0;
+            while (true){
+                int child = 2 * i + 1;
+                if (child >= heapSize){
+                    break;
+                }
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]){
+                    child++;
+                }
+                if (heapKeys[child] >= lastKey){
+                    break;
+                }
+                heapIds[i] = heapIds[child];
+                heapKeys[i] = heapKeys[child];
+                i = child;
+            }
+            heapIds[i] = lastId;
+            heapKeys[i] = lastKey;
+            return top;
+        }
+    }
+
+    private IndexedGraph<NodeType> graph;
+
+    /**
+     * Creates a new analytics engine over a graph
+     * @param graph the graph to analyze
+     */
+    public GraphAnalytics(IndexedGraph<NodeType> graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the ids that have a node
+     */
+    private int[] liveIds(){
+        return IntStream.range(0, graph.getIdBound()).filter(graph::containsId).toArray();
+    }
+
+    /**
+     * Runs PageRank with the default damping, tolerance and iteration limit
+     * @return the rank of every id, adding up to 1 over the graph
+     */
+    public double[] pageRank(){
+        return pageRank(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Runs PageRank, where a random surfer follows an edge out of its node with chance damping, and otherwise jumps
+     * to any node at all
+     *
+     * @param damping the chance of following an edge, between 0 and 1
+     * @param tolerance we stop once the ranks move less than this in total over an iteration
+     * @param maxIterations we stop after this many iterations even if the ranks are still moving
+     * @return the rank of every id, adding up to 1 over the graph
+     * @throws IllegalArgumentException if the damping isn't between 0 and 1
+     */
+    public double[] pageRank(double damping, double tolerance, int maxIterations){
+        int[] ids = liveIds();
+        double[] teleport = new double[graph.getIdBound()];
+        for (int id : ids){
+            teleport[id] = 1.0 / ids.length;
+        }
+        return pageRank(teleport, damping, tolerance, maxIterations);
+    }
+
+    /**
+     * Runs personalized PageRank with the default damping, tolerance and iteration limit
+     * @param sources the data of the nodes the random surfer jumps back to
+     * @return the rank of every id, adding up to 1 over the graph
+     */
+    public double[] personalizedPageRank(Collection<NodeType> sources){
+        return personalizedPageRank(sources, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Runs personalized PageRank, where the random surfer only ever jumps back to one of the source nodes instead of
+     * anywhere at all. The ranks then show how close every node is to the sources
+     *
+     * @param sources the data of the nodes the random surfer jumps back to
+     * @param damping the chance of following an edge, between 0 and 1
+     * @param tolerance we stop once the ranks move less than this in total over an iteration
+     * @param maxIterations we stop after this many iterations even if the ranks are still moving
+     * @return the rank of every id, adding up to 1 over the graph
+     * @throws NoSuchElementException if a source node isn't in the graph
+     * @throws IllegalArgumentException if there are no sources or the damping isn't between 0 and 1
+     */
+    public double[] personalizedPageRank(Collection<NodeType> sources, double damping, double tolerance,
+            int maxIterations){
+        if (sources.isEmpty()){
+            throw new IllegalArgumentException("Personalized PageRank needs at least one source");
+        }
+        double[] teleport = new double[graph.getIdBound()];
+        for (NodeType source : sources){
+            teleport[graph.requireId(source)] = 1.0;
+        }
+        double total = 0.0;
+        for (double share : teleport){
+            total += share;
+        }
+        for (int id = 0; id < teleport.length; id++){
+            teleport[id] /= total;
+        }
+        return pageRank(teleport, damping, tolerance, maxIterations);
+    }
+
+    /**
+     * Runs the power iteration for PageRank. Every iteration pulls each node's new rank from its incoming edges in
+     * parallel, reading the ranks from one array and writing them into the other, and then the two arrays swap. The
+     * rank of nodes with no outgoing edges gets spread out the same way a jump does, so no rank leaks away
+     *
+     * @param teleport the chance of jumping to each id, adding up to 1
+     */
+    private double[] pageRank(double[] teleport, double damping, double tolerance, int maxIterations){
+        if (!(damping >= 0.0 && damping <= 1.0)){
+            throw new IllegalArgumentException("The damping has to be between 0 and 1");
+        }
+
+        int idBound = graph.getIdBound();
+        double[] outDegree = new double[idBound];
+        IntStream.range(0, idBound).parallel().forEach(id -> {
+            outDegree[id] = graph.containsId(id) ? graph.outDegree(id) : 0.0;
+        });
+
+        double[] rank = teleport.clone();
+        double[] next = new double[idBound];
+        double[] share = new double[idBound]; // how much rank each id sends down each of its edges
+
+        for (int iteration = 0; iteration < maxIterations; iteration++){
+            double[] current = rank;
+            double dangling = IntStream.range(0, idBound).parallel().mapToDouble(id -> {
+                if (outDegree[id] == 0.0){
+                    share[id] = 0.0;
+                    return current[id];
+                }
+                share[id] = current[id] / outDegree[id];
+                return 0.0;
+            }).sum();
+
+            double jump = (1.0 - damping) + damping * dangling;
+            double[] updated = next;
+            double change = IntStream.range(0, idBound).parallel().mapToDouble(id -> {
+                if (!graph.containsId(id)){
+                    return 0.0;
+                }
+                double incoming = 0.0;
+                int degree = graph.inDegree(id);
+                for (int k = 0; k < degree; k++){
+                    incoming += share[graph.inSource(id, k)];
+                }
+                updated[id] = jump * teleport[id] + damping * incoming;
+                return Math.abs(updated[id] - current[id]);
+            }).sum();
+
+            next = rank;
+            rank = updated;
+            if (change < tolerance){
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the exact betweenness centrality of every id
+     * @return the betweenness of every id
+     */
+    public double[] betweenness(){
+        return betweennessOf(liveIds());
+    }
+
+    /**
+     * Estimates the betweenness centrality of every id, which is how many shortest paths between other nodes run
+     * through it, counting a pair with several shortest paths by the fraction of them that do. We only run Brandes'
+     * algorithm from a random sample of sources and scale the result up, which gives an unbiased estimate
+     *
+     * @param samples how many sources to run from, where the whole graph gives the exact answer
+     * @param seed the seed for picking the sources
+     * @return the estimated betweenness of every id
+     * @throws IllegalArgumentException if samples isn't positive
+     */
+    public double[] betweenness(int samples, long seed){
+        if (samples <= 0){
+            throw new IllegalArgumentException("We need at least one sample");
+        }
+        int[] ids = liveIds();
+        if (samples >= ids.length){
+            return betweennessOf(ids);
+        }
+
+        // a partial shuffle puts a uniform sample of the ids at the front
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++){
+            int j = i + random.nextInt(ids.length - i);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        double[] scores = betweennessOf(Arrays.copyOf(ids, samples));
+        double scale = (double) ids.length / samples;
+        for (int id = 0; id < scores.length; id++){
+            scores[id] *= scale;
+        }
+        return scores;
+    }
+
+    private double[] betweennessOf(int[] sources){
+        if (sources.length == 0){
+            return new double[graph.getIdBound()];
+        }
+        return new BetweennessTask(sources, 0, sources.length).invoke();
+    }
+
+    /**
+     * Returns the data of the highest scoring nodes, best first
+     * @param scores a score for every id, like the ones returned by the other methods here
+     * @param count how many nodes to return at most
+     * @return the data of up to count nodes with the highest scores
+     */
+    public List<NodeType> topNodes(double[] scores, int count){
+        Integer[] ids = IntStream.range(0, Math.min(scores.length, graph.getIdBound()))
+                .filter(graph::containsId).boxed().toArray(Integer[]::new);
+        Arrays.sort(ids, (a, b) -> Double.compare(scores[b], scores[a]));
+        List<NodeType> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, ids.length); i++){
+            top.add(graph.dataOf(ids[i]));
+        }
+        return top;
+    }
+
+}
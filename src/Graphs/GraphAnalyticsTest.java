@@ -0,0 +1,187 @@
+package Graphs;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for GraphAnalytics, on graphs small enough that the scores can be worked out by hand
+ */
+public class GraphAnalyticsTest{
+
+    /**
+     * Adds an edge both ways with weight 1
+     */
+    private static void link(Graph<String, Integer> graph, String a, String b){
+        graph.insertEdge(a, b, 1);
+        graph.insertEdge(b, a, 1);
+    }
+
+    /**
+     * Adds up the scores of every node in the graph
+     */
+    private static double total(Graph<String, Integer> graph, double[] scores){
+        double total = 0.0;
+        for (String node : graph.getAllNodes()){
+            total += scores[graph.idOf(node)];
+        }
+        return total;
+    }
+
+    /**
+     * This tests PageRank and personalized PageRank, including graphs with dangling nodes and ids left free by
+     * removed nodes
+     */
+    @Test
+    public void test1(){
+
+        // TEST 1: every node of a cycle has the same rank
+        Graph<String, Integer> cycle = new Graph<>();
+        String[] names = {"a", "b", "c", "d", "e"};
+        for (String name : names){
+            cycle.insertNode(name);
+        }
+        for (int i = 0; i < names.length; i++){
+            cycle.insertEdge(names[i], names[(i + 1) % names.length], 1);
+        }
+        GraphAnalytics<String> analytics = new GraphAnalytics<>(cycle);
+        double[] ranks = analytics.pageRank();
+        for (String name : names){
+            Assertions.assertEquals(0.2, ranks[cycle.idOf(name)], 1e-9);
+        }
+
+        // TEST 2: with dangling nodes, an isolated node and a removed node's id, the ranks still add up to 1
+        Graph<String, Integer> graph = new Graph<>();
+        for (String name : new String[]{"a", "b", "gone", "c", "d", "e"}){
+            graph.insertNode(name);
+        }
+        graph.insertEdge("a", "b", 1);
+        graph.insertEdge("a", "c", 1);
+        graph.insertEdge("b", "c", 1);
+        graph.insertEdge("gone", "c", 1);
+        graph.insertEdge("e", "a", 1);
+        int goneId = graph.idOf("gone");
+        graph.removeNode("gone");
+        analytics = new GraphAnalytics<>(graph);
+        ranks = analytics.pageRank();
+        Assertions.assertEquals(1.0, total(graph, ranks), 1e-9);
+        Assertions.assertEquals(0.0, ranks[goneId], 0.0);
+        Assertions.assertEquals("c", analytics.topNodes(ranks, 1).get(0));
+        Assertions.assertEquals(ranks[graph.idOf("d")], ranks[graph.idOf("e")], 1e-12);
+
+        // TEST 3: personalized to e, the surfer only ever jumps back to e, and nothing reaches d. With damping 0.85
+        // the ranks are r(e) = r, r(a) = 0.85r, r(b) = 0.85 * r(a)/2 and r(c) = 0.85 * (r(a)/2 + r(b))
+        ranks = analytics.personalizedPageRank(Collections.singletonList("e"));
+        double r = 1.0 / (1.0 + 0.85 + 0.85 * 0.85 / 2 + 0.85 * (0.85 / 2 + 0.85 * 0.85 / 2));
+        Assertions.assertEquals(r, ranks[graph.idOf("e")], 1e-8);
+        Assertions.assertEquals(0.85 * r, ranks[graph.idOf("a")], 1e-8);
+        Assertions.assertEquals(0.85 * 0.85 * r / 2, ranks[graph.idOf("b")], 1e-8);
+        Assertions.assertEquals(0.0, ranks[graph.idOf("d")], 0.0);
+        Assertions.assertEquals(1.0, total(graph, ranks), 1e-9);
+
+        // TEST 4: bad arguments are rejected
+        try{
+            analytics.personalizedPageRank(Collections.emptyList());
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+        try{
+            analytics.personalizedPageRank(Arrays.asList("a", "gone"));
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        try{
+            analytics.pageRank(1.5, 1e-9, 10);
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+
+    }
+
+    /**
+     * This tests exact and sampled betweenness on a path, a star and a diamond, where every shortest path can be
+     * counted by hand. Betweenness counts ordered pairs, so edges that go both ways count each pair twice
+     */
+    @Test
+    public void test2(){
+
+        // TEST 1: on a path of 5 nodes, the node at position i sits between 2 * i * (4 - i) ordered pairs
+        Graph<String, Integer> path = new Graph<>();
+        String[] names = {"a", "b", "c", "d", "e"};
+        for (String name : names){
+            path.insertNode(name);
+        }
+        for (int i = 0; i + 1 < names.length; i++){
+            link(path, names[i], names[i + 1]);
+        }
+        double[] scores = new GraphAnalytics<>(path).betweenness();
+        for (int i = 0; i < names.length; i++){
+            Assertions.assertEquals(2.0 * i * (4 - i), scores[path.idOf(names[i])], 1e-9);
+        }
+
+        // TEST 2: the center of a star with 6 leaves is between every ordered pair of leaves, so 6 * 5 of them
+        Graph<String, Integer> star = new Graph<>();
+        star.insertNode("center");
+        for (int i = 0; i < 6; i++){
+            star.insertNode("leaf" + i);
+            link(star, "center", "leaf" + i);
+        }
+        GraphAnalytics<String> analytics = new GraphAnalytics<>(star);
+        scores = analytics.betweenness();
+        Assertions.assertEquals(30.0, scores[star.idOf("center")], 1e-9);
+        for (int i = 0; i < 6; i++){
+            Assertions.assertEquals(0.0, scores[star.idOf("leaf" + i)], 1e-9);
+        }
+        Assertions.assertEquals(Arrays.asList("center"), analytics.topNodes(scores, 1));
+
+        // TEST 3: sampling 3 of the 7 sources, each leaf source adds 5 to the center and the center source adds 0,
+        // so scaled by 7/3 every estimate is 35 or 70/3, and they average out to the exact 30
+        double sum = 0.0;
+        int runs = 2000;
+        HashSet<Long> seen = new HashSet<>();
+        for (long seed = 0; seed < runs; seed++){
+            double estimate = analytics.betweenness(3, seed)[star.idOf("center")];
+            Assertions.assertTrue(Math.abs(estimate - 35.0) < 1e-9 || Math.abs(estimate - 70.0 / 3) < 1e-9);
+            seen.add(Math.round(estimate * 3));
+            sum += estimate;
+        }
+        Assertions.assertEquals(2, seen.size());
+        Assertions.assertEquals(30.0, sum / runs, 1.0);
+
+        // TEST 4: asking for at least as many samples as nodes gives the exact answer
+        double[] exact = analytics.betweenness(7, 1);
+        Assertions.assertEquals(30.0, exact[star.idOf("center")], 1e-9);
+
+        // TEST 5: in the diamond a -> b -> d, a -> c -> d, the two shortest paths from a to d split the pair,
+        // and the self loop on b changes nothing
+        Graph<String, Integer> diamond = new Graph<>();
+        for (String name : new String[]{"a", "b", "c", "d"}){
+            diamond.insertNode(name);
+        }
+        diamond.insertEdge("a", "b", 1);
+        diamond.insertEdge("a", "c", 1);
+        diamond.insertEdge("b", "d", 1);
+        diamond.insertEdge("c", "d", 1);
+        diamond.insertEdge("b", "b", 1);
+        scores = new GraphAnalytics<>(diamond).betweenness();
+        List<String> nodes = Arrays.asList("a", "b", "c", "d");
+        double[] expected = {0.0, 0.5, 0.5, 0.0};
+        for (int i = 0; i < nodes.size(); i++){
+            Assertions.assertEquals(expected[i], scores[diamond.idOf(nodes.get(i))], 1e-9);
+        }
+
+        // TEST 6: a sample has to have at least one source
+        try{
+            analytics.betweenness(0, 1);
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+
+    }
+
+}
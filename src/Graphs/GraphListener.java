@@ -0,0 +1,34 @@
+package Graphs;
+
+/**
+ * This interface is for objects that want to hear about every change made to a graph, so they can keep something
+ * they've worked out from it up to date instead of working it out again. Nodes are given by their ids, and every
+ * change to an edge is reported as a change of its weight, where an edge that doesn't exist has an infinite weight.
+ * Listeners are called right after the change has been made, so the graph already shows it.
+ */
+public interface GraphListener {
+
+    /**
+     * Called when an edge is inserted, removed, or has its weight changed
+     * @param pred the id of the edge's predecessor node
+     * @param succ the id of the edge's successor node
+     * @param oldWeight the weight the edge had, or infinity if it's a new edge
+     * @param newWeight the weight the edge has now, or infinity if it was removed
+     */
+    public void edgeChanged(int pred, int succ, double oldWeight, double newWeight);
+
+    /**
+     * Called when a node is inserted. It may have an id that a removed node used to have
+     * @param id the id of the new node
+     */
+    public default void nodeInserted(int id){
+    }
+
+    /**
+     * Called when a node is removed. The removal of each of its edges has already been reported
+     * @param id the id the node had
+     */
+    public default void nodeRemoved(int id){
+    }
+
+}
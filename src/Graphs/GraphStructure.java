@@ -0,0 +1,410 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import Graphs.PathSearch.SearchEntry;
+import Trees.PriorityQueue;
+
+/**
+ * This runs structural algorithms over the ids of an indexed graph: minimum spanning forests (with Kruskal's or
+ * Prim's algorithm), topological ordering with cycle detection, and longest paths through a directed acyclic graph.
+ * Like GraphTraversal, everything works on primitive arrays indexed by node id and nothing is recursive, so graphs
+ * with millions of nodes are fine.
+ *
+ * Spanning forests ignore the direction of the edges. They come back as an array of id pairs, where edges[2i] and
+ * edges[2i+1] are the predecessor and successor of the i'th edge, in the direction the graph has it.
+ *
+ * The graph shouldn't be changed while an algorithm is running.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class GraphStructure<NodeType> {
+
+    private IndexedGraph<NodeType> graph;
+
+    /**
+     * Creates a new structural algorithm engine over a graph
+     * @param graph the graph to run the algorithms on
+     */
+    public GraphStructure(IndexedGraph<NodeType> graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Turns a double into a long that sorts the same way, so we can sort weights as plain longs
+     */
+    private static long sortableBits(double value){
+        long bits = Double.doubleToLongBits(value);
+        return (bits < 0) ? bits ^ Long.MAX_VALUE : bits;
+    }
+
+    /**
+     * Finds a minimum spanning forest with Kruskal's algorithm. We sort all the edges by weight and take every edge
+     * whose ends a union find says aren't connected yet. To sort without boxing, each edge becomes a long holding the
+     * rank of its weight in the top half and its index in the bottom half
+     *
+     * @return the edges of the forest as pairs of ids
+     */
+    public int[] kruskalById(){
+        int idBound = graph.getIdBound();
+        int edgeCount = 0;
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                edgeCount += graph.outDegree(id);
+            }
+        }
+
+        int[] preds = new int[edgeCount];
+        int[] succs = new int[edgeCount];
+        long[] weights = new long[edgeCount];
+        int e = 0;
+        for (int id = 0; id < idBound; id++){
+            if (!graph.containsId(id)){
+                continue;
+            }
+            int degree = graph.outDegree(id);
+            for (int k = 0; k < degree; k++){
+                preds[e] = id;
+                succs[e] = graph.outTarget(id, k);
+                weights[e++] = sortableBits(graph.outWeight(id, k));
+            }
+        }
+
+        long[] distinct = weights.clone();
+        Arrays.parallelSort(distinct);
+        long[] order = new long[edgeCount];
+        for (int i = 0; i < edgeCount; i++){
+            order[i] = ((long) Arrays.binarySearch(distinct, weights[i]) << 32) | i;
+        }
+        weights = null;
+        distinct = null;
+        Arrays.parallelSort(order);
+
+        UnionFind sets = new UnionFind(idBound);
+        int[] forest = new int[16];
+        int size = 0;
+        for (int i = 0; i < edgeCount; i++){
+            int edge = (int) order[i];
+            if (sets.union(preds[edge], succs[edge])){
+                if (size == forest.length){
+                    forest = Arrays.copyOf(forest, size * 2);
+                }
+                forest[size++] = preds[edge];
+                forest[size++] = succs[edge];
+            }
+        }
+        return Arrays.copyOf(forest, size);
+    }
+
+    /**
+     * Finds a minimum spanning forest with Prim's algorithm. We grow a tree from every node not in one yet, always
+     * taking the cheapest edge out of the tree, kept track of with an indexed priority queue of entries whose cost
+     * is the cheapest known edge into the tree and previous is the other end of that edge
+     *
+     * @return the edges of the forest as pairs of ids
+     */
+    public int[] primById(){
+        int idBound = graph.getIdBound();
+        SearchEntry[] entries = new SearchEntry[idBound];
+        boolean[] inTree = new boolean[idBound];
+        boolean[] edgeGoesIn = new boolean[idBound]; // whether an entry's edge is previous -> id rather than id -> previous
+        PriorityQueue<SearchEntry> queue = new PriorityQueue<>(16, true, true);
+
+        int[] forest = new int[16];
+        int size = 0;
+        for (int root = 0; root < idBound; root++){
+            if (inTree[root] || !graph.containsId(root)){
+                continue;
+            }
+            queue.enqueue(entryFor(entries, root, 0.0));
+
+            while (!queue.isEmpty()){
+                SearchEntry current = queue.poll();
+                int id = current.id;
+                inTree[id] = true;
+                if (current.previous != -1){
+                    if (size == forest.length){
+                        forest = Arrays.copyOf(forest, size * 2);
+                    }
+                    forest[size++] = edgeGoesIn[id] ? current.previous : id;
+                    forest[size++] = edgeGoesIn[id] ? id : current.previous;
+                }
+
+                int degree = graph.outDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int target = graph.outTarget(id, k);
+                    if (!inTree[target] && offer(entries, queue, target, id, graph.outWeight(id, k))){
+                        edgeGoesIn[target] = true;
+                    }
+                }
+                degree = graph.inDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int source = graph.inSource(id, k);
+                    if (!inTree[source] && offer(entries, queue, source, id, graph.inWeight(id, k))){
+                        edgeGoesIn[source] = false;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(forest, size);
+    }
+
+    private static SearchEntry entryFor(SearchEntry[] entries, int id, double cost){
+        SearchEntry entry = new SearchEntry(id);
+        entry.cost = cost;
+        entry.previous = -1;
+        entries[id] = entry;
+        return entry;
+    }
+
+    /**
+     * Offers an edge from the tree to a node outside it, keeping it if it's the cheapest one the node has
+     * @return true if the edge was kept
+     */
+    private static boolean offer(SearchEntry[] entries, PriorityQueue<SearchEntry> queue, int id, int treeId,
+            double weight){
+        SearchEntry entry = entries[id];
+        if (entry == null){
+            entry = entryFor(entries, id, weight);
+            entry.previous = treeId;
+            queue.enqueue(entry);
+            return true;
+        }
+        if (weight < entry.cost){
+            entry.cost = weight;
+            entry.previous = treeId;
+            queue.decreaseKey(entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the minimum spanning forest as a graph with all the nodes of this one and just the forest's edges
+     * @param edges the edges of the forest as pairs of ids, like the ones kruskalById and primById return
+     * @return the forest as a graph
+     */
+    public Graph<NodeType, Double> toGraph(int[] edges){
+        Graph<NodeType, Double> forest = new Graph<>();
+        for (int id = 0; id < graph.getIdBound(); id++){
+            if (graph.containsId(id)){
+                forest.insertNode(graph.dataOf(id));
+            }
+        }
+        for (int e = 0; e < edges.length; e += 2){
+            int k = 0;
+            while (graph.outTarget(edges[e], k) != edges[e + 1]){
+                k++;
+            }
+            forest.insertEdge(graph.dataOf(edges[e]), graph.dataOf(edges[e + 1]), graph.outWeight(edges[e], k));
+        }
+        return forest;
+    }
+
+    /**
+     * Returns the ids in a topological order, using Kahn's algorithm: we keep taking a node with no incoming edges
+     * left and dropping its outgoing edges. If we run out of such nodes before we run out of nodes, what's left has
+     * a cycle in it
+     *
+     * @return the ids of all the nodes, where every edge goes from an earlier id to a later one
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public int[] topologicalOrderById(){
+        int[] order = kahn(new int[graph.getIdBound()]);
+        if (order == null){
+            throw new IllegalStateException("The graph has a cycle, so it has no topological order");
+        }
+        return order;
+    }
+
+    /**
+     * Runs Kahn's algorithm, leaving the number of incoming edges each id has left in remaining
+     * @return the order, or null if there's a cycle
+     */
+    private int[] kahn(int[] remaining){
+        int idBound = graph.getIdBound();
+        int[] order = new int[idBound];
+        int size = 0;
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                remaining[id] = graph.inDegree(id);
+                if (remaining[id] == 0){
+                    order[size++] = id;
+                }
+            }
+        }
+
+        // the order array doubles as the queue, since we only ever add to its end
+        for (int head = 0; head < size; head++){
+            int id = order[head];
+            int degree = graph.outDegree(id);
+            for (int k = 0; k < degree; k++){
+                int target = graph.outTarget(id, k);
+                if (--remaining[target] == 0){
+                    order[size++] = target;
+                }
+            }
+        }
+
+        int nodeCount = 0;
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                nodeCount++;
+            }
+        }
+        return (size == nodeCount) ? Arrays.copyOf(order, size) : null;
+    }
+
+    /**
+     * Returns the data of the nodes in a topological order
+     * @return the data of all the nodes, where every edge goes from an earlier node to a later one
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public List<NodeType> topologicalOrder(){
+        int[] order = topologicalOrderById();
+        List<NodeType> data = new ArrayList<>(order.length);
+        for (int id : order){
+            data.add(graph.dataOf(id));
+        }
+        return data;
+    }
+
+    /**
+     * Checks if the graph has no cycles
+     */
+    public boolean isAcyclic(){
+        return kahn(new int[graph.getIdBound()]) != null;
+    }
+
+    /**
+     * Finds a cycle in the graph. Every node Kahn's algorithm couldn't take still has an incoming edge from another
+     * such node, so walking backwards along those edges from any of them has to come round to a node we've seen
+     *
+     * @return the data of the nodes along a cycle, in edge order with the first node repeated at the end, or an
+     *         empty list if the graph has no cycles
+     */
+    public List<NodeType> findCycle(){
+        int[] remaining = new int[graph.getIdBound()];
+        if (kahn(remaining) != null){
+            return new ArrayList<>();
+        }
+
+        int start = 0;
+        while (remaining[start] == 0){
+            start++;
+        }
+        int[] seenAt = new int[remaining.length];
+        Arrays.fill(seenAt, -1);
+        int[] walk = new int[16];
+        int size = 0;
+        int id = start;
+        while (seenAt[id] == -1){
+            seenAt[id] = size;
+            if (size == walk.length){
+                walk = Arrays.copyOf(walk, size * 2);
+            }
+            walk[size++] = id;
+            int k = 0;
+            while (remaining[graph.inSource(id, k)] == 0){
+                k++;
+            }
+            id = graph.inSource(id, k);
+        }
+
+        // we walked backwards, so the cycle is the tail of the walk reversed
+        LinkedList<NodeType> cycle = new LinkedList<>();
+        for (int i = seenAt[id]; i < size; i++){
+            cycle.addFirst(graph.dataOf(walk[i]));
+        }
+        cycle.addLast(cycle.getFirst());
+        return cycle;
+    }
+
+    /**
+     * Finds the most expensive path from start to end in a directed acyclic graph, by relaxing the edges of every
+     * node in topological order
+     *
+     * @return the path, whose settled count is how many nodes came after the start in topological order
+     * @throws NoSuchElementException if either node isn't in the graph or there's no path between them
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public ShortestPath<NodeType> longestPath(NodeType start, NodeType end){
+        int startId = graph.requireId(start);
+        int endId = graph.requireId(end);
+        int[] order = topologicalOrderById();
+        double[] cost = new double[graph.getIdBound()];
+        int[] previous = new int[cost.length];
+        Arrays.fill(cost, Double.NEGATIVE_INFINITY);
+        cost[startId] = 0.0;
+
+        int first = 0;
+        while (order[first] != startId){
+            first++;
+        }
+        for (int i = first; i < order.length; i++){
+            relax(order[i], cost, previous);
+        }
+
+        if (cost[endId] == Double.NEGATIVE_INFINITY){
+            throw new NoSuchElementException("No path exists between the start and end nodes");
+        }
+        return pathTo(endId, cost, previous, order.length - first);
+    }
+
+    /**
+     * Finds the most expensive path anywhere in a directed acyclic graph, like the critical path of a schedule. Every
+     * node starts out as the start of a path of cost 0, and then we relax the edges in topological order
+     *
+     * @return the most expensive path, or an empty path if the graph has no nodes
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public ShortestPath<NodeType> longestPath(){
+        int[] order = topologicalOrderById();
+        double[] cost = new double[graph.getIdBound()];
+        int[] previous = new int[cost.length];
+        if (order.length == 0){
+            return new ShortestPath<>(new LinkedList<>(), 0.0, 0);
+        }
+
+        int best = order[0];
+        for (int id : order){
+            relax(id, cost, previous);
+            if (cost[id] > cost[best]){
+                best = id;
+            }
+        }
+        return pathTo(best, cost, previous, order.length);
+    }
+
+    /**
+     * Relaxes the outgoing edges of a node whose cost is final, for a longest path. A node that isn't reached yet
+     * has no previous node
+     */
+    private void relax(int id, double[] cost, int[] previous){
+        if (cost[id] == Double.NEGATIVE_INFINITY){
+            return;
+        }
+        int degree = graph.outDegree(id);
+        for (int k = 0; k < degree; k++){
+            int target = graph.outTarget(id, k);
+            double newCost = cost[id] + graph.outWeight(id, k);
+            if (newCost > cost[target]){
+                cost[target] = newCost;
+                previous[target] = id + 1; // shifted by one, so the 0 we start with means no previous node
+            }
+        }
+    }
+
+    private ShortestPath<NodeType> pathTo(int id, double[] cost, int[] previous, int settledCount){
+        LinkedList<NodeType> path = new LinkedList<>();
+        for (int v = id + 1; v != 0; v = previous[v - 1]){
+            path.addFirst(graph.dataOf(v - 1));
+        }
+        return new ShortestPath<>(path, cost[id], settledCount);
+    }
+
+}
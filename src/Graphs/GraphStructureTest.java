@@ -0,0 +1,278 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for GraphStructure: spanning forests, topological orders and cycles, and longest paths
+ */
+public class GraphStructureTest{
+
+    /**
+     * Checks that a forest only uses real edges and has no cycles, and returns its total weight
+     */
+    private static double forestWeight(Graph<Integer, Integer> graph, int[] forest){
+        int[] parent = new int[graph.getIdBound()];
+        for (int id = 0; id < parent.length; id++){
+            parent[id] = id;
+        }
+        double weight = 0.0;
+        for (int e = 0; e < forest.length; e += 2){
+            Integer pred = graph.dataOf(forest[e]);
+            Integer succ = graph.dataOf(forest[e + 1]);
+            Assertions.assertTrue(graph.containsEdge(pred, succ));
+            weight += graph.getEdge(pred, succ);
+
+            int a = forest[e];
+            while (parent[a] != a){
+                a = parent[a];
+            }
+            int b = forest[e + 1];
+            while (parent[b] != b){
+                b = parent[b];
+            }
+            Assertions.assertTrue(a != b, "The forest has a cycle");
+            parent[a] = b;
+        }
+        return weight;
+    }
+
+    /**
+     * Builds a random acyclic graph, where every edge goes from earlier to later in a shuffled order of the nodes
+     * @return the shuffled order
+     */
+    private static List<Integer> randomDag(Graph<Integer, Integer> graph, int nodes, double density, Random rand){
+        List<Integer> rank = new ArrayList<>();
+        for (int i = 0; i < nodes; i++){
+            graph.insertNode(i);
+            rank.add(i);
+        }
+        Collections.shuffle(rank, rand);
+        for (int i = 0; i < nodes; i++){
+            for (int j = i + 1; j < nodes; j++){
+                if (rand.nextDouble() < density){
+                    graph.insertEdge(rank.get(i), rank.get(j), 1 + rand.nextInt(10));
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * This tests that Kruskal's and Prim's algorithms find forests of the same weight, made of real edges, with one
+     * edge fewer than nodes in every component
+     */
+    @Test
+    public void test1(){
+
+        // TEST 1: a triangle keeps its two cheapest edges
+        Graph<Integer, Integer> triangle = new Graph<>();
+        for (int i = 0; i < 3; i++){
+            triangle.insertNode(i);
+        }
+        triangle.insertEdge(0, 1, 1);
+        triangle.insertEdge(2, 1, 2);
+        triangle.insertEdge(0, 2, 3);
+        GraphStructure<Integer> structure = new GraphStructure<>(triangle);
+        Assertions.assertEquals(3.0, forestWeight(triangle, structure.kruskalById()), 0.0);
+        Assertions.assertEquals(3.0, forestWeight(triangle, structure.primById()), 0.0);
+        Graph<Integer, Double> forest = structure.toGraph(structure.primById());
+        Assertions.assertTrue(forest.getNodeCount() == 3 && forest.getEdgeCount() == 2);
+        Assertions.assertTrue(forest.containsEdge(2, 1) && !forest.containsEdge(0, 2));
+
+        // TEST 2: random graphs with lots of equal weights, edges both ways, removed nodes and several components
+        Random rand = new Random(13);
+        for (double density : new double[]{0.005, 0.03, 0.2}){
+            Graph<Integer, Integer> graph = new Graph<>();
+            for (int i = 0; i < 200; i++){
+                graph.insertNode(i);
+            }
+            for (int i = 0; i < 200; i++){
+                for (int j = 0; j < 200; j++){
+                    if (rand.nextDouble() < density){
+                        graph.insertEdge(i, j, rand.nextInt(5));
+                    }
+                }
+            }
+            for (int i = 0; i < 200; i += 17){
+                graph.removeNode(i);
+            }
+
+            // counting the components ourselves tells us how many edges a spanning forest has
+            int components = 0;
+            HashSet<Integer> seen = new HashSet<>();
+            for (Integer node : graph.getAllNodes()){
+                if (seen.add(node)){
+                    components++;
+                    ArrayList<Integer> stack = new ArrayList<>(Arrays.asList(node));
+                    while (!stack.isEmpty()){
+                        Integer current = stack.remove(stack.size() - 1);
+                        for (Integer other : graph.getAllNodes()){
+                            if (!seen.contains(other)
+                                    && (graph.containsEdge(current, other) || graph.containsEdge(other, current))){
+                                seen.add(other);
+                                stack.add(other);
+                            }
+                        }
+                    }
+                }
+            }
+
+            structure = new GraphStructure<>(graph);
+            int[] kruskal = structure.kruskalById();
+            int[] prim = structure.primById();
+            Assertions.assertEquals(2 * (graph.getNodeCount() - components), kruskal.length);
+            Assertions.assertEquals(kruskal.length, prim.length);
+            Assertions.assertEquals(forestWeight(graph, kruskal), forestWeight(graph, prim), 1e-9);
+        }
+
+    }
+
+    /**
+     * This tests topological orders, and that findCycle returns real cycles once there is one
+     */
+    @Test
+    public void test2(){
+
+        Random rand = new Random(17);
+        Graph<Integer, Integer> graph = new Graph<>();
+        List<Integer> rank = randomDag(graph, 100, 0.05, rand);
+        GraphStructure<Integer> structure = new GraphStructure<>(graph);
+
+        // TEST 1: every edge goes forward in the order, and there's no cycle to find
+        List<Integer> order = structure.topologicalOrder();
+        Assertions.assertEquals(100, order.size());
+        for (int i = 0; i < order.size(); i++){
+            for (int j = 0; j < i; j++){
+                Assertions.assertTrue(!graph.containsEdge(order.get(i), order.get(j)));
+            }
+        }
+        Assertions.assertTrue(structure.isAcyclic() && structure.findCycle().isEmpty());
+
+        // TEST 2: a chain of edges forward and one edge back make a cycle, which findCycle walks along real edges
+        graph.insertEdge(rank.get(90), rank.get(10), 1);
+        for (int i = 10; i < 90; i++){
+            graph.insertEdge(rank.get(i), rank.get(i + 1), 1);
+        }
+        Assertions.assertTrue(!structure.isAcyclic());
+        try{
+            structure.topologicalOrder();
+            Assertions.fail();
+        }catch(IllegalStateException e){
+        }
+        List<Integer> cycle = structure.findCycle();
+        Assertions.assertTrue(cycle.size() >= 3);
+        Assertions.assertEquals(cycle.get(0), cycle.get(cycle.size() - 1));
+        Assertions.assertEquals(cycle.size() - 1, new HashSet<>(cycle).size());
+        for (int i = 0; i + 1 < cycle.size(); i++){
+            Assertions.assertTrue(graph.containsEdge(cycle.get(i), cycle.get(i + 1)));
+        }
+
+        // TEST 3: a self loop is a cycle of its own
+        Graph<Integer, Integer> loop = new Graph<>();
+        loop.insertNode(1);
+        loop.insertNode(2);
+        loop.insertEdge(1, 2, 1);
+        loop.insertEdge(2, 2, 1);
+        structure = new GraphStructure<>(loop);
+        Assertions.assertEquals(Arrays.asList(2, 2), structure.findCycle());
+        try{
+            structure.topologicalOrderById();
+            Assertions.fail();
+        }catch(IllegalStateException e){
+        }
+
+    }
+
+    /**
+     * This tests longest paths on a small schedule we can work out by hand, and against a plain dynamic program over
+     * random acyclic graphs
+     */
+    @Test
+    public void test3(){
+
+        // TEST 1: a -> c -> d -> e costs 9, more than a -> b -> d -> e at 8
+        Graph<String, Integer> schedule = new Graph<>();
+        for (String name : new String[]{"a", "b", "c", "d", "e", "f"}){
+            schedule.insertNode(name);
+        }
+        schedule.insertEdge("a", "b", 3);
+        schedule.insertEdge("a", "c", 2);
+        schedule.insertEdge("b", "d", 4);
+        schedule.insertEdge("c", "d", 6);
+        schedule.insertEdge("d", "e", 1);
+        GraphStructure<String> structure = new GraphStructure<>(schedule);
+        ShortestPath<String> path = structure.longestPath();
+        Assertions.assertEquals(9.0, path.getCost(), 0.0);
+        Assertions.assertEquals(Arrays.asList("a", "c", "d", "e"), path.getNodes());
+        path = structure.longestPath("b", "e");
+        Assertions.assertEquals(5.0, path.getCost(), 0.0);
+        Assertions.assertEquals(Arrays.asList("b", "d", "e"), path.getNodes());
+        Assertions.assertEquals(Arrays.asList("f"), structure.longestPath("f", "f").getNodes());
+
+        // TEST 2: no path, a missing node, and a cycle are all errors
+        try{
+            structure.longestPath("e", "a");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        try{
+            structure.longestPath("a", "z");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        schedule.insertEdge("e", "a", 1);
+        try{
+            structure.longestPath();
+            Assertions.fail();
+        }catch(IllegalStateException e){
+        }
+
+        // TEST 3: random graphs give the same costs as going through the nodes in the order we built them in
+        Random rand = new Random(19);
+        for (int round = 0; round < 5; round++){
+            Graph<Integer, Integer> graph = new Graph<>();
+            List<Integer> rank = randomDag(graph, 60, 0.1, rand);
+            GraphStructure<Integer> dag = new GraphStructure<>(graph);
+            int start = 5 + round;
+            double[] best = new double[60];
+            Arrays.fill(best, Double.NEGATIVE_INFINITY);
+            best[start] = 0.0;
+            double overall = 0.0;
+            double[] anywhere = new double[60];
+            for (int i = 0; i < 60; i++){
+                for (int j = i + 1; j < 60; j++){
+                    if (graph.containsEdge(rank.get(i), rank.get(j))){
+                        double weight = graph.getEdge(rank.get(i), rank.get(j));
+                        best[j] = Math.max(best[j], best[i] + weight);
+                        anywhere[j] = Math.max(anywhere[j], anywhere[i] + weight);
+                    }
+                }
+                overall = Math.max(overall, anywhere[i]);
+            }
+            Assertions.assertEquals(overall, dag.longestPath().getCost(), 0.0);
+            for (int j = start; j < 60; j++){
+                if (best[j] != Double.NEGATIVE_INFINITY){
+                    ShortestPath<Integer> found = dag.longestPath(rank.get(start), rank.get(j));
+                    Assertions.assertEquals(best[j], found.getCost(), 0.0);
+                    double cost = 0.0;
+                    List<Integer> nodes = found.getNodes();
+                    for (int i = 0; i + 1 < nodes.size(); i++){
+                        cost += graph.getEdge(nodes.get(i), nodes.get(i + 1));
+                    }
+                    Assertions.assertEquals(best[j], cost, 0.0);
+                }
+            }
+        }
+
+    }
+
+}
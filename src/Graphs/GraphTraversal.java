@@ -0,0 +1,451 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This runs traversals over the ids of an indexed graph: breadth first search, depth first search, and finding the
+ * weakly and strongly connected components. Everything works on primitive arrays indexed by node id, and nothing is
+ * recursive, so very large and very deep graphs are fine.
+ *
+ * Breadth first search is direction optimizing and runs in parallel on the common fork join pool. While the frontier
+ * is small, it expands top down, following the outgoing edges of the frontier nodes. Once the frontier's edges
+ * outnumber a fraction of the edges left to check, it switches to bottom up, where every unvisited node scans its
+ * incoming edges for a parent in the frontier and can stop at the first one it finds. It switches back to top down
+ * when the frontier gets small again.
+ *
+ * The graph shouldn't be changed while a traversal is running.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class GraphTraversal<NodeType> {
+
+    /** We switch to bottom up once the frontier has more than 1/ALPHA of the edges left to check */
+    private static final int ALPHA = 14;
+    /** We switch back to top down once the frontier has less than 1/BETA of the nodes */
+    private static final int BETA = 24;
+    /** How many nodes a fork join task handles on its own before it splits its work in two */
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * This task runs one top down step over a range of the frontier. Every unvisited node a frontier node has an edge
+     * to is claimed for the next level with a compare and set, so each node is claimed once
+     */
+    protected class TopDownStep extends RecursiveTask<int[]>{
+        private static final long serialVersionUID = 1L;
+
+        int[] frontier;
+        int from;
+        int to;
+        int nextLevel;
+
+        /**
+         * Creates a task that expands frontier[from] up to frontier[to] into the given level
+         */
+        public TopDownStep(int[] frontier, int from, int to, int nextLevel){
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.nextLevel = nextLevel;
+        }
+
+        @Override
+        protected int[] compute(){
+            if (to - from > PARALLEL_THRESHOLD){
+                int mid = (from + to) >>> 1;
+                TopDownStep left = new TopDownStep(frontier, from, mid, nextLevel);
+                left.fork();
+                int[] right = new TopDownStep(frontier, mid, to, nextLevel).compute();
+                return concat(left.join(), right);
+            }
+
+            int[] claimed = new int[16];
+            int size = 0;
+            for (int f = from; f < to; f++){
+                int id = frontier[f];
+                int degree = graph.outDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int target = graph.outTarget(id, k);
+                    if (levels.get(target) == -1 && levels.compareAndSet(target, -1, nextLevel)){
+                        if (size == claimed.length){
+                            claimed = Arrays.copyOf(claimed, size * 2);
+                        }
+                        claimed[size++] = target;
+                    }
+                }
+            }
+            return Arrays.copyOf(claimed, size);
+        }
+    }
+
+    /**
+     * This task runs one bottom up step over a range of ids. Every unvisited node looks through its incoming edges
+     * for a node on the current level, and joins the next level as soon as it finds one. Each task only writes the
+     * levels of its own ids, so no compare and set is needed
+     */
+    protected class BottomUpStep extends RecursiveTask<int[]>{
+        private static final long serialVersionUID = 1L;
+
+        int from;
+        int to;
+        int nextLevel;
+
+        /**
+         * Creates a task that checks ids from up to to
+         */
+        public BottomUpStep(int from, int to, int nextLevel){
+            this.from = from;
+            this.to = to;
+            this.nextLevel = nextLevel;
+        }
+
+        @Override
+        protected int[] compute(){
+            if (to - from > PARALLEL_THRESHOLD){
+                int mid = (from + to) >>> 1;
+                BottomUpStep left = new BottomUpStep(from, mid, nextLevel);
+                left.fork();
+                int[] right = new BottomUpStep(mid, to, nextLevel).compute();
+                return concat(left.join(), right);
+            }
+
+            int[] claimed = new int[16];
+            int size = 0;
+            for (int id = from; id < to; id++){
+                if (levels.get(id) != -1 || !graph.containsId(id)){
+                    continue;
+                }
+                int degree = graph.inDegree(id);
+                for (int k = 0; k < degree; k++){
+                    if (levels.get(graph.inSource(id, k)) == nextLevel - 1){
+                        levels.set(id, nextLevel);
+                        if (size == claimed.length){
+                            claimed = Arrays.copyOf(claimed, size * 2);
+                        }
+                        claimed[size++] = id;
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(claimed, size);
+        }
+    }
+
+    private IndexedGraph<NodeType> graph;
+    /** The level of every id in the breadth first search that's running, or -1 if it hasn't been reached */
+    private AtomicIntegerArray levels;
+
+    /**
+     * Creates a new traversal engine over a graph
+     * @param graph the graph to traverse
+     */
+    public GraphTraversal(IndexedGraph<NodeType> graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Joins two arrays of ids together
+     */
+    private static int[] concat(int[] first, int[] second){
+        if (first.length == 0){
+            return second;
+        }
+        if (second.length == 0){
+            return first;
+        }
+        int[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    /**
+     * Runs a direction optimizing parallel breadth first search from the start node
+     *
+     * @param start the data item of the node to start from
+     * @return an array with the level of every id, which is how many edges the shortest path from the start to it
+     *         has, or -1 if it can't be reached (or has no node)
+     * @throws NoSuchElementException if the start node isn't in the graph
+     */
+    public synchronized int[] breadthFirstLevelsById(NodeType start){
+
+        int startId = graph.requireId(start);
+        int idBound = graph.getIdBound();
+        levels = new AtomicIntegerArray(idBound);
+        for (int id = 0; id < idBound; id++){
+            levels.set(id, -1);
+        }
+        levels.set(startId, 0);
+
+        // the edges bottom up would still have to check, which are the incoming edges of unvisited nodes
+        long edgesToCheck = 0;
+        int nodeCount = 0;
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                edgesToCheck += graph.inDegree(id);
+                nodeCount++;
+            }
+        }
+        edgesToCheck -= graph.inDegree(startId);
+
+        int[] frontier = new int[]{startId};
+        boolean bottomUp = false;
+        for (int level = 1; frontier.length > 0; level++){
+
+            long frontierEdges = 0;
+            for (int id : frontier){
+                frontierEdges += graph.outDegree(id);
+            }
+
+            if (!bottomUp && frontierEdges > edgesToCheck / ALPHA){
+                bottomUp = true;
+            }else if (bottomUp && frontier.length < nodeCount / BETA){
+                bottomUp = false;
+            }
+
+            if (bottomUp){
+                frontier = ForkJoinPool.commonPool().invoke(new BottomUpStep(0, idBound, level));
+            }else{
+                frontier = ForkJoinPool.commonPool().invoke(new TopDownStep(frontier, 0, frontier.length, level));
+            }
+
+            for (int id : frontier){
+                edgesToCheck -= graph.inDegree(id);
+            }
+        }
+
+        int[] result = new int[idBound];
+        for (int id = 0; id < idBound; id++){
+            result[id] = levels.get(id);
+        }
+        levels = null;
+        return result;
+    }
+
+    /**
+     * Runs a breadth first search from the start node, and returns the nodes grouped by level
+     *
+     * @param start the data item of the node to start from
+     * @return a list of levels, where level d holds the nodes whose shortest path from the start has d edges
+     * @throws NoSuchElementException if the start node isn't in the graph
+     */
+    public List<List<NodeType>> breadthFirstLevels(NodeType start){
+
+        int[] levelOf = breadthFirstLevelsById(start);
+        List<List<NodeType>> levels = new ArrayList<>();
+        for (int id = 0; id < levelOf.length; id++){
+            if (levelOf[id] == -1){
+                continue;
+            }
+            while (levels.size() <= levelOf[id]){
+                levels.add(new ArrayList<>());
+            }
+            levels.get(levelOf[id]).add(graph.dataOf(id));
+        }
+        return levels;
+    }
+
+    /**
+     * Returns every node that can be reached from the start node, including the start node itself
+     *
+     * @param start the data item of the node to start from
+     * @return the data of every reachable node, in id order
+     * @throws NoSuchElementException if the start node isn't in the graph
+     */
+    public List<NodeType> reachableFrom(NodeType start){
+        int[] levelOf = breadthFirstLevelsById(start);
+        List<NodeType> reachable = new ArrayList<>();
+        for (int id = 0; id < levelOf.length; id++){
+            if (levelOf[id] != -1){
+                reachable.add(graph.dataOf(id));
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Runs a depth first search from the start node, following outgoing edges in the order the graph stores them.
+     * It keeps its own stack of ids and edge positions instead of recursing, so it works on paths of any length
+     *
+     * @param start the data item of the node to start from
+     * @return the data of every reachable node, in the order the search first visits them
+     * @throws NoSuchElementException if the start node isn't in the graph
+     */
+    public List<NodeType> depthFirstOrder(NodeType start){
+
+        int startId = graph.requireId(start);
+        int idBound = graph.getIdBound();
+        boolean[] visited = new boolean[idBound];
+        int[] stack = new int[idBound];
+        int[] nextEdge = new int[idBound]; // which edge of each node on the stack we follow next
+        int top = 0;
+
+        List<NodeType> order = new ArrayList<>();
+        stack[0] = startId;
+        visited[startId] = true;
+        order.add(graph.dataOf(startId));
+
+        while (top >= 0){
+            int id = stack[top];
+            if (nextEdge[id] == graph.outDegree(id)){ // we're done with this node
+                top--;
+                continue;
+            }
+
+            int target = graph.outTarget(id, nextEdge[id]++);
+            if (!visited[target]){
+                visited[target] = true;
+                order.add(graph.dataOf(target));
+                stack[++top] = target;
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Labels every node with its weakly connected component, which is the set of nodes it's connected to when we
+     * ignore the directions of the edges. This is a union find over all the edges
+     *
+     * @return an array with a component number from 0 up to the number of components for every id, or -1 for ids
+     *         without a node
+     */
+    public int[] weakComponentIds(){
+
+        int idBound = graph.getIdBound();
+        UnionFind components = new UnionFind(idBound);
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                int degree = graph.outDegree(id);
+                for (int k = 0; k < degree; k++){
+                    components.union(id, graph.outTarget(id, k));
+                }
+            }
+        }
+
+        int[] componentOf = new int[idBound];
+        int[] numberOfRoot = new int[idBound];
+        Arrays.fill(numberOfRoot, -1);
+        int componentCount = 0;
+        for (int id = 0; id < idBound; id++){
+            if (!graph.containsId(id)){
+                componentOf[id] = -1;
+                continue;
+            }
+            int root = components.find(id);
+            if (numberOfRoot[root] == -1){
+                numberOfRoot[root] = componentCount++;
+            }
+            componentOf[id] = numberOfRoot[root];
+        }
+        return componentOf;
+    }
+
+    /**
+     * Labels every node with its strongly connected component, which is the set of nodes that it can reach and that
+     * can reach it. This is Tarjan's algorithm, with its own stack instead of recursion, so it runs in O(V+E) no
+     * matter how deep the graph is. Components are numbered in the order Tarjan's algorithm finishes them, which is a
+     * reverse topological order: an edge between two components always goes to a smaller number.
+     *
+     * @return an array with a component number from 0 up to the number of components for every id, or -1 for ids
+     *         without a node
+     */
+    public int[] strongComponentIds(){
+
+        int idBound = graph.getIdBound();
+        int[] index = new int[idBound]; // the order each node was found in, starting at 1 (0 means not found yet)
+        int[] lowLink = new int[idBound];
+        int[] componentOf = new int[idBound];
+        Arrays.fill(componentOf, -1);
+
+        int[] callStack = new int[idBound];
+        int[] nextEdge = new int[idBound];
+        int[] componentStack = new int[idBound]; // the nodes that haven't been put in a component yet
+        int componentTop = -1;
+        int nextIndex = 1;
+        int componentCount = 0;
+
+        for (int root = 0; root < idBound; root++){
+            if (!graph.containsId(root) || index[root] != 0){
+                continue;
+            }
+
+            int top = 0;
+            callStack[0] = root;
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[++componentTop] = root;
+
+            while (top >= 0){
+                int id = callStack[top];
+
+                if (nextEdge[id] < graph.outDegree(id)){
+                    int target = graph.outTarget(id, nextEdge[id]++);
+                    if (index[target] == 0){ // we go deeper
+                        index[target] = lowLink[target] = nextIndex++;
+                        componentStack[++componentTop] = target;
+                        callStack[++top] = target;
+                    }else if (componentOf[target] == -1){ // it's still on the component stack
+                        lowLink[id] = Math.min(lowLink[id], index[target]);
+                    }
+                    continue;
+                }
+
+                // we're done with this node, so if it's the root of a component we pop the component off
+                if (lowLink[id] == index[id]){
+                    int member;
+                    do {
+                        member = componentStack[componentTop--];
+                        componentOf[member] = componentCount;
+                    } while (member != id);
+                    componentCount++;
+                }
+
+                top--;
+                if (top >= 0){
+                    int parent = callStack[top];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[id]);
+                }
+            }
+        }
+
+        return componentOf;
+    }
+
+    /**
+     * Returns the weakly connected components of the graph
+     * @return a list of components, each holding the data of its nodes
+     */
+    public List<List<NodeType>> weaklyConnectedComponents(){
+        return group(weakComponentIds());
+    }
+
+    /**
+     * Returns the strongly connected components of the graph, in reverse topological order
+     * @return a list of components, each holding the data of its nodes
+     */
+    public List<List<NodeType>> stronglyConnectedComponents(){
+        return group(strongComponentIds());
+    }
+
+    /**
+     * Turns an array of component numbers into a list of components
+     */
+    private List<List<NodeType>> group(int[] componentOf){
+        List<List<NodeType>> components = new ArrayList<>();
+        for (int id = 0; id < componentOf.length; id++){
+            if (componentOf[id] == -1){
+                continue;
+            }
+            while (components.size() <= componentOf[id]){
+                components.add(new ArrayList<>());
+            }
+            components.get(componentOf[id]).add(graph.dataOf(id));
+        }
+        return components;
+    }
+
+}
@@ -0,0 +1,210 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for GraphTraversal, checked against plain one node at a time searches
+ */
+public class GraphTraversalTest{
+
+    /**
+     * Fills a graph with random edges, then removes some nodes so there are ids without one
+     */
+    private static Graph<Integer, Integer> randomGraph(int nodes, int edges, Random rand){
+        Graph<Integer, Integer> graph = new Graph<>();
+        for (int i = 0; i < nodes; i++){
+            graph.insertNode(i);
+        }
+        for (int e = 0; e < edges; e++){
+            graph.insertEdge(rand.nextInt(nodes), rand.nextInt(nodes), 1);
+        }
+        for (int i = 0; i < nodes; i += 50){
+            graph.removeNode(i);
+        }
+        return graph;
+    }
+
+    /**
+     * Runs a plain breadth first search with a queue, following outgoing edges one at a time
+     * @return the level of every id, or -1 if the start can't reach it
+     */
+    private static int[] plainLevels(IndexedGraph<Integer> graph, int start){
+        int[] levels = new int[graph.getIdBound()];
+        Arrays.fill(levels, -1);
+        int[] queue = new int[graph.getIdBound()];
+        int size = 0;
+        queue[size++] = start;
+        levels[start] = 0;
+        for (int head = 0; head < size; head++){
+            int id = queue[head];
+            for (int k = 0; k < graph.outDegree(id); k++){
+                int target = graph.outTarget(id, k);
+                if (levels[target] == -1){
+                    levels[target] = levels[id] + 1;
+                    queue[size++] = target;
+                }
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * This tests the direction optimizing breadth first search against a plain one, on graphs sparse enough to stay
+     * top down and dense enough to switch to bottom up and back, big enough to split the work into tasks
+     */
+    @Test
+    public void test1(){
+
+        Random rand = new Random(31);
+        for (int edges : new int[]{3000, 12000, 60000}){
+            Graph<Integer, Integer> graph = randomGraph(5000, edges, rand);
+            GraphTraversal<Integer> traversal = new GraphTraversal<>(graph);
+
+            for (int start = 1; start < 5000; start += 997){
+
+                // TEST 1: every id gets the level the plain search gives it
+                int[] expected = plainLevels(graph, graph.idOf(start));
+                Assertions.assertTrue(Arrays.equals(expected, traversal.breadthFirstLevelsById(start)));
+
+                // TEST 2: the levels and the reachable nodes come from the same search
+                List<List<Integer>> levels = traversal.breadthFirstLevels(start);
+                List<Integer> reachable = traversal.reachableFrom(start);
+                int count = 0;
+                for (int d = 0; d < levels.size(); d++){
+                    for (Integer node : levels.get(d)){
+                        Assertions.assertEquals(d, expected[graph.idOf(node)]);
+                        Assertions.assertTrue(reachable.contains(node));
+                        count++;
+                    }
+                }
+                Assertions.assertEquals(reachable.size(), count);
+            }
+        }
+
+    }
+
+    /**
+     * This tests that two nodes share a strongly connected component exactly when each can reach the other, and a
+     * weakly connected component exactly when they're connected ignoring directions
+     */
+    @Test
+    public void test2(){
+
+        Random rand = new Random(37);
+        for (int edges : new int[]{150, 300, 600}){
+            Graph<Integer, Integer> graph = randomGraph(300, edges, rand);
+            GraphTraversal<Integer> traversal = new GraphTraversal<>(graph);
+            int[] strong = traversal.strongComponentIds();
+            int[] weak = traversal.weakComponentIds();
+            int idBound = graph.getIdBound();
+
+            // the undirected version of the graph, for the weak components
+            Graph<Integer, Integer> undirected = new Graph<>();
+            for (int id = 0; id < idBound; id++){
+                if (graph.containsId(id)){
+                    undirected.insertNode(graph.dataOf(id));
+                }
+            }
+            for (int id = 0; id < idBound; id++){
+                for (int k = 0; graph.containsId(id) && k < graph.outDegree(id); k++){
+                    Integer pred = graph.dataOf(id);
+                    Integer succ = graph.dataOf(graph.outTarget(id, k));
+                    undirected.insertEdge(pred, succ, 1);
+                    undirected.insertEdge(succ, pred, 1);
+                }
+            }
+
+            // TEST 1: the component ids agree with plain searches from every node
+            int[][] reach = new int[idBound][];
+            for (int id = 0; id < idBound; id++){
+                if (graph.containsId(id)){
+                    reach[id] = plainLevels(graph, id);
+                }else{
+                    Assertions.assertTrue(strong[id] == -1 && weak[id] == -1);
+                }
+            }
+            for (int i = 0; i < idBound; i++){
+                if (reach[i] == null){
+                    continue;
+                }
+                int[] connected = plainLevels(undirected, undirected.idOf(graph.dataOf(i)));
+                for (int j = 0; j < idBound; j++){
+                    if (reach[j] == null){
+                        continue;
+                    }
+                    boolean mutual = reach[i][j] != -1 && reach[j][i] != -1;
+                    Assertions.assertEquals(mutual, strong[i] == strong[j]);
+                    Assertions.assertEquals(connected[undirected.idOf(graph.dataOf(j))] != -1, weak[i] == weak[j]);
+                }
+            }
+
+            // TEST 2: edges between strong components always go to a smaller component number
+            for (int id = 0; id < idBound; id++){
+                for (int k = 0; graph.containsId(id) && k < graph.outDegree(id); k++){
+                    Assertions.assertTrue(strong[graph.outTarget(id, k)] <= strong[id]);
+                }
+            }
+
+            // TEST 3: the grouped components hold every node once
+            int total = 0;
+            for (List<Integer> component : traversal.stronglyConnectedComponents()){
+                total += component.size();
+            }
+            Assertions.assertEquals(graph.getNodeCount(), total);
+        }
+
+    }
+
+    /**
+     * This tests every traversal on a path of a million nodes, which would overflow the stack if anything recursed
+     */
+    @Test
+    public void test3(){
+
+        int n = 1_000_000;
+        List<Integer> values = new ArrayList<>(n);
+        int[] sources = new int[n];
+        int[] targets = new int[n];
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++){
+            values.add(i);
+            sources[i] = i;
+            targets[i] = i + 1;
+            weights[i] = 1.0;
+        }
+        targets[n - 1] = 0; // the last edge closes the path into a cycle for the strong components
+        CsrGraph<Integer> cycle = new CsrGraph<>(values, sources, targets, weights);
+        CsrGraph<Integer> path = new CsrGraph<>(values, Arrays.copyOf(sources, n - 1), Arrays.copyOf(targets, n - 1),
+                Arrays.copyOf(weights, n - 1));
+
+        // TEST 1: the depth first search goes all the way down the path
+        GraphTraversal<Integer> traversal = new GraphTraversal<>(path);
+        List<Integer> order = traversal.depthFirstOrder(0);
+        Assertions.assertEquals(n, order.size());
+        Assertions.assertEquals(n - 1, (int)order.get(n - 1));
+
+        // TEST 2: the breadth first search gives every node its own level
+        int[] levels = traversal.breadthFirstLevelsById(0);
+        for (int i = 0; i < n; i++){
+            Assertions.assertEquals(i, levels[path.idOf(i)]);
+        }
+
+        // TEST 3: every node of the path is its own strong component, in reverse order, and they're all one weak one
+        int[] strong = traversal.strongComponentIds();
+        for (int i = 0; i < n; i++){
+            Assertions.assertEquals(n - 1 - i, strong[path.idOf(i)]);
+        }
+        Assertions.assertEquals(1, traversal.weaklyConnectedComponents().size());
+
+        // TEST 4: closing the path into a cycle makes it one strong component
+        Assertions.assertEquals(1, new GraphTraversal<>(cycle).stronglyConnectedComponents().size());
+
+    }
+
+}
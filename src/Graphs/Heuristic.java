@@ -0,0 +1,23 @@
+package Graphs;
+
+/**
+ * A heuristic gives an estimate of the cost of the cheapest path between two nodes in a graph. A* search uses it
+ * to look at the nodes that seem closest to the goal first.
+ * 
+ * For A* to always find the shortest path, the heuristic has to be admissible, meaning it never overestimates
+ * the real cost of getting to the goal. A heuristic that always returns 0 is admissible, and makes A* behave
+ * exactly like Dijkstra's algorithm.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface Heuristic<NodeType> {
+
+    /**
+     * Estimates the cost of the cheapest path from node to goal
+     * @param node the data item of the node we're estimating from
+     * @param goal the data item of the node we're trying to get to
+     * @return a non-negative estimate that is no bigger than the real cost of the cheapest path
+     */
+    public double estimate(NodeType node, NodeType goal);
+
+}
@@ -0,0 +1,90 @@
+package Graphs;
+
+import java.util.NoSuchElementException;
+
+/**
+ * This interface is for graphs that give every node a dense int id, and can hand out the edges of a node by position
+ * without going through any maps. Algorithms written against it work on ids and primitive weights only, so they
+ * don't pay for hashing or boxing while they run.
+ *
+ * Ids go from 0 up to (but not including) getIdBound(). A graph that allows removing nodes may leave some of those
+ * ids without a node, which containsId tells us about. The degree, neighbor and weight methods should only be
+ * called with ids that have a node.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface IndexedGraph<NodeType> {
+
+    /**
+     * Returns one more than the biggest id a node can currently have
+     * @return the bound on node ids
+     */
+    public int getIdBound();
+
+    /**
+     * Checks whether a node currently has the given id
+     * @param id the id to check
+     * @return true if there is a node with this id
+     */
+    public boolean containsId(int id);
+
+    /**
+     * Returns the id of the node with the given data
+     * @param data the data item of the node
+     * @return the id of the node, or -1 if it isn't in the graph
+     */
+    public int idOf(NodeType data);
+
+    /**
+     * Returns the data of the node with the given id
+     * @param id the id of the node
+     * @return the data item of the node
+     * @throws NoSuchElementException if no node has this id
+     */
+    public NodeType dataOf(int id);
+
+    /**
+     * Returns the id of the node with the given data, for when the node has to be in the graph
+     * @param data the data item of the node
+     * @return the id of the node
+     * @throws NoSuchElementException if the node isn't in the graph
+     */
+    public default int requireId(NodeType data){
+        int id = idOf(data);
+        if (id == -1){
+            throw new NoSuchElementException("Node isn't in our graph");
+        }
+        return id;
+    }
+
+    /**
+     * Returns how many edges go out of the node with the given id
+     */
+    public int outDegree(int id);
+
+    /**
+     * Returns the id of the node the kth outgoing edge of a node goes to
+     */
+    public int outTarget(int id, int k);
+
+    /**
+     * Returns the weight of the kth outgoing edge of a node
+     */
+    public double outWeight(int id, int k);
+
+    /**
+     * Returns how many edges come into the node with the given id
+     */
+    public int inDegree(int id);
+
+    /**
+     * Returns the id of the node the kth incoming edge of a node comes from
+     */
+    public int inSource(int id, int k);
+
+    /**
+     * Returns the weight of the kth incoming edge of a node
+     */
+    public double inWeight(int id, int k);
+
+}
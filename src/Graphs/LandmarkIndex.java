@@ -0,0 +1,194 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This is a preprocessed index for answering lots of shortest path queries on a graph that doesn't change often.
+ * It uses the ALT technique (A*, Landmarks and the Triangle inequality): we pick a few landmark nodes and store the
+ * cost of the shortest path from every landmark to every node and from every node to every landmark. By the
+ * triangle inequality, these give us a lower bound on the cost between any two nodes, which we then use as an A*
+ * heuristic. That heuristic is a lot sharper than one based on coordinates, so queries only settle a small
+ * fraction of the graph.
+ *
+ * The index works on an immutable CSR snapshot of the graph, so it doesn't see changes made to the graph after it
+ * was built. Queries can be run from several threads at once.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class LandmarkIndex<NodeType> {
+
+    private CsrGraph<NodeType> graph;
+
+    private int[] landmarks;
+    /** The cost from landmark l to node v is stored at v*landmarks.length + l, so a node's bounds are side by side */
+    private double[] fromLandmark;
+    /** The cost from node v to landmark l is stored at v*landmarks.length + l */
+    private double[] toLandmark;
+
+    /**
+     * Builds a landmark index over a CSR graph
+     *
+     * @param graph the graph to answer queries on
+     * @param landmarkCount how many landmarks to pick. More landmarks give sharper bounds but use more memory
+     * @throws IllegalArgumentException if landmarkCount isn't positive
+     */
+    public LandmarkIndex(CsrGraph<NodeType> graph, int landmarkCount){
+
+        if (landmarkCount < 1){
+            throw new IllegalArgumentException("We need at least one landmark");
+        }
+
+        this.graph = graph;
+        selectLandmarks(Math.min(landmarkCount, graph.getNodeCount()));
+    }
+
+    /**
+     * Picks the landmarks one at a time, always taking the node that is furthest from the landmarks we already have.
+     * Landmarks on the edge of the graph give the best bounds. Nodes that can't reach or be reached from any landmark
+     * count as infinitely far, so every disconnected part of the graph gets a landmark of its own if we have enough.
+     */
+    private void selectLandmarks(int landmarkCount){
+
+        int n = graph.getNodeCount();
+        landmarks = new int[landmarkCount];
+        fromLandmark = new double[n * landmarkCount];
+        toLandmark = new double[n * landmarkCount];
+
+        double[] closest = new double[n]; // how close each node is to the landmarks we've picked so far
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+
+        // we start from whichever node is furthest from node 0
+        int next = 0;
+        if (n > 0){
+            next = furthest(graph.pathSearch.distances(0, true), closest);
+        }
+
+        for (int l = 0; l < landmarkCount; l++){
+
+            landmarks[l] = next;
+            double[] from = graph.pathSearch.distances(next, true);
+            double[] to = graph.pathSearch.distances(next, false);
+
+            for (int v = 0; v < n; v++){
+                fromLandmark[v*landmarkCount + l] = from[v];
+                toLandmark[v*landmarkCount + l] = to[v];
+                closest[v] = Math.min(closest[v], from[v] + to[v]);
+            }
+
+            next = furthest(closest, closest);
+        }
+
+    }
+
+    /**
+     * Returns the node with the biggest distance that hasn't already been picked as a landmark (closest of 0)
+     */
+    private int furthest(double[] distances, double[] closest){
+        int furthest = 0;
+        for (int v = 0; v < distances.length; v++){
+            if (closest[v] != 0.0 && (closest[furthest] == 0.0 || distances[v] > distances[furthest])){
+                furthest = v;
+            }
+        }
+        return furthest;
+    }
+
+    /**
+     * Returns the lower bound on the cost of a path from node v to node t that the landmarks give us. For each
+     * landmark L, cost(v,t) >= cost(L,t) - cost(L,v) and cost(v,t) >= cost(v,L) - cost(t,L).
+     *
+     * @return the lower bound, or infinity if the landmarks prove that t can't be reached from v
+     */
+    private double lowerBound(int v, int t){
+
+        int k = landmarks.length;
+        double bound = 0.0;
+
+        for (int l = 0; l < k; l++){
+
+            double fromV = fromLandmark[v*k + l];
+            double fromT = fromLandmark[t*k + l];
+            if (fromV != Double.POSITIVE_INFINITY){
+                if (fromT == Double.POSITIVE_INFINITY){ // L reaches v but not t, so v can't reach t
+                    return Double.POSITIVE_INFINITY;
+                }
+                bound = Math.max(bound, fromT - fromV);
+            }
+
+            double toV = toLandmark[v*k + l];
+            double toT = toLandmark[t*k + l];
+            if (toT != Double.POSITIVE_INFINITY){
+                if (toV == Double.POSITIVE_INFINITY){ // t reaches L but v doesn't, so v can't reach t
+                    return Double.POSITIVE_INFINITY;
+                }
+                bound = Math.max(bound, toV - toT);
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * Returns the lower bound on the cost of the shortest path between two nodes given by the landmarks
+     * @param from the data item of the node the path starts at
+     * @param to the data item of the node the path ends at
+     * @return a lower bound on the cost, infinity if there can't be a path, or 0 if either node isn't in the index
+     */
+    public double lowerBound(NodeType from, NodeType to){
+        int v = graph.idOf(from);
+        int t = graph.idOf(to);
+        if (v == -1 || t == -1){
+            return 0.0;
+        }
+        return lowerBound(v, t);
+    }
+
+    /**
+     * Returns the landmark bounds as a heuristic, so they can also be used with GraphADT.shortestPath. The
+     * heuristic is only admissible as long as the graph hasn't changed since this index was built.
+     * @return a heuristic that estimates with the landmark lower bounds
+     */
+    public Heuristic<NodeType> asHeuristic(){
+        return this::lowerBound;
+    }
+
+    /**
+     * Returns the data of the nodes that were picked as landmarks
+     * @return the landmark node data
+     */
+    public List<NodeType> getLandmarks(){
+        ArrayList<NodeType> landmarkValues = new ArrayList<>();
+        for (int landmark : landmarks){
+            landmarkValues.add(graph.dataOf(landmark));
+        }
+        return landmarkValues;
+    }
+
+    /**
+     * Finds the shortest path between two nodes with an A* search that uses the landmark lower bounds
+     *
+     * @param start the data item in the starting node for the path
+     * @param end the data item in the destination node for the path
+     * @return the nodes along the shortest path, its cost, and the number of nodes settled to find it
+     * @throws NoSuchElementException if either node isn't in the index or there's no path between them
+     */
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end){
+
+        int startId = graph.requireId(start);
+        int endId = graph.requireId(end);
+
+        return graph.pathSearch.search(startId, endId, id -> lowerBound(id, endId), true);
+    }
+
+    /**
+     * Returns the graph this index answers queries on
+     * @return the CSR graph the index was built over
+     */
+    public CsrGraph<NodeType> getGraph(){
+        return graph;
+    }
+
+}
@@ -0,0 +1,504 @@
+package Graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This is a read only graph served straight out of a memory mapped binary graph file. Opening a file only maps it,
+ * so even a huge graph can be queried right away, and the operating system pages in just the parts we touch. Nothing
+ * is turned into objects except the node labels we hand back.
+ *
+ * A graph file holds a CSR graph (see CsrGraph) with its node data written out as strings. It is little endian and
+ * laid out like this, with every section starting on an 8 byte boundary:
+ *
+ *   header         magic, version, node count n, edge count E, label byte count, hash table size (6 ints)
+ *   outOffsets     n+1 ints
+ *   outTargets     E ints
+ *   outWeights     E doubles
+ *   inOffsets      n+1 ints
+ *   inSources      E ints
+ *   inWeights      E doubles
+ *   labelOffsets   n+1 ints, node v's label is bytes labelOffsets[v] up to labelOffsets[v+1] of the label bytes
+ *   hashTable      an open addressing table of node ids (or -1), by the String.hashCode of their labels
+ *   labelBytes     the UTF-8 bytes of all the labels
+ *
+ * The hash table lets us find a node by its label without reading all the labels in. Each section has to fit in
+ * one mapping, so a file can have at most about 268 million edges.
+ *
+ * Since the graph is read only, all the methods that would change it throw an UnsupportedOperationException.
+ */
+public class MappedGraph implements GraphADT<String, Double>, IndexedGraph<String>{
+
+    private static final int MAGIC = 0x47524148; // "GRAH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private int nodeCount;
+    private int edgeCount;
+
+    private IntBuffer outOffsets;
+    private IntBuffer outTargets;
+    private DoubleBuffer outWeights;
+    private IntBuffer inOffsets;
+    private IntBuffer inSources;
+    private DoubleBuffer inWeights;
+    private IntBuffer labelOffsets;
+    private IntBuffer hashTable;
+    private ByteBuffer labelBytes;
+
+    private PathSearch<String> pathSearch = new PathSearch<>(this);
+
+    /**
+     * Maps a graph file. Use open to get one
+     */
+    private MappedGraph(FileChannel channel) throws IOException{
+
+        if (channel.size() < HEADER_SIZE){
+            throw new IOException("This isn't a graph file");
+        }
+        ByteBuffer header = map(channel, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC){
+            throw new IOException("This isn't a graph file");
+        }
+        if (header.getInt(4) != VERSION){
+            throw new IOException("Unsupported graph file version " + header.getInt(4));
+        }
+
+        nodeCount = header.getInt(8);
+        edgeCount = header.getInt(12);
+        int labelByteCount = header.getInt(16);
+        int tableSize = header.getInt(20);
+        if (nodeCount < 0 || edgeCount < 0 || labelByteCount < 0){
+            throw new IOException("The graph file has a negative count in its header");
+        }
+        // idOf probes with & (tableSize - 1), and needs an empty slot to stop at
+        if (tableSize <= nodeCount || Integer.bitCount(tableSize) != 1){
+            throw new IOException("The graph file's hash table size has to be a power of two bigger than its node count");
+        }
+
+        long position = HEADER_SIZE;
+        outOffsets = map(channel, position, 4L * (nodeCount + 1)).asIntBuffer();
+        position = align(position + 4L * (nodeCount + 1));
+        outTargets = map(channel, position, 4L * edgeCount).asIntBuffer();
+        position = align(position + 4L * edgeCount);
+        outWeights = map(channel, position, 8L * edgeCount).asDoubleBuffer();
+        position = align(position + 8L * edgeCount);
+        inOffsets = map(channel, position, 4L * (nodeCount + 1)).asIntBuffer();
+        position = align(position + 4L * (nodeCount + 1));
+        inSources = map(channel, position, 4L * edgeCount).asIntBuffer();
+        position = align(position + 4L * edgeCount);
+        inWeights = map(channel, position, 8L * edgeCount).asDoubleBuffer();
+        position = align(position + 8L * edgeCount);
+        labelOffsets = map(channel, position, 4L * (nodeCount + 1)).asIntBuffer();
+        position = align(position + 4L * (nodeCount + 1));
+        hashTable = map(channel, position, 4L * tableSize).asIntBuffer();
+        position = align(position + 4L * tableSize);
+        labelBytes = map(channel, position, labelByteCount);
+
+        boolean hasEmptySlot = false;
+        for (int slot = 0; slot < tableSize; slot++){
+            int id = hashTable.get(slot);
+            if (id < -1 || id >= nodeCount){
+                throw new IOException("The graph file's hash table holds an id that isn't a node");
+            }
+            hasEmptySlot |= (id == -1);
+        }
+        if (!hasEmptySlot){
+            throw new IOException("The graph file's hash table has no empty slot");
+        }
+    }
+
+    /**
+     * Maps a read only section of a file in our byte order
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException{
+        if (size > Integer.MAX_VALUE){
+            throw new IOException("A section of the graph file is too big to map");
+        }
+        if (position + size > channel.size()){
+            throw new IOException("The graph file is cut short");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Rounds a file position up to the next multiple of 8
+     */
+    private static long align(long position){
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Returns the slot of the hash table a hash code starts probing from
+     */
+    private static int slotOf(int hash, int tableSize){
+        return (hash ^ (hash >>> 16)) & (tableSize - 1);
+    }
+
+    /**
+     * Opens a graph file, mapping it into memory
+     * @param filename the path of the graph file
+     * @return a graph that reads from the file
+     * @throws IOException if the file can't be read or isn't a graph file
+     */
+    public static MappedGraph open(String filename) throws IOException{
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)){
+            return new MappedGraph(channel); // the mappings stay valid after the channel is closed
+        }
+    }
+
+    /**
+     * Writes a CSR graph to a graph file, with each node's data written as its String.valueOf
+     * @param graph the graph to write
+     * @param filename the path of the file, which is replaced if it already exists
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if two nodes have the same label
+     */
+    public static void write(CsrGraph<?> graph, String filename) throws IOException{
+
+        int n = graph.getNodeCount();
+        int e = graph.getEdgeCount();
+
+        // we work out the labels, their offsets and the hash table first
+        byte[][] labels = new byte[n][];
+        int[] labelOffsets = new int[n + 1];
+        HashSet<String> seen = new HashSet<>();
+        int tableSize = 2;
+        while (tableSize < 2L * n){
+            tableSize *= 2;
+        }
+        int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+
+        for (int v = 0; v < n; v++){
+            String label = String.valueOf(graph.dataOf(v));
+            if (!seen.add(label)){
+                throw new IllegalArgumentException("Two nodes have the label " + label);
+            }
+            labels[v] = label.getBytes(StandardCharsets.UTF_8);
+            if ((long)labelOffsets[v] + labels[v].length > Integer.MAX_VALUE){
+                throw new IllegalArgumentException("The labels are too big for a graph file");
+            }
+            labelOffsets[v + 1] = labelOffsets[v] + labels[v].length;
+
+            int slot = slotOf(label.hashCode(), tableSize);
+            while (table[slot] != -1){
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = v;
+        }
+
+        Path file = Paths.get(filename);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)){
+
+            ByteBuffer header = writable(channel, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(e).putInt(labelOffsets[n]).putInt(tableSize);
+
+            long position = HEADER_SIZE;
+            position = writeInts(channel, position, graph.outOffsets);
+            position = writeInts(channel, position, graph.outTargets);
+            position = writeDoubles(channel, position, graph.outWeights);
+            position = writeInts(channel, position, graph.inOffsets);
+            position = writeInts(channel, position, graph.inSources);
+            position = writeDoubles(channel, position, graph.inWeights);
+            position = writeInts(channel, position, labelOffsets);
+            position = writeInts(channel, position, table);
+
+            ByteBuffer labelSection = writable(channel, position, labelOffsets[n]);
+            for (byte[] label : labels){
+                labelSection.put(label);
+            }
+        }
+    }
+
+    /**
+     * Maps a section of a file for writing in our byte order
+     */
+    private static MappedByteBuffer writable(FileChannel channel, long position, long size) throws IOException{
+        if (size > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("The graph is too big for a graph file");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Writes an int array section
+     * @return the position the next section starts at
+     */
+    private static long writeInts(FileChannel channel, long position, int[] values) throws IOException{
+        writable(channel, position, 4L * values.length).asIntBuffer().put(values);
+        return align(position + 4L * values.length);
+    }
+
+    /**
+     * Writes a double array section
+     * @return the position the next section starts at
+     */
+    private static long writeDoubles(FileChannel channel, long position, double[] values) throws IOException{
+        writable(channel, position, 8L * values.length).asDoubleBuffer().put(values);
+        return align(position + 8L * values.length);
+    }
+
+    /**
+     * Checks whether the label of a node is the given UTF-8 bytes, comparing them in place
+     */
+    private boolean labelEquals(int id, byte[] label){
+        int start = labelOffsets.get(id);
+        if (labelOffsets.get(id + 1) - start != label.length){
+            return false;
+        }
+        for (int i = 0; i < label.length; i++){
+            if (labelBytes.get(start + i) != label[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of nodes, since the ids of a graph file have no gaps
+     */
+    @Override
+    public int getIdBound(){
+        return nodeCount;
+    }
+
+    @Override
+    public boolean containsId(int id){
+        return id >= 0 && id < nodeCount;
+    }
+
+    /**
+     * Finds the id of a node by probing the file's hash table
+     */
+    @Override
+    public int idOf(String data){
+        if (data == null || nodeCount == 0){
+            return -1;
+        }
+        byte[] label = data.getBytes(StandardCharsets.UTF_8);
+        int tableSize = hashTable.capacity();
+        for (int slot = slotOf(data.hashCode(), tableSize); ; slot = (slot + 1) & (tableSize - 1)){
+            int id = hashTable.get(slot);
+            if (id == -1){
+                return -1;
+            }
+            if (labelEquals(id, label)){
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Reads the label of a node out of the file
+     */
+    @Override
+    public String dataOf(int id){
+        if (!containsId(id)){
+            throw new NoSuchElementException("No node has id " + id);
+        }
+        int start = labelOffsets.get(id);
+        byte[] label = new byte[labelOffsets.get(id + 1) - start];
+        for (int i = 0; i < label.length; i++){
+            label[i] = labelBytes.get(start + i);
+        }
+        return new String(label, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int outDegree(int id){
+        return outOffsets.get(id + 1) - outOffsets.get(id);
+    }
+
+    @Override
+    public int outTarget(int id, int k){
+        return outTargets.get(outOffsets.get(id) + k);
+    }
+
+    @Override
+    public double outWeight(int id, int k){
+        return outWeights.get(outOffsets.get(id) + k);
+    }
+
+    @Override
+    public int inDegree(int id){
+        return inOffsets.get(id + 1) - inOffsets.get(id);
+    }
+
+    @Override
+    public int inSource(int id, int k){
+        return inSources.get(inOffsets.get(id) + k);
+    }
+
+    @Override
+    public double inWeight(int id, int k){
+        return inWeights.get(inOffsets.get(id) + k);
+    }
+
+    /**
+     * Finds the index of the edge from pred to succ with a binary search over pred's outgoing edges, which the file
+     * keeps sorted by target
+     * @return the index of the edge, or -1 if there's no such edge
+     */
+    private int edgeIndex(int pred, int succ){
+        int low = outOffsets.get(pred);
+        int high = outOffsets.get(pred + 1) - 1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            int target = outTargets.get(mid);
+            if (target < succ){
+                low = mid + 1;
+            }else if (target > succ){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This graph is read only, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertNode(String data) {
+        throw new UnsupportedOperationException("MappedGraph is read only");
+    }
+
+    /**
+     * This graph is read only, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeNode(String data) {
+        throw new UnsupportedOperationException("MappedGraph is read only");
+    }
+
+    @Override
+    public boolean containsNode(String data) {
+        return idOf(data) != -1;
+    }
+
+    /**
+     * Returns a list of the labels of all the nodes in the graph, in id order. This reads every label in
+     */
+    @Override
+    public List<String> getAllNodes() {
+        ArrayList<String> nodes = new ArrayList<>(nodeCount);
+        for (int v = 0; v < nodeCount; v++){
+            nodes.add(dataOf(v));
+        }
+        return nodes;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * This graph is read only, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertEdge(String pred, String succ, Double weight) {
+        throw new UnsupportedOperationException("MappedGraph is read only");
+    }
+
+    /**
+     * This graph is read only, so this always throws
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(String pred, String succ) {
+        throw new UnsupportedOperationException("MappedGraph is read only");
+    }
+
+    @Override
+    public boolean containsEdge(String pred, String succ) {
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        return predId != -1 && succId != -1 && edgeIndex(predId, succId) != -1;
+    }
+
+    @Override
+    public Double getEdge(String pred, String succ) {
+        int predId = idOf(pred);
+        int succId = idOf(succ);
+        int edge = (predId == -1 || succId == -1) ? -1 : edgeIndex(predId, succId);
+        if (edge == -1){
+            throw new NoSuchElementException("Edge between nodes doesn't exist in our graph");
+        }
+        return outWeights.get(edge);
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public List<String> shortestPathData(String start, String end) {
+        return pathSearch.search(requireId(start), requireId(end), null, true).getNodes();
+    }
+
+    /**
+     * Returns the cost of the shortest path from start to end. This doesn't build the path itself
+     */
+    @Override
+    public double shortestPathCost(String start, String end) {
+        return pathSearch.search(requireId(start), requireId(end), null, false).getCost();
+    }
+
+    @Override
+    public ShortestPath<String> shortestPath(String start, String end, Heuristic<String> heuristic) {
+        int startId = requireId(start);
+        int endId = requireId(end);
+        if (heuristic == null){
+            return pathSearch.search(startId, endId, null, true);
+        }
+        return pathSearch.search(startId, endId, id -> heuristic.estimate(dataOf(id), end), true);
+    }
+
+    @Override
+    public ShortestPath<String> bidirectionalShortestPath(String start, String end) {
+        return pathSearch.bidirectional(requireId(start), requireId(end));
+    }
+
+    /**
+     * Finds the shortest path costs with a parallel Dijkstra from each source over the mapped CSR arrays
+     */
+    @Override
+    public double[][] shortestPathCosts(List<String> sources, List<String> targets) {
+        int[] sourceIds = new int[sources.size()];
+        for (int i = 0; i < sourceIds.length; i++){
+            sourceIds[i] = requireId(sources.get(i));
+        }
+        int[] targetIds = new int[targets.size()];
+        for (int j = 0; j < targetIds.length; j++){
+            targetIds[j] = requireId(targets.get(j));
+        }
+        return pathSearch.distanceMatrix(sourceIds, targetIds);
+    }
+
+}
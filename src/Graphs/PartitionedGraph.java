@@ -0,0 +1,506 @@
+package Graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import Maps.HashtableMap;
+
+/**
+ * This is a graph split into shards, where each shard is a Graph of its own that owns some of the nodes. A
+ * partitioner decides which shard owns a node when it's inserted, and a directory remembers it.
+ *
+ * Every shard keeps all the edges of the nodes it owns. An edge between nodes in two different shards (a cut edge)
+ * is kept in both of them, going to or coming from a ghost node that stands in for the node the other shard owns. So
+ * a shard can walk the outgoing and incoming edges of its own nodes without looking at any other shard, and only the
+ * ghosts point elsewhere. Ghosts are dropped again once their last edge goes.
+ *
+ * BspExecutor runs vertex programs over the shards in parallel. The shortest path methods of GraphADT run over a
+ * CSR snapshot of the whole graph, which is kept until the graph changes.
+ *
+ * @param NodeType is the data type stored at each graph node
+ * @param EdgeType is the numeric type that is used to represent the weight of an edge in the graph
+ */
+public class PartitionedGraph<NodeType, EdgeType extends Number> implements GraphADT<NodeType, EdgeType>{
+
+    /** How much bigger than an even share a shard can get when we partition for locality */
+    private static final double IMBALANCE = 0.05;
+    /** How many passes of moving nodes to where their neighbors are we make when we partition for locality */
+    private static final int REFINEMENT_PASSES = 4;
+
+    private ArrayList<Graph<NodeType, EdgeType>> shards = new ArrayList<>();
+    private Partitioner<NodeType> partitioner;
+    /** The shard that owns each node */
+    private HashtableMap<NodeType, Integer> owners = new HashtableMap<>();
+    private int nodeCount;
+    private int edgeCount;
+    private int cutEdgeCount;
+
+    private int modCount;
+    private CsrGraph<NodeType> snapshot;
+    private int snapshotModCount;
+
+    /**
+     * Creates an empty graph that spreads its nodes over the shards by hashing them
+     * @param shardCount how many shards to have
+     * @throws IllegalArgumentException if shardCount isn't positive
+     */
+    public PartitionedGraph(int shardCount){
+        this(shardCount, hashPartitioner());
+    }
+
+    /**
+     * Creates an empty graph that lets a partitioner decide which shard owns each node
+     * @param shardCount how many shards to have
+     * @param partitioner picks the shard of every node that gets inserted
+     * @throws IllegalArgumentException if shardCount isn't positive
+     */
+    public PartitionedGraph(int shardCount, Partitioner<NodeType> partitioner){
+        if (shardCount < 1){
+            throw new IllegalArgumentException("We need at least one shard");
+        }
+        for (int i = 0; i < shardCount; i++){
+            shards.add(new Graph<>());
+        }
+        this.partitioner = partitioner;
+    }
+
+    /**
+     * Returns a partitioner that spreads nodes over the shards by their hash codes
+     */
+    public static <NodeType> Partitioner<NodeType> hashPartitioner(){
+        return (node, shardCount) -> {
+            int hash = node.hashCode() * 0x9E3779B9; // so nodes with similar hash codes still spread out
+            return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+        };
+    }
+
+    /**
+     * Works out a partitioning of a graph that keeps neighbors together, in the spirit of METIS but a lot simpler.
+     * We first stream the nodes in breadth first order, putting each one in the shard that already has most of its
+     * neighbors, scaled down the fuller the shard is. Then we make a few passes moving each node to the shard most
+     * of its neighbors are in, as long as that shard has room. Edges count in both directions.
+     *
+     * @param graph the graph to partition
+     * @param shardCount how many shards to have
+     * @return a partitioner that gives the nodes of the graph their shards, and hashes any other node
+     * @throws IllegalArgumentException if shardCount isn't positive
+     */
+    public static <NodeType> Partitioner<NodeType> localityPartitioner(IndexedGraph<NodeType> graph, int shardCount){
+        if (shardCount < 1){
+            throw new IllegalArgumentException("We need at least one shard");
+        }
+        int idBound = graph.getIdBound();
+        int n = 0;
+        for (int id = 0; id < idBound; id++){
+            if (graph.containsId(id)){
+                n++;
+            }
+        }
+        double capacity = Math.ceil((double) n / shardCount * (1.0 + IMBALANCE));
+
+        int[] shardOf = new int[idBound];
+        Arrays.fill(shardOf, -1);
+        int[] sizes = new int[shardCount];
+        int[] counts = new int[shardCount];
+
+        // stream the nodes in breadth first order, so neighbors come close together
+        int[] queue = new int[idBound]; // every node is queued once, so this never fills up
+        int head = 0;
+        int tail = 0;
+        boolean[] queued = new boolean[idBound];
+        for (int root = 0; root < idBound; root++){
+            if (queued[root] || !graph.containsId(root)){
+                continue;
+            }
+            queued[root] = true;
+            queue[tail++] = root;
+            while (head < tail){
+                int id = queue[head++];
+                countNeighbors(graph, id, shardOf, counts);
+                int best = 0;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int shard = 0; shard < shardCount; shard++){
+                    double score = counts[shard] * (1.0 - sizes[shard] / capacity);
+                    if (sizes[shard] < capacity && (score > bestScore || (score == bestScore && sizes[shard] < sizes[best]))){
+                        best = shard;
+                        bestScore = score;
+                    }
+                }
+                shardOf[id] = best;
+                sizes[best]++;
+
+                int degree = graph.outDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int target = graph.outTarget(id, k);
+                    if (!queued[target]){
+                        queued[target] = true;
+                        queue[tail++] = target;
+                    }
+                }
+                degree = graph.inDegree(id);
+                for (int k = 0; k < degree; k++){
+                    int source = graph.inSource(id, k);
+                    if (!queued[source]){
+                        queued[source] = true;
+                        queue[tail++] = source;
+                    }
+                }
+            }
+        }
+
+        for (int pass = 0; pass < REFINEMENT_PASSES; pass++){
+            int moved = 0;
+            for (int id = 0; id < idBound; id++){
+                if (shardOf[id] == -1){
+                    continue;
+                }
+                countNeighbors(graph, id, shardOf, counts);
+                int current = shardOf[id];
+                int best = current;
+                for (int shard = 0; shard < shardCount; shard++){
+                    if (counts[shard] > counts[best] && sizes[shard] + 1 <= capacity){
+                        best = shard;
+                    }
+                }
+                if (best != current){
+                    shardOf[id] = best;
+                    sizes[current]--;
+                    sizes[best]++;
+                    moved++;
+                }
+            }
+            if (moved == 0){
+                break;
+            }
+        }
+
+        HashtableMap<NodeType, Integer> assignment = new HashtableMap<>();
+        for (int id = 0; id < idBound; id++){
+            if (shardOf[id] != -1){
+                assignment.put(graph.dataOf(id), shardOf[id]);
+            }
+        }
+        Partitioner<NodeType> fallback = hashPartitioner();
+        return (node, shards) -> (assignment.containsKey(node)) ? assignment.get(node) : fallback.shardOf(node, shards);
+    }
+
+    /**
+     * Counts how many of a node's edges go to or come from each shard
+     */
+    private static void countNeighbors(IndexedGraph<?> graph, int id, int[] shardOf, int[] counts){
+        Arrays.fill(counts, 0);
+        int degree = graph.outDegree(id);
+        for (int k = 0; k < degree; k++){
+            int shard = shardOf[graph.outTarget(id, k)];
+            if (shard != -1){
+                counts[shard]++;
+            }
+        }
+        degree = graph.inDegree(id);
+        for (int k = 0; k < degree; k++){
+            int shard = shardOf[graph.inSource(id, k)];
+            if (shard != -1){
+                counts[shard]++;
+            }
+        }
+    }
+
+    /**
+     * Splits a graph into shards, partitioning it for locality first
+     * @param graph the graph to copy into shards
+     * @param shardCount how many shards to have
+     * @return a partitioned copy of the graph
+     * @throws IllegalArgumentException if shardCount isn't positive
+     */
+    public static <NodeType, EdgeType extends Number> PartitionedGraph<NodeType, EdgeType> partition(
+            Graph<NodeType, EdgeType> graph, int shardCount){
+        PartitionedGraph<NodeType, EdgeType> partitioned =
+                new PartitionedGraph<>(shardCount, localityPartitioner(graph, shardCount));
+        for (int id = 0; id < graph.getIdBound(); id++){
+            if (graph.containsId(id)){
+                partitioned.insertNode(graph.dataOf(id));
+            }
+        }
+        for (int id = 0; id < graph.getIdBound(); id++){
+            if (!graph.containsId(id)){
+                continue;
+            }
+            NodeType pred = graph.dataOf(id);
+            int degree = graph.outDegree(id);
+            for (int k = 0; k < degree; k++){
+                NodeType succ = graph.dataOf(graph.outTarget(id, k));
+                partitioned.insertEdge(pred, succ, graph.getEdge(pred, succ));
+            }
+        }
+        return partitioned;
+    }
+
+    /**
+     * Returns how many shards we have
+     */
+    public int getShardCount(){
+        return shards.size();
+    }
+
+    /**
+     * Returns one of our shards. Besides the nodes the shard owns, it holds the ghosts of their neighbors in other
+     * shards, so it shouldn't be changed directly
+     * @param shard the number of the shard
+     */
+    public Graph<NodeType, EdgeType> getShard(int shard){
+        return shards.get(shard);
+    }
+
+    /**
+     * Returns the shard that owns a node
+     * @throws NoSuchElementException if the node isn't in the graph
+     */
+    public int shardOf(NodeType data){
+        return owners.get(data);
+    }
+
+    /**
+     * Returns how many edges go between nodes in different shards
+     */
+    public int getCutEdgeCount(){
+        return cutEdgeCount;
+    }
+
+    @Override
+    public boolean insertNode(NodeType data){
+        if (owners.containsKey(data)){
+            return false;
+        }
+        int shard = partitioner.shardOf(data, shards.size());
+        if (shard < 0 || shard >= shards.size()){
+            throw new IllegalArgumentException("The partitioner picked shard " + shard + ", which we don't have");
+        }
+        shards.get(shard).insertNode(data);
+        owners.put(data, shard);
+        nodeCount++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes a node and all its edges, including the copies of its cut edges in other shards
+     */
+    @Override
+    public boolean removeNode(NodeType data){
+        if (!owners.containsKey(data)){
+            return false;
+        }
+        int owner = owners.get(data);
+        Graph<NodeType, EdgeType> shard = shards.get(owner);
+        int id = shard.idOf(data);
+
+        // the ghosts in our shard that this node has edges with, and so the other shards that hold a ghost of it
+        ArrayList<NodeType> ghosts = new ArrayList<>();
+        int selfLoops = 0;
+        int degree = shard.outDegree(id);
+        for (int k = 0; k < degree; k++){
+            int target = shard.outTarget(id, k);
+            if (target == id){
+                selfLoops++;
+            }else if (owners.get(shard.dataOf(target)) != owner){
+                ghosts.add(shard.dataOf(target));
+            }
+        }
+        degree = shard.inDegree(id);
+        for (int k = 0; k < degree; k++){
+            NodeType source = shard.dataOf(shard.inSource(id, k));
+            if (owners.get(source) != owner){
+                ghosts.add(source);
+            }
+        }
+
+        edgeCount -= shard.outDegree(id) + shard.inDegree(id) - selfLoops;
+        cutEdgeCount -= ghosts.size();
+        shard.removeNode(data);
+
+        // a ghost we have edges both ways with comes up twice, but removing a node again just does nothing
+        for (NodeType ghost : ghosts){
+            shards.get(owners.get(ghost)).removeNode(data);
+            dropGhostIfUnused(owner, ghost);
+        }
+
+        owners.remove(data);
+        nodeCount--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes a ghost from a shard once it has no edges left there
+     */
+    private void dropGhostIfUnused(int shard, NodeType ghost){
+        Graph<NodeType, EdgeType> graph = shards.get(shard);
+        int id = graph.idOf(ghost);
+        if (id != -1 && graph.outDegree(id) == 0 && graph.inDegree(id) == 0){
+            graph.removeNode(ghost);
+        }
+    }
+
+    @Override
+    public boolean containsNode(NodeType data){
+        return owners.containsKey(data);
+    }
+
+    @Override
+    public List<NodeType> getAllNodes(){
+        return owners.getKeys();
+    }
+
+    @Override
+    public int getNodeCount(){
+        return nodeCount;
+    }
+
+    /**
+     * Inserts an edge, or updates its weight if it's already there. If the nodes aren't in the graph, they're
+     * inserted first. A cut edge is also written into the successor's shard
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight){
+        if (!(weight.doubleValue() >= 0.0)){ // the shards would turn it down, but only after we added the nodes
+            return false;
+        }
+        insertNode(pred);
+        insertNode(succ);
+        int predShard = owners.get(pred);
+        int succShard = owners.get(succ);
+
+        boolean isNew = !shards.get(predShard).containsEdge(pred, succ);
+        shards.get(predShard).insertEdge(pred, succ, weight);
+        if (predShard != succShard){
+            shards.get(succShard).insertEdge(pred, succ, weight);
+        }
+        if (isNew){
+            edgeCount++;
+            if (predShard != succShard){
+                cutEdgeCount++;
+            }
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ){
+        if (!owners.containsKey(pred) || !owners.containsKey(succ)){
+            return false;
+        }
+        int predShard = owners.get(pred);
+        int succShard = owners.get(succ);
+        if (!shards.get(predShard).removeEdge(pred, succ)){
+            return false;
+        }
+        if (predShard != succShard){
+            shards.get(succShard).removeEdge(pred, succ);
+            dropGhostIfUnused(predShard, succ);
+            dropGhostIfUnused(succShard, pred);
+            cutEdgeCount--;
+        }
+        edgeCount--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ){
+        return owners.containsKey(pred) && owners.containsKey(succ)
+                && shards.get(owners.get(pred)).containsEdge(pred, succ);
+    }
+
+    @Override
+    public EdgeType getEdge(NodeType pred, NodeType succ) throws NoSuchElementException{
+        if (!containsEdge(pred, succ)){
+            throw new NoSuchElementException("Edge isn't in our graph");
+        }
+        return shards.get(owners.get(pred)).getEdge(pred, succ);
+    }
+
+    @Override
+    public int getEdgeCount(){
+        return edgeCount;
+    }
+
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end){
+        return freeze().shortestPathData(start, end);
+    }
+
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end){
+        return freeze().shortestPathCost(start, end);
+    }
+
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic){
+        return freeze().shortestPath(start, end, heuristic);
+    }
+
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end){
+        return freeze().bidirectionalShortestPath(start, end);
+    }
+
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets){
+        return freeze().shortestPathCosts(sources, targets);
+    }
+
+    /**
+     * Makes an immutable CSR snapshot of the whole graph, gathering the nodes from every shard. The snapshot is kept
+     * and handed out again until the graph changes
+     * @return a CSR snapshot of the graph
+     */
+    public CsrGraph<NodeType> freeze(){
+        if (snapshot != null && snapshotModCount == modCount){
+            return snapshot;
+        }
+
+        // every owned node gets a global id, shard by shard
+        ArrayList<NodeType> values = new ArrayList<>(nodeCount);
+        int[][] globalIds = new int[shards.size()][];
+        for (int s = 0; s < shards.size(); s++){
+            Graph<NodeType, EdgeType> shard = shards.get(s);
+            globalIds[s] = new int[shard.getIdBound()];
+            for (int id = 0; id < shard.getIdBound(); id++){
+                if (shard.containsId(id) && owners.get(shard.dataOf(id)) == s){
+                    globalIds[s][id] = values.size();
+                    values.add(shard.dataOf(id));
+                }
+            }
+        }
+
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        int e = 0;
+        for (int s = 0; s < shards.size(); s++){
+            Graph<NodeType, EdgeType> shard = shards.get(s);
+            for (int id = 0; id < shard.getIdBound(); id++){
+                if (!shard.containsId(id) || owners.get(shard.dataOf(id)) != s){
+                    continue;
+                }
+                int degree = shard.outDegree(id);
+                for (int k = 0; k < degree; k++){
+                    NodeType target = shard.dataOf(shard.outTarget(id, k));
+                    int targetShard = owners.get(target);
+                    sources[e] = globalIds[s][id];
+                    targets[e] = (targetShard == s) ? globalIds[s][shard.outTarget(id, k)]
+                            : globalIds[targetShard][shards.get(targetShard).idOf(target)];
+                    weights[e++] = shard.outWeight(id, k);
+                }
+            }
+        }
+
+        snapshot = new CsrGraph<>(values, sources, targets, weights);
+        snapshotModCount = modCount;
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,209 @@
+package Graphs;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for PartitionedGraph and the BspExecutor that runs over it, checked against a plain Graph that gets the same
+ * changes
+ */
+public class PartitionedGraphTest{
+
+    /**
+     * Checks that the partitioned graph holds the same nodes and edges as the plain one, that its counts are right,
+     * and that every ghost in a shard still has an edge with a node that shard owns
+     */
+    private static void checkShards(PartitionedGraph<Integer, Integer> graph, Graph<Integer, Integer> mirror){
+        Assertions.assertEquals(mirror.getNodeCount(), graph.getNodeCount());
+        Assertions.assertEquals(mirror.getEdgeCount(), graph.getEdgeCount());
+
+        int cut = 0;
+        for (int id = 0; id < mirror.getIdBound(); id++){
+            if (!mirror.containsId(id)){
+                continue;
+            }
+            Integer pred = mirror.dataOf(id);
+            for (int k = 0; k < mirror.outDegree(id); k++){
+                Integer succ = mirror.dataOf(mirror.outTarget(id, k));
+                Assertions.assertEquals(mirror.getEdge(pred, succ), graph.getEdge(pred, succ));
+                if (graph.shardOf(pred) != graph.shardOf(succ)){
+                    cut++;
+                }
+            }
+        }
+        Assertions.assertEquals(cut, graph.getCutEdgeCount());
+
+        // a cut edge is kept in both its shards, and every other edge in just one
+        int shardEdges = 0;
+        for (int s = 0; s < graph.getShardCount(); s++){
+            Graph<Integer, Integer> shard = graph.getShard(s);
+            shardEdges += shard.getEdgeCount();
+            for (int id = 0; id < shard.getIdBound(); id++){
+                if (!shard.containsId(id)){
+                    continue;
+                }
+                Integer node = shard.dataOf(id);
+                Assertions.assertTrue(graph.containsNode(node), "Shard " + s + " has a ghost of removed node " + node);
+                if (graph.shardOf(node) == s){
+                    int mirrorId = mirror.idOf(node);
+                    Assertions.assertEquals(mirror.outDegree(mirrorId), shard.outDegree(id));
+                    Assertions.assertEquals(mirror.inDegree(mirrorId), shard.inDegree(id));
+                    continue;
+                }
+                Assertions.assertTrue(shard.outDegree(id) + shard.inDegree(id) > 0,
+                        "Shard " + s + " kept an unused ghost of " + node);
+                for (int k = 0; k < shard.outDegree(id); k++){
+                    Assertions.assertEquals(s, graph.shardOf(shard.dataOf(shard.outTarget(id, k))));
+                }
+                for (int k = 0; k < shard.inDegree(id); k++){
+                    Assertions.assertEquals(s, graph.shardOf(shard.dataOf(shard.inSource(id, k))));
+                }
+            }
+        }
+        Assertions.assertEquals(graph.getEdgeCount() + graph.getCutEdgeCount(), shardEdges);
+    }
+
+    /**
+     * Inserts an edge into both graphs
+     */
+    private static void link(PartitionedGraph<Integer, Integer> graph, Graph<Integer, Integer> mirror, int pred,
+            int succ, int weight){
+        Assertions.assertTrue(graph.insertEdge(pred, succ, weight));
+        mirror.insertEdge(pred, succ, weight);
+    }
+
+    /**
+     * This tests that removing nodes and edges keeps the edge and cut counts right and leaves no stale ghosts behind,
+     * including for self loops and for nodes in different shards with edges both ways
+     */
+    @Test
+    public void test1(){
+
+        // TEST 1: even nodes go in shard 0 and odd nodes in shard 1, with self loops and edges both ways
+        PartitionedGraph<Integer, Integer> graph = new PartitionedGraph<>(2, (node, shards) -> node % shards);
+        Graph<Integer, Integer> mirror = new Graph<>();
+        link(graph, mirror, 1, 2, 3);
+        link(graph, mirror, 2, 1, 4);
+        link(graph, mirror, 1, 1, 5);
+        link(graph, mirror, 2, 2, 6);
+        link(graph, mirror, 2, 4, 7);
+        link(graph, mirror, 3, 1, 8);
+        link(graph, mirror, 1, 2, 9);
+        Assertions.assertEquals(2, graph.getCutEdgeCount());
+        checkShards(graph, mirror);
+
+        // TEST 2: removing one of two edges between a pair of shards keeps the ghosts, removing the other drops them
+        Assertions.assertTrue(graph.removeEdge(2, 1));
+        mirror.removeEdge(2, 1);
+        checkShards(graph, mirror);
+        Assertions.assertTrue(graph.getShard(0).containsNode(1) && graph.getShard(1).containsNode(2));
+        Assertions.assertTrue(graph.removeEdge(1, 2) && !graph.removeEdge(1, 2));
+        mirror.removeEdge(1, 2);
+        checkShards(graph, mirror);
+        Assertions.assertTrue(!graph.getShard(0).containsNode(1) && !graph.getShard(1).containsNode(2));
+
+        // TEST 3: removing a node with a self loop and cut edges both ways takes its ghosts with it
+        link(graph, mirror, 1, 2, 3);
+        link(graph, mirror, 2, 1, 4);
+        Assertions.assertTrue(graph.removeNode(1) && !graph.removeNode(1));
+        mirror.removeNode(1);
+        checkShards(graph, mirror);
+        Assertions.assertTrue(!graph.getShard(0).containsNode(1) && !graph.getShard(1).containsNode(1));
+        Assertions.assertTrue(!graph.getShard(1).containsNode(2));
+        Assertions.assertTrue(graph.removeNode(2));
+        mirror.removeNode(2);
+        checkShards(graph, mirror);
+        Assertions.assertEquals(0, graph.getCutEdgeCount());
+
+        // TEST 4: random inserts and removals across 4 shards keep everything in line
+        Random rand = new Random(23);
+        graph = new PartitionedGraph<>(4);
+        mirror = new Graph<>();
+        for (int step = 0; step < 3000; step++){
+            int operation = rand.nextInt(10);
+            int pred = rand.nextInt(60);
+            int succ = (rand.nextInt(5) == 0) ? pred : rand.nextInt(60);
+            if (operation < 6){
+                link(graph, mirror, pred, succ, rand.nextInt(10));
+            }else if (operation < 9){
+                Assertions.assertEquals(mirror.removeEdge(pred, succ), graph.removeEdge(pred, succ));
+            }else{
+                Assertions.assertEquals(mirror.removeNode(pred), graph.removeNode(pred));
+            }
+            if (step % 100 == 0){
+                checkShards(graph, mirror);
+            }
+        }
+        checkShards(graph, mirror);
+
+        // TEST 5: the snapshot has the same shortest paths as the plain graph
+        List<Integer> nodes = mirror.getAllNodes();
+        double[][] expected = mirror.shortestPathCosts(nodes, nodes);
+        double[][] actual = graph.shortestPathCosts(nodes, nodes);
+        for (int i = 0; i < nodes.size(); i++){
+            for (int j = 0; j < nodes.size(); j++){
+                Assertions.assertEquals(expected[i][j], actual[i][j], 0.0);
+            }
+        }
+
+    }
+
+    /**
+     * This tests the breadth first search the BspExecutor runs against GraphTraversal on the plain graph, before and
+     * after some nodes are removed, and that its PageRank adds up to 1
+     */
+    @Test
+    public void test2(){
+
+        Random rand = new Random(29);
+        PartitionedGraph<Integer, Integer> graph = new PartitionedGraph<>(4);
+        Graph<Integer, Integer> mirror = new Graph<>();
+        for (int i = 0; i < 300; i++){
+            graph.insertNode(i);
+            mirror.insertNode(i);
+        }
+        for (int e = 0; e < 600; e++){
+            link(graph, mirror, rand.nextInt(300), rand.nextInt(300), 1);
+        }
+
+        for (int round = 0; round < 2; round++){
+            BspExecutor<Integer> executor = new BspExecutor<>(graph, 2);
+            GraphTraversal<Integer> traversal = new GraphTraversal<>(mirror);
+
+            // TEST 1: every reachable node gets the same level, and nothing else gets one
+            for (int start = 1; start < 300; start += 37){
+                if (!mirror.containsNode(start)){
+                    continue;
+                }
+                Map<Integer, Integer> expected = new HashMap<>();
+                List<List<Integer>> levels = traversal.breadthFirstLevels(start);
+                for (int d = 0; d < levels.size(); d++){
+                    for (Integer node : levels.get(d)){
+                        expected.put(node, d);
+                    }
+                }
+                Assertions.assertEquals(expected, executor.breadthFirstLevels(start));
+            }
+
+            // TEST 2: PageRank keeps all the rank, even with nodes that have no edges out
+            double total = 0.0;
+            for (double rank : executor.pageRank(0.85, 20).values()){
+                total += rank;
+            }
+            Assertions.assertEquals(1.0, total, 1e-9);
+
+            for (int i = 0; i < 300; i += 7){
+                graph.removeNode(i);
+                mirror.removeNode(i);
+            }
+            checkShards(graph, mirror);
+        }
+
+    }
+
+}
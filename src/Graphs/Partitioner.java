@@ -0,0 +1,19 @@
+package Graphs;
+
+/**
+ * A partitioner decides which shard of a PartitionedGraph owns each node. It has to give the same node the same
+ * shard every time it's asked.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface Partitioner<NodeType> {
+
+    /**
+     * Picks the shard that owns a node
+     * @param node the data item of the node
+     * @param shardCount how many shards there are
+     * @return the shard, from 0 to shardCount-1
+     */
+    public int shardOf(NodeType node, int shardCount);
+
+}
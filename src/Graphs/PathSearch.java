@@ -0,0 +1,334 @@
+package Graphs;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import Trees.PriorityQueue;
+
+/**
+ * This runs shortest path searches (Dijkstra, A* and bidirectional Dijkstra) over the ids of an indexed graph. Every
+ * node only ever has one entry in the priority queue, and when we find a cheaper path to a queued node we decrease
+ * its key instead of queueing it again, so a search runs in O((V+E)logV).
+ *
+ * Each thread keeps its own search entries and reuses them from one query to the next, using a query counter to
+ * know which entries belong to the current search. So searches can run from several threads at once, and a query
+ * doesn't have to allocate or clear anything proportional to the size of the graph.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+class PathSearch<NodeType> {
+
+    /**
+     * This is an entry in a search for the node with a given id. Entries are compared by their cost plus the
+     * estimate of the remaining cost, so they can be stored in a priority queue
+     */
+    static class SearchEntry implements Comparable<SearchEntry>{
+        int id;
+        double cost;
+        double estimate;
+        int previous;
+        boolean settled;
+        /** The query this entry was last used in. Entries from older queries are treated as unvisited */
+        int query;
+
+        /**
+         * Creates a new search entry for a node
+         * @param id the id of the node
+         */
+        public SearchEntry(int id){
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(SearchEntry other){
+            return Double.compare(cost + estimate, other.cost + other.estimate);
+        }
+    }
+
+    /**
+     * This holds the entries one thread uses for its searches
+     */
+    static class SearchSpace{
+        SearchEntry[] entries = new SearchEntry[0];
+        int query;
+
+        /**
+         * Starts a new query, making room for every id the graph currently has
+         */
+        void startQuery(int idBound){
+            if (entries.length < idBound){
+                entries = Arrays.copyOf(entries, idBound);
+            }
+            query++;
+        }
+
+        /**
+         * Returns the entry of a node for the current query, resetting it if it was last used by an older query
+         * @return the node's entry, with no previous node and infinite cost if it hasn't been reached yet
+         */
+        SearchEntry entry(int id){
+            SearchEntry entry = entries[id];
+            if (entry == null){
+                entry = new SearchEntry(id);
+                entries[id] = entry;
+            }
+            if (entry.query != query){
+                entry.query = query;
+                entry.cost = Double.POSITIVE_INFINITY;
+                entry.estimate = 0.0;
+                entry.previous = -1;
+                entry.settled = false;
+            }
+            return entry;
+        }
+    }
+
+    private IndexedGraph<NodeType> graph;
+    private ThreadLocal<SearchSpace> forwardSpaces = ThreadLocal.withInitial(SearchSpace::new);
+    private ThreadLocal<SearchSpace> backwardSpaces = ThreadLocal.withInitial(SearchSpace::new);
+
+    /**
+     * Creates a new searcher over a graph
+     * @param graph the graph to search
+     */
+    PathSearch(IndexedGraph<NodeType> graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Runs an A* search from the start node until the end node is settled. Without an estimate this is just
+     * Dijkstra's algorithm. Nodes the estimate gives an infinite cost to are never queued, since the end can't be
+     * reached from them.
+     *
+     * @param start the id of the start node
+     * @param end the id of the end node
+     * @param estimate estimates the remaining cost from a node id to the end node, or null for plain Dijkstra
+     * @param trackPath if false, we don't build the path list and just return the cost
+     * @return the shortest path, with a null node list if we didn't track the path
+     * @throws NoSuchElementException if there's no path between the nodes
+     */
+    ShortestPath<NodeType> search(int start, int end, IntToDoubleFunction estimate, boolean trackPath){
+
+        SearchSpace space = forwardSpaces.get();
+        space.startQuery(graph.getIdBound());
+        PriorityQueue<SearchEntry> queue = new PriorityQueue<>(16, true, true);
+
+        SearchEntry startEntry = space.entry(start);
+        startEntry.cost = 0.0;
+        startEntry.estimate = (estimate == null) ? 0.0 : estimate.applyAsDouble(start);
+        if (startEntry.estimate != Double.POSITIVE_INFINITY){
+            queue.enqueue(startEntry);
+        }
+        int settledCount = 0;
+
+        while (!queue.isEmpty()){
+
+            SearchEntry current = queue.poll();
+            current.settled = true;
+            settledCount++;
+
+            if (current.id == end){
+                return new ShortestPath<>(trackPath ? pathTo(space, end, null) : null, current.cost, settledCount);
+            }
+
+            int degree = graph.outDegree(current.id);
+            for (int k = 0; k < degree; k++){
+
+                SearchEntry entry = space.entry(graph.outTarget(current.id, k));
+                double newCost = current.cost + graph.outWeight(current.id, k);
+                if (newCost >= entry.cost){
+                    continue;
+                }
+
+                boolean reached = entry.cost != Double.POSITIVE_INFINITY;
+                if (!reached && estimate != null){
+                    entry.estimate = estimate.applyAsDouble(entry.id);
+                    if (entry.estimate == Double.POSITIVE_INFINITY){ // the end can't be reached from here
+                        continue;
+                    }
+                }
+
+                entry.cost = newCost;
+                entry.previous = current.id;
+                if (!reached){
+                    queue.enqueue(entry);
+                }else if (entry.settled){ // only happens when the estimate is admissible but not consistent
+                    entry.settled = false;
+                    queue.enqueue(entry);
+                }else{
+                    queue.decreaseKey(entry);
+                }
+            }
+
+        }
+
+        throw new NoSuchElementException("No path exists between the start and end nodes");
+    }
+
+    /**
+     * Finds the shortest path with bidirectional Dijkstra. One search follows outgoing edges from the start, and the
+     * other follows incoming edges from the end. We always grow whichever search has the smaller queue, and keep track
+     * of the cheapest path through a node that both searches have reached. Once the costs at the top of both queues
+     * add up to at least that path's cost, no cheaper path can exist.
+     *
+     * @param start the id of the start node
+     * @param end the id of the end node
+     * @return the shortest path
+     * @throws NoSuchElementException if there's no path between the nodes
+     */
+    ShortestPath<NodeType> bidirectional(int start, int end){
+
+        SearchSpace forwardSpace = forwardSpaces.get();
+        SearchSpace backwardSpace = backwardSpaces.get();
+        forwardSpace.startQuery(graph.getIdBound());
+        backwardSpace.startQuery(graph.getIdBound());
+        PriorityQueue<SearchEntry> forwardQueue = new PriorityQueue<>(16, true, true);
+        PriorityQueue<SearchEntry> backwardQueue = new PriorityQueue<>(16, true, true);
+
+        forwardSpace.entry(start).cost = 0.0;
+        backwardSpace.entry(end).cost = 0.0;
+        forwardQueue.enqueue(forwardSpace.entry(start));
+        backwardQueue.enqueue(backwardSpace.entry(end));
+
+        double bestCost = (start == end) ? 0.0 : Double.POSITIVE_INFINITY;
+        int meetingId = (start == end) ? start : -1;
+        int settledCount = 0;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()){
+
+            if (forwardQueue.peek().cost + backwardQueue.peek().cost >= bestCost){
+                break;
+            }
+
+            boolean forward = forwardQueue.size() <= backwardQueue.size();
+            PriorityQueue<SearchEntry> queue = forward ? forwardQueue : backwardQueue;
+            SearchSpace space = forward ? forwardSpace : backwardSpace;
+            SearchSpace otherSpace = forward ? backwardSpace : forwardSpace;
+
+            SearchEntry current = queue.poll();
+            current.settled = true;
+            settledCount++;
+
+            int degree = forward ? graph.outDegree(current.id) : graph.inDegree(current.id);
+            for (int k = 0; k < degree; k++){
+
+                int neighbor = forward ? graph.outTarget(current.id, k) : graph.inSource(current.id, k);
+                double weight = forward ? graph.outWeight(current.id, k) : graph.inWeight(current.id, k);
+
+                SearchEntry entry = space.entry(neighbor);
+                double newCost = current.cost + weight;
+                if (!entry.settled && newCost < entry.cost){
+                    boolean queued = entry.cost != Double.POSITIVE_INFINITY;
+                    entry.cost = newCost;
+                    entry.previous = current.id;
+                    if (queued){
+                        queue.decreaseKey(entry);
+                    }else{
+                        queue.enqueue(entry);
+                    }
+                }
+
+                double otherCost = otherSpace.entry(neighbor).cost;
+                if (entry.cost + otherCost < bestCost){ // both searches have reached this node
+                    bestCost = entry.cost + otherCost;
+                    meetingId = neighbor;
+                }
+            }
+
+        }
+
+        if (meetingId == -1){
+            throw new NoSuchElementException("No path exists between the start and end nodes");
+        }
+
+        return new ShortestPath<>(pathTo(forwardSpace, meetingId, backwardSpace), bestCost, settledCount);
+    }
+
+    /**
+     * Runs a full Dijkstra from a source node, either along outgoing edges (forward) or along incoming edges
+     *
+     * @param source the id of the node to start from
+     * @param forward true to find the cost from the source to every node, false for the cost from every node to
+     *        the source
+     * @return the cost of the shortest path between the source and every id, infinite if there is no path
+     */
+    double[] distances(int source, boolean forward){
+
+        SearchSpace space = forwardSpaces.get();
+        space.startQuery(graph.getIdBound());
+        PriorityQueue<SearchEntry> queue = new PriorityQueue<>(16, true, true);
+
+        SearchEntry start = space.entry(source);
+        start.cost = 0.0;
+        queue.enqueue(start);
+
+        while (!queue.isEmpty()){
+            SearchEntry current = queue.poll();
+            current.settled = true;
+
+            int degree = forward ? graph.outDegree(current.id) : graph.inDegree(current.id);
+            for (int k = 0; k < degree; k++){
+                SearchEntry entry = space.entry(forward ? graph.outTarget(current.id, k) : graph.inSource(current.id, k));
+                double newCost = current.cost + (forward ? graph.outWeight(current.id, k) : graph.inWeight(current.id, k));
+                if (!entry.settled && newCost < entry.cost){
+                    boolean queued = entry.cost != Double.POSITIVE_INFINITY;
+                    entry.cost = newCost;
+                    if (queued){
+                        queue.decreaseKey(entry);
+                    }else{
+                        queue.enqueue(entry);
+                    }
+                }
+            }
+        }
+
+        double[] distances = new double[graph.getIdBound()];
+        for (int v = 0; v < distances.length; v++){
+            distances[v] = space.entry(v).cost;
+        }
+        return distances;
+    }
+
+    /**
+     * Finds the cost of the shortest path from every source to every target, running a full Dijkstra from each
+     * source in parallel on the common fork join pool. Each thread uses its own search space, so the searches don't
+     * get in each other's way
+     *
+     * @param sources the ids of the nodes the paths start at
+     * @param targets the ids of the nodes the paths end at
+     * @return a matrix where [i][j] is the cost from sources[i] to targets[j], infinite if there is no path
+     */
+    double[][] distanceMatrix(int[] sources, int[] targets){
+        double[][] matrix = new double[sources.length][];
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            double[] distances = distances(sources[i], true);
+            double[] row = new double[targets.length];
+            for (int j = 0; j < targets.length; j++){
+                row[j] = distances[targets[j]];
+            }
+            matrix[i] = row;
+        });
+        return matrix;
+    }
+
+    /**
+     * Builds the list of node data along a path. The forward space's chain of previous ids leads back from the
+     * given node to the start of the path, and if we have a backward space, its chain leads on to the end of the path
+     */
+    private LinkedList<NodeType> pathTo(SearchSpace forward, int id, SearchSpace backward){
+        LinkedList<NodeType> path = new LinkedList<>();
+        for (int v = id; v != -1; v = forward.entries[v].previous){
+            path.addFirst(graph.dataOf(v));
+        }
+        if (backward != null){
+            for (int v = backward.entries[id].previous; v != -1; v = backward.entries[v].previous){
+                path.addLast(graph.dataOf(v));
+            }
+        }
+        return path;
+    }
+
+}
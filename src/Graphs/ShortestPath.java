@@ -0,0 +1,54 @@
+package Graphs;
+
+import java.util.List;
+
+/**
+ * This holds the result of a shortest path search: the data of the nodes along the path, the total cost of the
+ * path, and how many nodes the search had to settle to find it.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ShortestPath<NodeType> {
+
+    private List<NodeType> nodes;
+    private double cost;
+    private int settledCount;
+
+    /**
+     * Creates a new shortest path result
+     * @param nodes the data of the nodes along the path, from the start through the end
+     * @param cost the sum of the edge weights along the path
+     * @param settledCount the number of nodes the search settled before it found this path
+     */
+    public ShortestPath(List<NodeType> nodes, double cost, int settledCount){
+        this.nodes = nodes;
+        this.cost = cost;
+        this.settledCount = settledCount;
+    }
+
+    /**
+     * Returns the data of the nodes along the path, starting with the start node and ending with the end node
+     * @return the data of the nodes along the path
+     */
+    public List<NodeType> getNodes(){
+        return nodes;
+    }
+
+    /**
+     * Returns the cost of the path i.e. the sum of the weights of its edges
+     * @return the cost of the path
+     */
+    public double getCost(){
+        return cost;
+    }
+
+    /**
+     * Returns how many nodes the search had to settle before it found the path. This is a good measure of how
+     * much of the graph the search had to explore.
+     * @return the number of nodes settled by the search
+     */
+    public int getSettledCount(){
+        return settledCount;
+    }
+
+}
@@ -0,0 +1,69 @@
+package Graphs;
+
+/**
+ * This is a union find (disjoint set) structure over the ints 0 to n-1, kept in primitive arrays. Sets are merged by
+ * rank and paths are halved on every find, so any sequence of operations runs in nearly linear time.
+ */
+class UnionFind {
+
+    private int[] parent;
+    private byte[] rank;
+    private int setCount;
+
+    /**
+     * Creates a union find where every int from 0 to size-1 is in a set of its own
+     * @param size how many elements there are
+     */
+    UnionFind(int size){
+        parent = new int[size];
+        rank = new byte[size];
+        for (int i = 0; i < size; i++){
+            parent[i] = i;
+        }
+        setCount = size;
+    }
+
+    /**
+     * Finds the representative of the set an element is in
+     * @param element the element to look up
+     * @return the representative element of its set
+     */
+    int find(int element){
+        while (parent[element] != element){
+            parent[element] = parent[parent[element]]; // path halving
+            element = parent[element];
+        }
+        return element;
+    }
+
+    /**
+     * Merges the sets two elements are in
+     * @return true if they were in different sets, false if they were already together
+     */
+    boolean union(int a, int b){
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB){
+            return false;
+        }
+
+        if (rank[rootA] < rank[rootB]){
+            parent[rootA] = rootB;
+        }else if (rank[rootA] > rank[rootB]){
+            parent[rootB] = rootA;
+        }else{
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+        setCount--;
+        return true;
+    }
+
+    /**
+     * Returns how many separate sets there are
+     */
+    int getSetCount(){
+        return setCount;
+    }
+
+}
@@ -0,0 +1,413 @@
+package Graphs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a multi version graph, for when long running reads and frequent writes have to happen at the same time.
+ *
+ * Writers change a private working graph under a lock and append every change to a mutation log, where the n'th
+ * change made to the graph moves it to version n. Every so often (or whenever publish is called) the working graph is
+ * frozen into an immutable CSR snapshot, which then becomes the published version. Readers never take a lock: they
+ * pin the published snapshot and can traverse it for as long as they like while the writers carry on.
+ *
+ * A pinned snapshot also pins its version of the log. The log is only ever trimmed up to the oldest snapshot someone
+ * still has pinned, so a reader holding a snapshot can always ask a newer snapshot for the changes made since, and
+ * bring its own results up to date instead of starting over.
+ *
+ * The read methods of GraphADT answer from the published snapshot, so they don't see changes that haven't been
+ * published yet. Like CsrGraph, the snapshots store every edge weight as a double.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class VersionedGraph<NodeType> implements GraphADT<NodeType, Double>{
+
+    /**
+     * The kinds of change the mutation log records
+     */
+    public enum ChangeType{
+        INSERT_NODE, REMOVE_NODE, INSERT_EDGE, REMOVE_EDGE
+    }
+
+    /**
+     * One entry of the mutation log. Inserting an edge that's already there changes its weight, and removing a node
+     * also removes its edges, without separate entries for them
+     *
+     * @param NodeType is the data type stored at each graph node
+     */
+    public static class Change<NodeType>{
+        private final long version;
+        private final ChangeType type;
+        private final NodeType pred;
+        private final NodeType succ;
+        private final double weight;
+
+        Change(long version, ChangeType type, NodeType pred, NodeType succ, double weight){
+            this.version = version;
+            this.type = type;
+            this.pred = pred;
+            this.succ = succ;
+            this.weight = weight;
+        }
+
+        /**
+         * Returns the version of the graph this change made
+         */
+        public long getVersion(){
+            return version;
+        }
+
+        public ChangeType getType(){
+            return type;
+        }
+
+        /**
+         * Returns the node the change is about, or the predecessor of the edge it's about
+         */
+        public NodeType getPred(){
+            return pred;
+        }
+
+        /**
+         * Returns the successor of the edge the change is about, or null for a node change
+         */
+        public NodeType getSucc(){
+            return succ;
+        }
+
+        /**
+         * Returns the new weight of an inserted edge, or 0 for any other change
+         */
+        public double getWeight(){
+            return weight;
+        }
+
+        @Override
+        public String toString(){
+            return version + " " + type + " " + pred + ((succ == null) ? "" : " -> " + succ + " " + weight);
+        }
+    }
+
+    /**
+     * A published, immutable version of the graph. Readers get one from pin and have to close it once they're done
+     * with it, so the log can be trimmed again
+     *
+     * @param NodeType is the data type stored at each graph node
+     */
+    public static class Snapshot<NodeType> implements AutoCloseable{
+        private final CsrGraph<NodeType> graph;
+        private final long version;
+        /** The log as it was when we were published. Entry i holds the change that made version logStart + i + 1 */
+        private final Change<NodeType>[] log;
+        private final long logStart;
+        private final AtomicInteger pins = new AtomicInteger();
+
+        Snapshot(CsrGraph<NodeType> graph, long version, Change<NodeType>[] log, long logStart){
+            this.graph = graph;
+            this.version = version;
+            this.log = log;
+            this.logStart = logStart;
+        }
+
+        /**
+         * Returns the graph as it was at this version
+         */
+        public CsrGraph<NodeType> getGraph(){
+            return graph;
+        }
+
+        /**
+         * Returns the version of the graph this is, which is how many changes had been made to it
+         */
+        public long getVersion(){
+            return version;
+        }
+
+        /**
+         * Returns the changes that took an older version of the graph to this one, oldest first
+         *
+         * @param olderVersion the version to start from, like the version of a snapshot that's still pinned
+         * @return the changes made after olderVersion, up to and including this version
+         * @throws IllegalArgumentException if olderVersion is newer than this one, or is so old that its part of the
+         *         log has been trimmed because no snapshot that old was pinned
+         */
+        public List<Change<NodeType>> changesSince(long olderVersion){
+            if (olderVersion > version || olderVersion < logStart){
+                throw new IllegalArgumentException("The log doesn't hold the changes since version " + olderVersion);
+            }
+            return new ArrayList<>(Arrays.asList(log).subList((int) (olderVersion - logStart), (int) (version - logStart)));
+        }
+
+        /**
+         * Unpins the snapshot. It can still be used afterwards, but the log no longer has to keep its changes
+         */
+        @Override
+        public void close(){
+            pins.decrementAndGet();
+        }
+    }
+
+    private Graph<NodeType, Double> working = new Graph<>();
+    private ReentrantLock writeLock = new ReentrantLock();
+    /** The changes since logStart, where only the slots up to the working version are filled */
+    private Change<NodeType>[] log;
+    private long logStart;
+    private long version;
+    /** Publish automatically after this many changes, or never if it's 0 */
+    private int publishInterval;
+
+    private volatile Snapshot<NodeType> published;
+    /** Every published snapshot that might still be pinned, oldest first, always ending with the published one */
+    private ArrayDeque<Snapshot<NodeType>> retained = new ArrayDeque<>();
+
+    /**
+     * Creates an empty versioned graph that only publishes when publish is called
+     */
+    public VersionedGraph(){
+        this(0);
+    }
+
+    /**
+     * Creates an empty versioned graph
+     * @param publishInterval publish a new snapshot automatically after this many changes, or 0 to only publish when
+     *        publish is called
+     * @throws IllegalArgumentException if publishInterval is negative
+     */
+    @SuppressWarnings("unchecked")
+    public VersionedGraph(int publishInterval){
+        if (publishInterval < 0){
+            throw new IllegalArgumentException("The publish interval can't be negative");
+        }
+        this.publishInterval = publishInterval;
+        log = (Change<NodeType>[]) new Change<?>[16];
+        publishLocked();
+    }
+
+    /**
+     * Pins the published snapshot, so its part of the mutation log is kept until it's closed. This never blocks
+     *
+     * @return the published snapshot, which should be closed once we're done with it
+     */
+    public Snapshot<NodeType> pin(){
+        while (true){
+            Snapshot<NodeType> snapshot = published;
+            snapshot.pins.incrementAndGet();
+            // if a newer snapshot came out in the meantime, the writer might have already decided to trim our changes
+            if (snapshot == published){
+                return snapshot;
+            }
+            snapshot.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the published version, which the read methods answer from
+     */
+    public long getPublishedVersion(){
+        return published.version;
+    }
+
+    /**
+     * Returns the version the writers have got to, which might not be published yet
+     */
+    public long getVersion(){
+        writeLock.lock();
+        try{
+            return version;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Freezes the working graph into a new snapshot and publishes it, if there are changes that aren't published yet
+     * @return the published snapshot's version
+     */
+    public long publish(){
+        writeLock.lock();
+        try{
+            if (published.version != version){
+                publishLocked();
+            }
+            return version;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a new snapshot and trims the log, with the write lock held
+     */
+    private void publishLocked(){
+        Snapshot<NodeType> snapshot = new Snapshot<>(working.freeze(), version, log, logStart);
+        published = snapshot;
+        retained.addLast(snapshot);
+
+        // snapshots that nobody has pinned don't need their changes anymore. A reader pinning one of them now will
+        // see it's no longer published and move on to the new one
+        while (retained.size() > 1 && retained.peekFirst().pins.get() == 0){
+            retained.pollFirst();
+        }
+        long oldest = retained.peekFirst().version;
+        if (oldest - logStart > (version - logStart) / 2){
+            compactLog(oldest, log.length);
+        }
+    }
+
+    /**
+     * Moves the log into a new array starting at a given version. We never change slots published snapshots can see,
+     * so the old array stays as it was for them
+     */
+    @SuppressWarnings("unchecked")
+    private void compactLog(long start, int capacity){
+        Change<NodeType>[] compacted = (Change<NodeType>[]) new Change<?>[capacity];
+        System.arraycopy(log, (int) (start - logStart), compacted, 0, (int) (version - start));
+        log = compacted;
+        logStart = start;
+    }
+
+    /**
+     * Appends a change to the log, with the write lock held, and publishes if it's time to
+     */
+    private void record(ChangeType type, NodeType pred, NodeType succ, double weight){
+        int length = (int) (version - logStart);
+        if (length == log.length){
+            long oldest = retained.peekFirst().version;
+            int needed = (int) (version - oldest) + 1;
+            compactLog(oldest, Math.max(16, (needed > log.length / 2) ? needed * 2 : log.length));
+            length = (int) (version - logStart);
+        }
+        log[length] = new Change<>(++version, type, pred, succ, weight);
+
+        if (publishInterval != 0 && version - published.version >= publishInterval){
+            publishLocked();
+        }
+    }
+
+    @Override
+    public boolean insertNode(NodeType data){
+        writeLock.lock();
+        try{
+            if (!working.insertNode(data)){
+                return false;
+            }
+            record(ChangeType.INSERT_NODE, data, null, 0.0);
+            return true;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeNode(NodeType data){
+        writeLock.lock();
+        try{
+            if (!working.removeNode(data)){
+                return false;
+            }
+            record(ChangeType.REMOVE_NODE, data, null, 0.0);
+            return true;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts an edge, or updates its weight if it's already there. If the nodes aren't in the graph, they're
+     * inserted first, and those insertions get log entries of their own
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, Double weight){
+        if (!(weight >= 0.0)){ // the working graph would turn it down, but only after we logged the nodes
+            return false;
+        }
+        writeLock.lock();
+        try{
+            if (!working.containsNode(pred)){
+                insertNode(pred);
+            }
+            if (!working.containsNode(succ)){
+                insertNode(succ);
+            }
+            working.insertEdge(pred, succ, weight);
+            record(ChangeType.INSERT_EDGE, pred, succ, weight);
+            return true;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ){
+        writeLock.lock();
+        try{
+            if (!working.removeEdge(pred, succ)){
+                return false;
+            }
+            record(ChangeType.REMOVE_EDGE, pred, succ, 0.0);
+            return true;
+        }finally{
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsNode(NodeType data){
+        return published.graph.containsNode(data);
+    }
+
+    @Override
+    public List<NodeType> getAllNodes(){
+        return published.graph.getAllNodes();
+    }
+
+    @Override
+    public int getNodeCount(){
+        return published.graph.getNodeCount();
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ){
+        return published.graph.containsEdge(pred, succ);
+    }
+
+    @Override
+    public Double getEdge(NodeType pred, NodeType succ){
+        return published.graph.getEdge(pred, succ);
+    }
+
+    @Override
+    public int getEdgeCount(){
+        return published.graph.getEdgeCount();
+    }
+
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end){
+        return published.graph.shortestPathData(start, end);
+    }
+
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end){
+        return published.graph.shortestPathCost(start, end);
+    }
+
+    @Override
+    public ShortestPath<NodeType> shortestPath(NodeType start, NodeType end, Heuristic<NodeType> heuristic){
+        return published.graph.shortestPath(start, end, heuristic);
+    }
+
+    @Override
+    public ShortestPath<NodeType> bidirectionalShortestPath(NodeType start, NodeType end){
+        return published.graph.bidirectionalShortestPath(start, end);
+    }
+
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets){
+        return published.graph.shortestPathCosts(sources, targets);
+    }
+
+}
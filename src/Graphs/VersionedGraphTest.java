@@ -0,0 +1,171 @@
+package Graphs;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Graphs.VersionedGraph.Change;
+import Graphs.VersionedGraph.ChangeType;
+import Graphs.VersionedGraph.Snapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for VersionedGraph: its snapshots, the version history, and readers working while a writer changes the graph
+ */
+public class VersionedGraphTest{
+
+    /**
+     * This tests that reads only see published changes, and that pinned snapshots and the log stay as they were
+     */
+    @Test
+    public void test1(){
+
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.insertEdge("a", "b", 1.0);
+        graph.insertEdge("b", "c", 2.0);
+
+        // TEST 1: nothing is visible until we publish, and then everything is
+        Assertions.assertEquals(5, graph.getVersion());
+        Assertions.assertEquals(0, graph.getPublishedVersion());
+        Assertions.assertTrue(!graph.containsNode("a"));
+        Assertions.assertEquals(5, graph.publish());
+        Assertions.assertEquals(3.0, graph.shortestPathCost("a", "c"), 0.0);
+
+        // TEST 2: a pinned snapshot doesn't change, and the newer one can tell it what changed since
+        try (Snapshot<String> old = graph.pin()){
+            graph.insertEdge("a", "c", 1.0);
+            graph.removeEdge("a", "b");
+            graph.removeNode("b");
+            graph.insertNode("d");
+            graph.publish();
+            Assertions.assertEquals(3.0, old.getGraph().shortestPathCost("a", "c"), 0.0);
+
+            try (Snapshot<String> current = graph.pin()){
+                List<Change<String>> changes = current.changesSince(old.getVersion());
+                Assertions.assertEquals(current.getVersion() - old.getVersion(), changes.size());
+                Assertions.assertEquals(ChangeType.INSERT_EDGE, changes.get(0).getType());
+
+                // replaying the changes on a copy of the old version gives the new one
+                Graph<String, Double> replayed = new Graph<>();
+                for (String node : old.getGraph().getAllNodes()){
+                    replayed.insertNode(node);
+                }
+                for (String pred : old.getGraph().getAllNodes()){
+                    for (String succ : old.getGraph().getAllNodes()){
+                        if (old.getGraph().containsEdge(pred, succ)){
+                            replayed.insertEdge(pred, succ, old.getGraph().getEdge(pred, succ));
+                        }
+                    }
+                }
+                for (Change<String> change : changes){
+                    switch (change.getType()){
+                        case INSERT_NODE: replayed.insertNode(change.getPred()); break;
+                        case REMOVE_NODE: replayed.removeNode(change.getPred()); break;
+                        case INSERT_EDGE: replayed.insertEdge(change.getPred(), change.getSucc(), change.getWeight()); break;
+                        case REMOVE_EDGE: replayed.removeEdge(change.getPred(), change.getSucc()); break;
+                    }
+                }
+                Assertions.assertEquals(current.getGraph().getNodeCount(), replayed.getNodeCount());
+                Assertions.assertEquals(current.getGraph().getEdgeCount(), replayed.getEdgeCount());
+                Assertions.assertEquals(current.getGraph().getEdge("a", "c"), replayed.getEdge("a", "c"));
+                Assertions.assertTrue(replayed.containsNode("d") && !replayed.containsNode("b"));
+            }
+        }
+        try{
+            graph.shortestPathCost("a", "b");
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+
+    }
+
+    /**
+     * This tests that the log is trimmed past versions nobody has pinned, but kept for the ones that are
+     */
+    @Test
+    public void test2(){
+
+        VersionedGraph<Integer> graph = new VersionedGraph<>(4);
+        Snapshot<Integer> pinned = graph.pin();
+        long unpinnedVersion = -1;
+        for (int i = 0; i < 200; i++){
+            graph.insertEdge(i, i + 1, 1.0);
+            if (i == 10){
+                unpinnedVersion = graph.getPublishedVersion();
+            }
+        }
+
+        // TEST 1: publishing every 4 changes keeps the published version close behind
+        Assertions.assertTrue(graph.getVersion() - graph.getPublishedVersion() < 4);
+
+        try (Snapshot<Integer> current = graph.pin()){
+            // TEST 2: the pinned version still has every change since it
+            Assertions.assertEquals(current.getVersion() - pinned.getVersion(),
+                                    current.changesSince(pinned.getVersion()).size());
+
+            // TEST 3: once it's unpinned and more is published, the log gets trimmed past the versions nobody needs
+            pinned.close();
+            for (int i = 200; i < 400; i++){
+                graph.insertEdge(i, i + 1, 1.0);
+            }
+            try (Snapshot<Integer> latest = graph.pin()){
+                try{
+                    latest.changesSince(unpinnedVersion);
+                    Assertions.fail();
+                }catch(IllegalArgumentException e){
+                }
+                Assertions.assertEquals(latest.getVersion() - current.getVersion(),
+                                        latest.changesSince(current.getVersion()).size());
+            }
+        }
+
+    }
+
+    /**
+     * This tests readers pinning snapshots while a writer keeps changing the graph. Every change adds exactly one node
+     * or one edge, so a snapshot is only consistent if its node and edge counts add up to its version
+     */
+    @Test
+    public void test3() throws InterruptedException{
+
+        VersionedGraph<Integer> graph = new VersionedGraph<>(8);
+        int edgeCount = 3000;
+        AtomicInteger inconsistent = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < edgeCount; i++){
+                graph.insertEdge(i, i + 1, 1.0);
+            }
+        });
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++){
+            readers[r] = new Thread(() -> {
+                while (writer.isAlive()){
+                    try (Snapshot<Integer> snapshot = graph.pin()){
+                        CsrGraph<Integer> snap = snapshot.getGraph();
+                        if (snap.getNodeCount() + snap.getEdgeCount() != snapshot.getVersion()){
+                            inconsistent.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        writer.start();
+        for (Thread reader : readers){
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers){
+            reader.join();
+        }
+
+        // TEST 1: every snapshot the readers saw was consistent, and the last one has everything
+        Assertions.assertEquals(0, inconsistent.get());
+        graph.publish();
+        Assertions.assertEquals(edgeCount, graph.getEdgeCount());
+        Assertions.assertEquals(edgeCount + 1, graph.getNodeCount());
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package Graphs;
+
+/**
+ * A vertex program is an algorithm written from the point of view of a single node, which BspExecutor runs over a
+ * PartitionedGraph in supersteps, in the style of Pregel. In every superstep, each active node gets the combination
+ * of the messages sent to it in the last superstep, works out its new value, and can send messages along its outgoing
+ * edges for the next superstep. A node stays active until it votes to halt, and a message wakes it up again. The run
+ * ends once every node has halted and no messages are on their way.
+ *
+ * Values and messages are plain doubles, and all the messages to one node are combined into one as they arrive, so
+ * nothing gets boxed however many messages there are.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface VertexProgram<NodeType> {
+
+    /**
+     * What a node can see and do while it computes
+     */
+    public interface Context{
+
+        /**
+         * Returns the number of the current superstep, starting from 0
+         */
+        public int getSuperstep();
+
+        /**
+         * Returns how many nodes the whole graph has
+         */
+        public int getNodeCount();
+
+        /**
+         * Returns how many outgoing edges the node has
+         */
+        public int getOutDegree();
+
+        /**
+         * Sends a message along every outgoing edge of the node, to arrive in the next superstep
+         */
+        public void sendToNeighbors(double message);
+
+        /**
+         * Adds a value to this superstep's aggregate, which every node can read in the next superstep
+         */
+        public void aggregate(double value);
+
+        /**
+         * Returns the sum of the values aggregated in the last superstep
+         */
+        public double getAggregate();
+
+        /**
+         * Makes the node inactive until a message arrives for it
+         */
+        public void voteToHalt();
+    }
+
+    /**
+     * Returns the value a node starts with
+     * @param node the data item of the node
+     */
+    public double initialValue(NodeType node);
+
+    /**
+     * Combines two messages to the same node into one, like taking the minimum or the sum
+     */
+    public double combine(double first, double second);
+
+    /**
+     * Runs one superstep for a node
+     * @param node the data item of the node
+     * @param value the node's current value
+     * @param message the combination of the messages sent to the node in the last superstep, if there are any
+     * @param hasMessage whether any messages were sent to the node in the last superstep
+     * @param context lets the node send messages, aggregate values and vote to halt
+     * @return the node's new value
+     */
+    public double compute(NodeType node, double value, double message, boolean hasMessage, Context context);
+
+}
@@ -0,0 +1,40 @@
+package Graphs;
+
+import java.util.function.DoubleFunction;
+
+/**
+ * This helps graphs that keep their edge weights as primitive doubles hand them back as the Number type they were
+ * given. For the standard boxed types we can rebuild the exact object from the double (longs only up to 2^53), so
+ * there's no need to keep the original object around.
+ */
+class WeightBoxing {
+
+    /**
+     * Finds a function that turns a double back into a weight of the same type as the sample
+     * @param sample a weight of the type we want to rebuild
+     * @return a function that rebuilds weights of that type, or null if the type isn't one of the standard boxed
+     *         number types and the original objects have to be kept
+     */
+    static DoubleFunction<Number> boxerFor(Number sample){
+        if (sample instanceof Double){
+            return Double::valueOf;
+        }
+        if (sample instanceof Integer){
+            return weight -> (int)weight;
+        }
+        if (sample instanceof Long){
+            return weight -> (long)weight;
+        }
+        if (sample instanceof Float){
+            return weight -> (float)weight;
+        }
+        if (sample instanceof Short){
+            return weight -> (short)weight;
+        }
+        if (sample instanceof Byte){
+            return weight -> (byte)weight;
+        }
+        return null;
+    }
+
+}
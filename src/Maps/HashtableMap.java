@@ -183,6 +183,7 @@ public class HashtableMap<KeyType, ValueType>{
         for (Pair p : chain){ // then we check our chain for the key
             if (p.key.equals(key)){
                 chain.remove(p);
+                size--;
                 return p.value;
             }
         }
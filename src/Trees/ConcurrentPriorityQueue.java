@@ -0,0 +1,229 @@
+package Trees;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A priority queue many threads can add to and take from at once, built as a MultiQueue: instead of one heap behind
+ * one lock, there are several heaps, each with its own lock. Enqueueing puts the element in a random heap. Polling
+ * looks at the tops of two random heaps and takes the better one. Threads only ever try a lock, and pick other heaps
+ * if it's taken, so they almost never wait for each other and throughput grows with the number of threads.
+ *
+ * The price is that the order is relaxed: poll returns an element close to the top, but not always the very top.
+ * On average it's within a few places per heap of it, which is what a scheduler usually needs. Elements that go in
+ * get out eventually, since the heaps they sit in keep getting picked.
+ *
+ * take blocks until there's something to take, for consumer threads.
+ */
+public class ConcurrentPriorityQueue<T extends Comparable<T>>{
+
+    private PriorityQueue<T>[] heaps;
+    private ReentrantLock[] locks;
+    /** The top of every heap, so we can compare heaps without locking them. Only changed under the heap's lock */
+    private AtomicReferenceArray<T> tops;
+    private final boolean IS_MIN;
+
+    /** How many elements are queued, which is at most a little behind while an enqueue or poll is running */
+    private AtomicInteger size = new AtomicInteger();
+    /** Consumers blocked in take wait on this */
+    private ReentrantLock waitLock = new ReentrantLock();
+    private Condition notEmpty = waitLock.newCondition();
+    private AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Creates a min queue with two heaps for every processor
+     */
+    public ConcurrentPriorityQueue(){
+        this(2 * Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * Creates a new queue
+     * @param heapCount how many heaps to spread the elements over. More heaps means less contention but a more
+     *        relaxed order. Twice the number of threads using the queue works well
+     * @param IS_MIN
+     * @throws IllegalArgumentException if heapCount isn't positive
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentPriorityQueue(int heapCount, boolean IS_MIN){
+        if (heapCount < 1){
+            throw new IllegalArgumentException("We need at least one heap");
+        }
+        this.IS_MIN = IS_MIN;
+        heaps = (PriorityQueue<T>[]) new PriorityQueue<?>[heapCount];
+        locks = new ReentrantLock[heapCount];
+        tops = new AtomicReferenceArray<>(heapCount);
+        for (int i = 0; i < heapCount; i++){
+            heaps[i] = new PriorityQueue<>(16, IS_MIN);
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds the new element to the queue, waking up a consumer waiting in take
+     * @param element
+     * @throws NullPointerException if element is null
+     */
+    public void enqueue(T element){
+        if (element == null){
+            throw new NullPointerException();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true){
+            int i = random.nextInt(heaps.length);
+            if (locks[i].tryLock()){
+                try{
+                    heaps[i].enqueue(element);
+                    tops.set(i, heaps[i].peek());
+                }finally{
+                    locks[i].unlock();
+                }
+                break;
+            }
+        }
+
+        size.incrementAndGet();
+        if (waiting.get() > 0){
+            waitLock.lock();
+            try{
+                notEmpty.signal();
+            }finally{
+                waitLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes an element at or near the top of the queue
+     * @return an element close to the top, or null if the queue is empty
+     */
+    public T poll(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (size.get() > 0){
+            // we compare the tops of two random heaps and go for the better one
+            int i = random.nextInt(heaps.length);
+            int j = random.nextInt(heaps.length);
+            T first = tops.get(i);
+            T second = tops.get(j);
+            if (first == null && second == null){
+                return pollAny();
+            }
+            int pick = (first == null || (second != null && heaps[j].switchUp(second, first))) ? j : i;
+
+            if (locks[pick].tryLock()){
+                try{
+                    T element = heaps[pick].poll();
+                    if (element != null){
+                        tops.set(pick, heaps[pick].peek());
+                        size.decrementAndGet();
+                        return element;
+                    }
+                }finally{
+                    locks[pick].unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Goes through every heap in turn and takes the top of the first one that isn't empty. We use this when random
+     * heaps keep turning up empty, so a few elements left in a lot of heaps still get found
+     */
+    private T pollAny(){
+        int start = ThreadLocalRandom.current().nextInt(heaps.length);
+        for (int k = 0; k < heaps.length; k++){
+            int i = (start + k) % heaps.length;
+            if (tops.get(i) == null){
+                continue;
+            }
+            locks[i].lock();
+            try{
+                T element = heaps[i].poll();
+                if (element != null){
+                    tops.set(i, heaps[i].peek());
+                    size.decrementAndGet();
+                    return element;
+                }
+            }finally{
+                locks[i].unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes an element at or near the top of the queue, waiting until there is one
+     * @return an element close to the top
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public T take() throws InterruptedException{
+        while (true){
+            T element = poll();
+            if (element != null){
+                return element;
+            }
+            waitLock.lockInterruptibly();
+            try{
+                waiting.incrementAndGet();
+                // an enqueue that finished before we said we're waiting has already bumped the size, so we can't
+                // miss its signal
+                while (size.get() == 0){
+                    notEmpty.await();
+                }
+            }finally{
+                waiting.decrementAndGet();
+                waitLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes an element at or near the top of the queue, waiting up to the given time for there to be one
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return an element close to the top, or null if none turned up in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException{
+        long remaining = unit.toNanos(timeout);
+        while (true){
+            T element = poll();
+            if (element != null || remaining <= 0){
+                return element;
+            }
+            waitLock.lockInterruptibly();
+            try{
+                waiting.incrementAndGet();
+                while (size.get() == 0 && remaining > 0){
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+            }finally{
+                waiting.decrementAndGet();
+                waitLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns how many elements are queued. While other threads are adding and removing elements, this is only a
+     * snapshot
+     * @return the current size of the queue
+     */
+    public int size(){
+        return size.get();
+    }
+
+    /**
+     * Returns true if the queue is empty
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty(){
+        return size.get() == 0;
+    }
+
+}
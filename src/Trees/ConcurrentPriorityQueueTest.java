@@ -0,0 +1,124 @@
+package Trees;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ConcurrentPriorityQueue, from one thread and from producers and consumers running at once
+ */
+public class ConcurrentPriorityQueueTest{
+
+    /**
+     * This tests the queue from one thread. With a single heap the order is exact
+     */
+    @Test
+    public void test1(){
+
+        // TEST 1: one min heap comes out sorted
+        ConcurrentPriorityQueue<Integer> queue = new ConcurrentPriorityQueue<>(1, true);
+        int[] values = {5, 3, 9, 1, 7, 3};
+        for (int value : values){
+            queue.enqueue(value);
+        }
+        Assertions.assertEquals(values.length, queue.size());
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int value : sorted){
+            Assertions.assertEquals(value, (int)queue.poll());
+        }
+        Assertions.assertTrue(queue.isEmpty() && queue.poll() == null);
+
+        // TEST 2: with many heaps, every element still comes out once, even when most heaps are empty
+        queue = new ConcurrentPriorityQueue<>(16, false);
+        for (int i = 0; i < 100; i++){
+            queue.enqueue(i);
+        }
+        boolean[] seen = new boolean[100];
+        for (int i = 0; i < 100; i++){
+            Integer element = queue.poll();
+            Assertions.assertTrue(element != null && !seen[element]);
+            seen[element] = true;
+        }
+        Assertions.assertTrue(queue.poll() == null);
+
+        // TEST 3: null elements are rejected
+        try{
+            queue.enqueue(null);
+            Assertions.fail();
+        }catch(NullPointerException e){
+        }
+
+    }
+
+    /**
+     * This tests producers and consumers running at once, with the consumers blocking in take
+     */
+    @Test
+    public void test2() throws InterruptedException{
+
+        ConcurrentPriorityQueue<Integer> queue = new ConcurrentPriorityQueue<>(8, true);
+        int perProducer = 5000;
+        int producerCount = 2;
+        int consumerCount = 2;
+        int total = perProducer * producerCount;
+
+        // the consumers start first, so they have to wait in take
+        AtomicInteger taken = new AtomicInteger();
+        boolean[] seen = new boolean[total];
+        AtomicInteger duplicates = new AtomicInteger();
+        Thread[] consumers = new Thread[consumerCount];
+        for (int c = 0; c < consumerCount; c++){
+            consumers[c] = new Thread(() -> {
+                try{
+                    while (taken.getAndIncrement() < total){
+                        int element = queue.take();
+                        synchronized (seen){
+                            if (seen[element]){
+                                duplicates.incrementAndGet();
+                            }
+                            seen[element] = true;
+                        }
+                    }
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumers[c].start();
+        }
+
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++){
+            int first = p * perProducer;
+            producers[p] = new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++){
+                    queue.enqueue(i);
+                }
+            });
+            producers[p].start();
+        }
+
+        for (Thread producer : producers){
+            producer.join();
+        }
+        for (Thread consumer : consumers){
+            consumer.join(10000);
+            Assertions.assertTrue(!consumer.isAlive(), "A consumer is stuck in take");
+        }
+
+        // TEST 1: every element was taken exactly once
+        Assertions.assertEquals(0, duplicates.get());
+        for (int i = 0; i < total; i++){
+            Assertions.assertTrue(seen[i], "Missing element " + i);
+        }
+        Assertions.assertTrue(queue.isEmpty());
+
+        // TEST 2: a timed poll on an empty queue gives up and returns null
+        Assertions.assertTrue(queue.poll(10, TimeUnit.MILLISECONDS) == null);
+
+    }
+
+}
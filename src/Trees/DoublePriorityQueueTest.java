@@ -0,0 +1,81 @@
+package Trees;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for DoublePriorityQueue
+ */
+public class DoublePriorityQueueTest{
+
+    /**
+     * This tests that min and max heaps drain in order, including infinities and the extreme finite doubles, that
+     * every value comes out with its own priority, and that NaN priorities are turned down
+     */
+    @Test
+    public void test1(){
+
+        Random rand = new Random(43);
+        for (boolean isMin : new boolean[]{true, false}){
+            for (int count : new int[]{1, 5, 1000}){
+
+                // TEST 1: random priorities, duplicates, infinities and the biggest and smallest doubles come out sorted
+                DoublePriorityQueue<Integer> queue = new DoublePriorityQueue<>(1, isMin);
+                double[] priorities = new double[count + 6];
+                for (int i = 0; i < count; i++){
+                    priorities[i] = (rand.nextBoolean()) ? rand.nextGaussian() * 1e6 : rand.nextInt(10) - 5;
+                }
+                priorities[count] = Double.POSITIVE_INFINITY;
+                priorities[count + 1] = Double.NEGATIVE_INFINITY;
+                priorities[count + 2] = Double.MAX_VALUE;
+                priorities[count + 3] = -Double.MAX_VALUE;
+                priorities[count + 4] = Double.MIN_VALUE;
+                priorities[count + 5] = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < priorities.length; i++){
+                    queue.enqueue(i, priorities[i]);
+                }
+                Assertions.assertEquals(priorities.length, queue.size());
+
+                double[] sorted = priorities.clone();
+                Arrays.sort(sorted);
+                for (int i = 0; i < sorted.length; i++){
+                    double expected = isMin ? sorted[i] : sorted[sorted.length - 1 - i];
+                    Assertions.assertEquals(expected, queue.peekPriority(), 0.0);
+                    int value = queue.peek();
+                    Assertions.assertEquals(value, (int)queue.poll());
+                    Assertions.assertEquals(expected, priorities[value], 0.0);
+                }
+                Assertions.assertTrue(queue.isEmpty());
+            }
+        }
+
+        // TEST 2: a NaN priority is turned down and leaves the queue as it was
+        DoublePriorityQueue<String> queue = new DoublePriorityQueue<>(2, false);
+        queue.enqueue("a", 1.0);
+        try{
+            queue.enqueue("b", Double.NaN);
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+        Assertions.assertEquals(1, queue.size());
+        Assertions.assertEquals("a", queue.poll());
+
+        // TEST 3: an empty queue has nothing to give, and clear empties a queue
+        Assertions.assertTrue(queue.poll() == null && queue.peek() == null);
+        try{
+            queue.peekPriority();
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        queue.enqueue("c", 3.0);
+        queue.enqueue("d", Double.NEGATIVE_INFINITY);
+        queue.clear();
+        Assertions.assertTrue(queue.isEmpty() && queue.poll() == null);
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package Trees;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Heap implementation of a priority queue whose priorities are plain longs. The priorities are kept in a long[] next
+ * to the array of values, so every comparison is a primitive one on the array and no priority ever gets boxed or
+ * goes through compareTo. This heap can either be a min or max heap, set when creating it. A max heap just stores
+ * the bitwise complement of each priority, so the comparisons are the same either way. By default, the heap is min.
+ *
+ * The heap is 4-ary, since for the queues these get used for (timers, Dijkstra's algorithm) a shallower heap polls
+ * faster. Sifting moves a hole along instead of swapping, so each level costs one write.
+ *
+ * There's no decrease-key. Queueing the value again with its better priority and skipping stale copies when they're
+ * polled is cheap here, since queueing doesn't allocate anything.
+ *
+ * @param V is the type of the values in the queue
+ */
+public class LongPriorityQueue<V>{
+
+    private static final int ARITY = 4;
+
+    private long[] priorities;
+    private Object[] values;
+    private int size;
+    private final boolean IS_MIN;
+
+    public LongPriorityQueue(){
+        this(16, true);
+    }
+
+    public LongPriorityQueue(int capacity){
+        this(capacity, true);
+    }
+
+    /**
+     * Creates a new queue with the given initial capacity
+     * @param capacity
+     * @param IS_MIN
+     */
+    public LongPriorityQueue(int capacity, boolean IS_MIN){
+        priorities = new long[Math.max(capacity, 1)];
+        values = new Object[priorities.length];
+        this.IS_MIN = IS_MIN;
+    }
+
+    /**
+     * Turns a priority into the key we store, which orders the other way round in a max heap
+     */
+    private long toKey(long priority){
+        return IS_MIN ? priority : ~priority;
+    }
+
+    /**
+     * Adds a value to the queue with the given priority
+     * @param value
+     * @param priority
+     */
+    public void enqueue(V value, long priority){
+        if (size == priorities.length){
+            priorities = Arrays.copyOf(priorities, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        long key = toKey(priority);
+        int index = size++;
+        while (index > 0){ // we move the hole up until the key fits
+            int parent = (index - 1) / ARITY;
+            if (priorities[parent] <= key){
+                break;
+            }
+            priorities[index] = priorities[parent];
+            values[index] = values[parent];
+            index = parent;
+        }
+        priorities[index] = key;
+        values[index] = value;
+    }
+
+    /**
+     * Returns the value with the topmost priority, without removing it
+     * @return the topmost value, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public V peek(){
+        return (size == 0) ? null : (V) values[0];
+    }
+
+    /**
+     * Returns the topmost priority in the queue. If in a min heap, the smallest, and if a max heap, the largest
+     * @return the topmost priority
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public long peekPriority(){
+        if (size == 0){
+            throw new NoSuchElementException("The queue is empty");
+        }
+        return toKey(priorities[0]); // the conversion is its own inverse
+    }
+
+    /**
+     * Removes and returns the value with the topmost priority
+     * @return the topmost value, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public V poll(){
+        if (size == 0){
+            return null;
+        }
+        V top = (V) values[0];
+        size--;
+        long key = priorities[size];
+        Object value = values[size];
+        values[size] = null;
+        if (size == 0){
+            return top;
+        }
+
+        int index = 0;
+        while (true){ // we move the hole down until the last element fits in it
+            int first = ARITY * index + 1;
+            if (first >= size){
+                break;
+            }
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int child = first + 1; child < last; child++){
+                if (priorities[child] < priorities[best]){
+                    best = child;
+                }
+            }
+            if (priorities[best] >= key){
+                break;
+            }
+            priorities[index] = priorities[best];
+            values[index] = values[best];
+            index = best;
+        }
+        priorities[index] = key;
+        values[index] = value;
+        return top;
+    }
+
+    /**
+     * Returns the current size of the priority queue
+     * @return the current size of the priority queue
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns true if the heap is empty
+     * @return true if the heap is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Removes everything from the queue
+     */
+    public void clear(){
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+}
@@ -0,0 +1,71 @@
+package Trees;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for LongPriorityQueue
+ */
+public class LongPriorityQueueTest{
+
+    /**
+     * This tests that min and max heaps drain in order, including the most extreme priorities a long can have, and
+     * that every value comes out with its own priority
+     */
+    @Test
+    public void test1(){
+
+        Random rand = new Random(41);
+        for (boolean isMin : new boolean[]{true, false}){
+            for (int count : new int[]{1, 5, 1000}){
+
+                // TEST 1: random priorities, duplicates, and Long.MIN_VALUE and Long.MAX_VALUE come out sorted
+                LongPriorityQueue<Integer> queue = new LongPriorityQueue<>(1, isMin);
+                long[] priorities = new long[count + 4];
+                for (int i = 0; i < count; i++){
+                    priorities[i] = (rand.nextBoolean()) ? rand.nextLong() : rand.nextInt(10) - 5;
+                }
+                priorities[count] = Long.MIN_VALUE;
+                priorities[count + 1] = Long.MAX_VALUE;
+                priorities[count + 2] = Long.MIN_VALUE;
+                priorities[count + 3] = -1L;
+                for (int i = 0; i < priorities.length; i++){
+                    queue.enqueue(i, priorities[i]);
+                }
+                Assertions.assertEquals(priorities.length, queue.size());
+
+                long[] sorted = priorities.clone();
+                Arrays.sort(sorted);
+                for (int i = 0; i < sorted.length; i++){
+                    long expected = isMin ? sorted[i] : sorted[sorted.length - 1 - i];
+                    Assertions.assertEquals(expected, queue.peekPriority());
+                    int value = queue.peek();
+                    Assertions.assertEquals(value, (int)queue.poll());
+                    Assertions.assertEquals(expected, priorities[value]);
+                }
+                Assertions.assertTrue(queue.isEmpty());
+            }
+        }
+
+        // TEST 2: an empty queue has nothing to give, and clear empties a queue
+        LongPriorityQueue<String> queue = new LongPriorityQueue<>();
+        Assertions.assertTrue(queue.poll() == null && queue.peek() == null);
+        try{
+            queue.peekPriority();
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        queue.enqueue("a", 3L);
+        queue.enqueue("b", 1L);
+        queue.clear();
+        Assertions.assertTrue(queue.isEmpty() && queue.poll() == null);
+        queue.enqueue("c", 2L);
+        Assertions.assertEquals("c", queue.poll());
+
+    }
+
+}
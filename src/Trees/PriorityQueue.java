@@ -1,32 +1,52 @@
 package Trees;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
 /**
  * Heap implementation of priority queue. This heap can either be a min or max heap, but that has to be set
  * when creating the heap. By default, the heap is min.
+ * 
+ * The heap can also be created in indexed mode, where it keeps track of where every element sits in the heap array.
+ * This lets us change the priority of an element that's already queued (decreaseKey and increaseKey) or remove it in
+ * O(logn), and check if it's queued in O(1), instead of queueing duplicates and skipping the stale ones. In indexed
+ * mode, an element can only be queued once at a time.
+ *
+ * The heap is binary by default, but it can have any arity d. A wider heap is shallower, so polling goes down fewer
+ * levels, and each level's children sit next to each other in the array, where they share cache lines. Polling
+ * compares more children per level though, so 4 or 8 pays off mostly for big queues. The heap can also be aligned,
+ * where the root sits at index d-1 instead of 0, so every group of siblings starts at a multiple of d in the array
+ * and doesn't straddle two groups of d slots.
  */
 public class PriorityQueue<T extends Comparable<T>>{
 
     private Object[] heapArray;
+    /** The index the next element goes in, which is one past the last element */
     private int nextIndex;
     private final boolean IS_MIN;
+    /** How many children every element has */
+    private final int arity;
+    /** The index of the top element, which is 0 unless we're aligned */
+    private final int root;
+    /** Maps every queued element to its index in the heap array. This is null when we're not indexed */
+    private HashMap<T, Integer> positions;
 
      
     public PriorityQueue(){
-        heapArray = new Object[10];
-        IS_MIN = true;
+        this(10, true);
     }
 
     public PriorityQueue(int capacity){
-        heapArray = new Object[capacity];
-        IS_MIN = true;
+        this(capacity, true);
     }
 
     public PriorityQueue(boolean IS_MIN){
-        heapArray = new Object[10];
-        this.IS_MIN = IS_MIN;
+        this(10, IS_MIN);
     }
 
     /**
@@ -35,28 +55,174 @@ public class PriorityQueue<T extends Comparable<T>>{
      * @param IS_MIN
      */
     public PriorityQueue(int capacity, boolean IS_MIN){
-        heapArray = new Object[capacity];
-        this.IS_MIN = IS_MIN;
+        this(capacity, IS_MIN, false);
     }  
 
+    /**
+     * Creates a new queue with the given initial capacity that can optionally be indexed. An indexed queue supports
+     * decreaseKey, but its elements shouldn't change their hashCode() or equals() while they're queued
+     * @param capacity
+     * @param IS_MIN
+     * @param indexed
+     */
+    public PriorityQueue(int capacity, boolean IS_MIN, boolean indexed){
+        this(capacity, IS_MIN, indexed, 2, false);
+    }
+
+    /**
+     * Creates a new queue where every element has arity children
+     * @param capacity
+     * @param IS_MIN
+     * @param indexed
+     * @param arity how many children every element has, like 2, 4 or 8
+     * @param aligned whether the root goes at index arity-1, so that groups of siblings line up with the array
+     * @throws IllegalArgumentException if arity is less than 2
+     */
+    public PriorityQueue(int capacity, boolean IS_MIN, boolean indexed, int arity, boolean aligned){
+        if (arity < 2){
+            throw new IllegalArgumentException("A heap needs an arity of at least 2");
+        }
+        this.IS_MIN = IS_MIN;
+        this.arity = arity;
+        root = aligned ? arity - 1 : 0;
+        heapArray = new Object[root + Math.max(capacity, 1)];
+        nextIndex = root;
+        if (indexed){
+            positions = new HashMap<>(capacity);
+        }
+    }
+
+    /**
+     * Creates a new queue holding the given elements. The heap is built bottom up in O(n), instead of enqueueing
+     * the elements one at a time in O(nlogn)
+     * @param elements
+     * @param IS_MIN
+     * @throws NullPointerException if any of the elements is null
+     */
+    public PriorityQueue(Collection<? extends T> elements, boolean IS_MIN){
+        this(elements.size(), IS_MIN);
+        enqueueAll(elements);
+    }
+
+    /**
+     * Creates a new queue holding the given elements. The heap is built bottom up in O(n), instead of enqueueing
+     * the elements one at a time in O(nlogn)
+     * @param elements
+     * @param IS_MIN
+     * @throws NullPointerException if any of the elements is null
+     */
+    public PriorityQueue(T[] elements, boolean IS_MIN){
+        this(Arrays.asList(elements), IS_MIN);
+    }
+
     /**
      * Adds the new element to the queue.
      * @param element
      * @throws NullPointerException if element is null
+     * @throws IllegalArgumentException if the queue is indexed and already contains the element
      */
     public void enqueue(T element){
         if (element == null){
             throw new NullPointerException();
         }
+        if (positions != null && positions.containsKey(element)){
+            throw new IllegalArgumentException("Element is already in the queue");
+        }
         if (isFull()){
             increaseSize();
         }
 
         heapArray[nextIndex] = element;
+        if (positions != null){
+            positions.put(element, nextIndex);
+        }
         heapifyUp(nextIndex++);
 
     }
 
+    /**
+     * Adds a batch of elements to the queue. The array only grows once, and if the batch is bigger than what's
+     * already queued, we put everything in place and rebuild the heap bottom up (Floyd's heapify) in O(n) instead of
+     * moving every new element up on its own
+     * @param elements
+     * @throws NullPointerException if any of the elements is null
+     * @throws IllegalArgumentException if the queue is indexed and already contains one of the elements, or gets it
+     *         twice. Nothing is added then
+     */
+    @SuppressWarnings("unchecked")
+    public void enqueueAll(Collection<? extends T> elements){
+        int oldSize = size();
+        int start = nextIndex;
+        if (nextIndex + elements.size() > heapArray.length){
+            heapArray = Arrays.copyOf(heapArray, Math.max(nextIndex + elements.size(), root + oldSize * 2));
+        }
+
+        for (T element : elements){
+            if (element == null || (positions != null && positions.putIfAbsent(element, nextIndex) != null)){
+                // we take back what we added so far, so a bad batch leaves the queue as it was
+                for (int i = start; i < nextIndex; i++){
+                    if (positions != null){
+                        positions.remove((T)heapArray[i]);
+                    }
+                    heapArray[i] = null;
+                }
+                nextIndex = start;
+                if (element == null){
+                    throw new NullPointerException();
+                }
+                throw new IllegalArgumentException("Element is already in the queue");
+            }
+            heapArray[nextIndex++] = element;
+        }
+
+        if (size() - oldSize > oldSize){
+            for (int index = parent(nextIndex - 1); index >= root; index--){
+                heapifyDown(index);
+            }
+        }else{
+            for (int index = start; index < nextIndex; index++){
+                heapifyUp(index);
+            }
+        }
+    }
+
+    /**
+     * Removes up to k elements from the top of the queue
+     * @param k how many elements to remove at most
+     * @return the removed elements, in the order they came out of the queue
+     */
+    public List<T> pollN(int k){
+        List<T> polled = new ArrayList<>(Math.max(0, Math.min(k, size())));
+        while (polled.size() < k && !isEmpty()){
+            polled.add(poll());
+        }
+        return polled;
+    }
+
+    /**
+     * Removes every element from the queue and adds them to a collection, in the order they came out
+     * @param target
+     * @return how many elements were moved
+     */
+    public int drainTo(Collection<? super T> target){
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes up to max elements from the queue and adds them to a collection, in the order they came out
+     * @param target
+     * @param max how many elements to move at most
+     * @return how many elements were moved
+     */
+    public int drainTo(Collection<? super T> target, int max){
+        int moved = 0;
+        while (moved < max && !isEmpty()){
+            target.add(poll());
+            moved++;
+        }
+        return moved;
+    }
+
     /**
      * Returns the topmost element in the queue. If in a min heap, the smallest value, and if a max heap, the
      * largest. This doesn't however remove the elements from the queue.
@@ -67,7 +233,7 @@ public class PriorityQueue<T extends Comparable<T>>{
         if (isEmpty()){
             return null;
         }
-        return (T)heapArray[0];
+        return (T)heapArray[root];
     }
 
     /**
@@ -81,17 +247,140 @@ public class PriorityQueue<T extends Comparable<T>>{
             return null;
         }
 
-        T toReturn = (T)(heapArray[0]);
-        heapArray[0] = heapArray[nextIndex-1];
+        T toReturn = (T)(heapArray[root]);
+        heapArray[root] = heapArray[nextIndex-1];
         heapArray[nextIndex-1] = null;
         nextIndex--;
 
-        heapifyDown(0);
+        if (positions != null){
+            positions.remove(toReturn);
+            if (nextIndex > root){
+                positions.put((T)heapArray[root], root);
+            }
+        }
+
+        heapifyDown(root);
 
         return toReturn;
 
     }
 
+    /**
+     * Tells the queue that a queued element's key has decreased i.e. it now compares as smaller than it used to.
+     * In a min heap this moves the element up towards the top, and in a max heap it moves it down.
+     * This runs in O(logn), but only works when the queue is indexed.
+     * @param element the element whose key decreased
+     * @throws IllegalStateException if the queue isn't indexed
+     * @throws NoSuchElementException if the element isn't in the queue
+     */
+    public void decreaseKey(T element){
+        int index = indexOf(element);
+        if (IS_MIN){
+            heapifyUp(index);
+        }else{
+            heapifyDown(index);
+        }
+    }
+
+    /**
+     * Tells the queue that a queued element's key has increased i.e. it now compares as bigger than it used to.
+     * In a min heap this moves the element down away from the top, and in a max heap it moves it up.
+     * This runs in O(logn), but only works when the queue is indexed.
+     * @param element the element whose key increased
+     * @throws IllegalStateException if the queue isn't indexed
+     * @throws NoSuchElementException if the element isn't in the queue
+     */
+    public void increaseKey(T element){
+        int index = indexOf(element);
+        if (IS_MIN){
+            heapifyDown(index);
+        }else{
+            heapifyUp(index);
+        }
+    }
+
+    /**
+     * Checks if an element is in the queue. This is O(1) when the queue is indexed, and a linear scan otherwise
+     * @param element
+     * @return true if the element is queued
+     */
+    public boolean contains(T element){
+        return find(element) != -1;
+    }
+
+    /**
+     * Removes an element from the queue, wherever it is. The last element of the heap array takes its place and is
+     * moved up or down from there. This is O(logn) when the queue is indexed, and needs a linear scan to find the
+     * element otherwise
+     * @param element
+     * @return true if the element was in the queue
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(T element){
+        int index = find(element);
+        if (index == -1){
+            return false;
+        }
+
+        T removed = (T)heapArray[index];
+        nextIndex--;
+        if (positions != null){
+            positions.remove(removed);
+        }
+        if (index == nextIndex){ // it was the last element, so nothing has to move
+            heapArray[nextIndex] = null;
+            return true;
+        }
+
+        heapArray[index] = heapArray[nextIndex];
+        heapArray[nextIndex] = null;
+        if (positions != null){
+            positions.put((T)heapArray[index], index);
+        }
+        if (index > root && switchUp((T)heapArray[index], (T)heapArray[parent(index)])){
+            heapifyUp(index);
+        }else{
+            heapifyDown(index);
+        }
+        return true;
+    }
+
+    /**
+     * Finds where an element is in the heap array, through the index map if we have one
+     * @param element
+     * @return the index of the element in the heap array, or -1 if it isn't queued
+     */
+    private int find(T element){
+        if (positions != null){
+            Integer index = positions.get(element);
+            return (index == null) ? -1 : index;
+        }
+        for (int i = root; i < nextIndex; i++){
+            if (heapArray[i].equals(element)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds where a queued element currently is in the heap array
+     * @param element
+     * @return the index of the element in the heap array
+     * @throws IllegalStateException if the queue isn't indexed
+     * @throws NoSuchElementException if the element isn't in the queue
+     */
+    private int indexOf(T element){
+        if (positions == null){
+            throw new IllegalStateException("Queue has to be indexed to look up elements");
+        }
+        Integer index = positions.get(element);
+        if (index == null){
+            throw new NoSuchElementException("Element isn't in the queue");
+        }
+        return index;
+    }
+
     /**
      * Heapify's up the index to maintain the heap property
      * @param index
@@ -100,7 +389,7 @@ public class PriorityQueue<T extends Comparable<T>>{
     private void heapifyUp(int index){
 
         
-        while(index > 0){
+        while(index > root){
             if (!switchUp((T)heapArray[index], (T)heapArray[parent(index)])){
                 break;
             }
@@ -118,17 +407,20 @@ public class PriorityQueue<T extends Comparable<T>>{
     @SuppressWarnings("unchecked")
     private void heapifyDown(int index){
 
-        while(hasLeftChild(index)){
-            
-            T representativeChild = (T)heapArray[leftChild(index)];
-            int representativeChildIndex = leftChild(index);
-
-            if (hasRightChild(index) && switchUp((T)heapArray[rightChild(index)], (T)heapArray[leftChild(index)])){
-                representativeChild = (T)heapArray[rightChild(index)];
-                representativeChildIndex = rightChild(index);
+        while(firstChild(index) < nextIndex){
+
+            // we find the child with the greatest priority, which is the one that might have to come up
+            int first = firstChild(index);
+            int last = Math.min(first + arity, nextIndex);
+            T representativeChild = (T)heapArray[first];
+            int representativeChildIndex = first;
+            for (int child = first + 1; child < last; child++){
+                if (switchUp((T)heapArray[child], representativeChild)){
+                    representativeChild = (T)heapArray[child];
+                    representativeChildIndex = child;
+                }
             }
 
-            //System.out.println(representativeChildIndex + " " + heapArray[index] + " " + representativeChild);
             if (!switchUp(representativeChild, (T)heapArray[index])){
                 break;
             }
@@ -140,34 +432,21 @@ public class PriorityQueue<T extends Comparable<T>>{
 
     }
 
-
-    /**
-     * Checks if the object at this index has a left child
-     * @param index
-     * @return
-     */
-    private boolean hasLeftChild(int index){
-        return leftChild(index) < nextIndex;
-    }
-
-    /**
-     * Checks if the object at this index has a right child
-     * @param index
-     * @return
-     */
-    private boolean hasRightChild(int index){
-        return rightChild(index) < nextIndex;
-    }
-
     /**
      * Switches the objects at indices 1 and 2
      * @param index1
      * @param index2
      */
+    @SuppressWarnings("unchecked")
     private void switchIndices(int index1, int index2){
         Object temp = heapArray[index1];
         heapArray[index1] = heapArray[index2];
         heapArray[index2] = temp;
+
+        if (positions != null){ // we keep our index map in line with the array
+            positions.put((T)heapArray[index1], index1);
+            positions.put((T)heapArray[index2], index2);
+        }
     }
 
     /**
@@ -184,25 +463,16 @@ public class PriorityQueue<T extends Comparable<T>>{
      * @return
      */
     private int parent(int index){
-        return (index - 1)/2;
-    }
-
-    /**
-     * Returns the index of the right child of the current index.
-     * @param index
-     * @return
-     */
-    private int rightChild(int index){
-        return 2*index + 2;
+        return (index - root - 1)/arity + root;
     }
 
     /**
-     * Returns the index of the left child of this current index
+     * Returns the index of the first child of an index. Its siblings follow it
      * @param index
      * @return
      */
-    private int leftChild(int index){
-        return 2*index + 1;
+    private int firstChild(int index){
+        return arity*(index - root) + 1 + root;
     }
 
     /**
@@ -218,7 +488,7 @@ public class PriorityQueue<T extends Comparable<T>>{
      * @return the current size of the priority queue
      */
     public int size(){
-        return nextIndex;
+        return nextIndex - root;
     }
 
     /**
@@ -226,14 +496,14 @@ public class PriorityQueue<T extends Comparable<T>>{
      * @return true if the heap is empty
      */
     public boolean isEmpty(){
-        return nextIndex == 0;
+        return nextIndex == root;
     }
 
     /**
      * Increases the size of the array when it gets full
      */
     private void increaseSize(){
-        heapArray = Arrays.copyOf(heapArray, nextIndex * 2);
+        heapArray = Arrays.copyOf(heapArray, root + size() * 2);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,66 @@
+package Trees;
+
+import java.util.Random;
+
+/**
+ * A small benchmark of the heap layouts PriorityQueue can have. It queues a lot of random Integers and then polls
+ * them all back out, for each arity with and without alignment, and prints how long each took. The first argument is
+ * how many elements to queue (2 million by default).
+ */
+public class PriorityQueueBenchmark {
+
+    private static final int[] ARITIES = {2, 4, 8};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000_000;
+        Integer[] elements = new Integer[n];
+        Random rand = new Random(42);
+        for (int i = 0; i < n; i++){
+            elements[i] = rand.nextInt();
+        }
+
+        // the first round just warms the JIT up, so we only print the later ones
+        for (int round = 0; round < ROUNDS; round++){
+            for (int arity : ARITIES){
+                for (boolean aligned : new boolean[]{false, true}){
+                    if (arity == 2 && aligned){
+                        continue; // an aligned binary heap only moves the root to 1
+                    }
+                    long[] times = run(elements, arity, aligned);
+                    if (round > 0){
+                        System.out.printf("round %d, %d-ary%s: enqueue %d ms, poll %d ms%n", round, arity,
+                                aligned ? " aligned" : "", times[0] / 1_000_000, times[1] / 1_000_000);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues all the elements and polls them back out
+     * @return how long the enqueues and the polls took, in nanoseconds
+     */
+    private static long[] run(Integer[] elements, int arity, boolean aligned){
+        PriorityQueue<Integer> pq = new PriorityQueue<>(elements.length, true, false, arity, aligned);
+
+        long start = System.nanoTime();
+        for (Integer element : elements){
+            pq.enqueue(element);
+        }
+        long enqueued = System.nanoTime();
+
+        int previous = Integer.MIN_VALUE;
+        while (!pq.isEmpty()){
+            int next = pq.poll();
+            if (next < previous){
+                throw new IllegalStateException("The queue came out of order");
+            }
+            previous = next;
+        }
+        long polled = System.nanoTime();
+
+        return new long[]{enqueued - start, polled - enqueued};
+    }
+
+}
@@ -0,0 +1,174 @@
+package Trees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for PriorityQueue. These live in their own class, since PriorityQueue has more than one constructor and JUnit
+ * needs the test class to have just one
+ */
+public class PriorityQueueTest{
+
+    /**
+     * An element with a key we can change while it's queued, for testing the indexed operations
+     */
+    private static class Keyed implements Comparable<Keyed>{
+        int key;
+
+        Keyed(int key){
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Keyed other){
+            return Integer.compare(key, other.key);
+        }
+    }
+
+    /**
+     * This tests decreaseKey, increaseKey, remove and contains against a plain list, for different arities and
+     * layouts, in both min and max heaps
+     */
+    @Test
+    public void test1(){
+
+        Random rand = new Random(3);
+        for (int arity : new int[]{2, 3, 4, 8}){
+            for (boolean aligned : new boolean[]{false, true}){
+                for (boolean isMin : new boolean[]{true, false}){
+
+                    PriorityQueue<Keyed> queue = new PriorityQueue<>(4, isMin, true, arity, aligned);
+                    List<Keyed> expected = new ArrayList<>();
+
+                    // TEST 1: random enqueues, key changes and removals keep the heap in order
+                    for (int step = 0; step < 2000; step++){
+                        int operation = rand.nextInt(4);
+                        if (operation == 0 || expected.isEmpty()){
+                            Keyed element = new Keyed(rand.nextInt(1000));
+                            queue.enqueue(element);
+                            expected.add(element);
+                        }else if (operation == 1){
+                            Keyed element = expected.get(rand.nextInt(expected.size()));
+                            element.key -= rand.nextInt(100);
+                            queue.decreaseKey(element);
+                        }else if (operation == 2){
+                            Keyed element = expected.get(rand.nextInt(expected.size()));
+                            element.key += rand.nextInt(100);
+                            queue.increaseKey(element);
+                        }else{
+                            Keyed element = expected.remove(rand.nextInt(expected.size()));
+                            Assertions.assertTrue(queue.remove(element));
+                            Assertions.assertTrue(!queue.contains(element) && !queue.remove(element));
+                        }
+                        Assertions.assertEquals(expected.size(), queue.size());
+                    }
+                    for (Keyed element : expected){
+                        Assertions.assertTrue(queue.contains(element));
+                    }
+
+                    expected.sort(isMin ? null : Collections.reverseOrder());
+                    for (Keyed element : expected){
+                        Assertions.assertEquals(element.key, queue.poll().key);
+                    }
+                    Assertions.assertTrue(queue.isEmpty());
+                }
+            }
+        }
+
+        // TEST 2: key changes need an indexed queue, and the element has to be queued
+        PriorityQueue<Keyed> plain = new PriorityQueue<>(true);
+        Keyed element = new Keyed(1);
+        plain.enqueue(element);
+        try{
+            plain.decreaseKey(element);
+            Assertions.fail();
+        }catch(IllegalStateException e){
+        }
+        Assertions.assertTrue(plain.contains(element) && plain.remove(element) && plain.isEmpty());
+
+        PriorityQueue<Keyed> indexed = new PriorityQueue<>(4, true, true);
+        try{
+            indexed.increaseKey(element);
+            Assertions.fail();
+        }catch(NoSuchElementException e){
+        }
+        indexed.enqueue(element);
+        try{
+            indexed.enqueue(element);
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+
+    }
+
+    /**
+     * This tests building a queue in one go, enqueueAll into queues that already have elements, and the batched polls
+     */
+    @Test
+    public void test2(){
+
+        Random rand = new Random(5);
+        for (int arity : new int[]{2, 4, 8}){
+            for (boolean aligned : new boolean[]{false, true}){
+                for (boolean indexed : new boolean[]{false, true}){
+                    for (int before : new int[]{0, 3, 500}){
+                        for (int batch : new int[]{0, 1, 10, 1000}){
+
+                            // TEST 1: small and big batches into empty and full queues come out in order
+                            PriorityQueue<Integer> queue = new PriorityQueue<>(4, true, indexed, arity, aligned);
+                            List<Integer> expected = new ArrayList<>();
+                            for (int i = 0; i < before + batch; i++){
+                                expected.add(i);
+                            }
+                            Collections.shuffle(expected, rand);
+                            for (int i = 0; i < before; i++){
+                                queue.enqueue(expected.get(i));
+                            }
+                            queue.enqueueAll(expected.subList(before, before + batch));
+                            Collections.sort(expected);
+                            Assertions.assertEquals(expected.size(), queue.size());
+
+                            // TEST 2: pollN and drainTo take the elements off in order
+                            List<Integer> polled = queue.pollN(3);
+                            Assertions.assertEquals(Math.min(2, queue.size()), queue.drainTo(polled, 2));
+                            queue.drainTo(polled);
+                            Assertions.assertEquals(expected, polled);
+                            Assertions.assertTrue(queue.isEmpty() && queue.pollN(2).isEmpty());
+                        }
+                    }
+                }
+            }
+        }
+
+        // TEST 3: the constructors heapify their elements
+        PriorityQueue<Integer> max = new PriorityQueue<>(new Integer[]{5, 3, 9, 1, 7}, false);
+        Assertions.assertEquals(Arrays.asList(9, 7, 5, 3, 1), max.pollN(10));
+        PriorityQueue<Integer> min = new PriorityQueue<>(Arrays.asList(5, 3, 9, 1, 7), true);
+        Assertions.assertEquals(Arrays.asList(1, 3, 5, 7, 9), min.pollN(10));
+
+        // TEST 4: a bad batch leaves the queue as it was
+        PriorityQueue<Integer> indexed = new PriorityQueue<>(4, true, true);
+        indexed.enqueue(1);
+        try{
+            indexed.enqueueAll(Arrays.asList(2, 3, 1));
+            Assertions.fail();
+        }catch(IllegalArgumentException e){
+        }
+        try{
+            indexed.enqueueAll(Arrays.asList(4, null));
+            Assertions.fail();
+        }catch(NullPointerException e){
+        }
+        Assertions.assertTrue(indexed.size() == 1 && !indexed.contains(2) && !indexed.contains(4));
+        Assertions.assertEquals(1, (int)indexed.poll());
+
+    }
+
+}